@@ -28,4 +28,9 @@ import java.lang.annotation.Target;
 @Target(ElementType.METHOD)
 public @interface Action {
 	public Class<?>[] interceptedBy() default { Object.class };
+	/**
+	 * When true, the RenderResult of this action is streamed to the client as HTTP chunks while rendering.
+	 * @see RenderResult#setStreaming(boolean)
+	 */
+	public boolean streaming() default false;
 }
@@ -27,10 +27,14 @@ import java.lang.annotation.Target;
  * <p>{@link #url()} declaration refers to the URLs which the @Controller will be bound to.
  * More to come when this project is fully documented</p>
  * 
+ * <p>{@link #scope()} defines whether a new instance handles each request (default), instances are pooled or a
+ * single instance handles all requests.</p>
+ * 
  * @author dfroz
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.TYPE)
 public @interface Controller {
 	public String url();
+	public Scope scope() default Scope.PROTOTYPE;
 }
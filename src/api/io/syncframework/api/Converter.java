@@ -15,6 +15,15 @@
  */
 package io.syncframework.api;
 
+import java.util.List;
+
 public interface Converter<T> {
 	public T convert(String values[]) throws Exception;
+	/**
+	 * Converts the values as received by the request. Converters of single values shall override it, avoiding
+	 * the copy of the values to an array.
+	 */
+	public default T convert(List<String> values) throws Exception {
+		return convert(values.toArray(new String[values.size()]));
+	}
 }
\ No newline at end of file
@@ -19,6 +19,7 @@ import java.util.Iterator;
 
 public class RenderResult extends Result {
 	private String template;
+	private boolean streaming;
 	
 	public RenderResult(String template) {
 		this.template = template;
@@ -30,10 +31,24 @@ public class RenderResult extends Result {
 		this.template = template;
 		return this;
 	}
+	public boolean isStreaming() {
+		return streaming;
+	}
+	/**
+	 * Streams the rendered output to the client as HTTP chunks, every time the output buffer fills, instead of 
+	 * sending it once the template has been completely rendered. Headers and cookies shall be set before rendering; 
+	 * a template failing after the first chunk is sent has the connection closed.
+	 */
+	public Result setStreaming(boolean streaming) {
+		this.streaming = streaming;
+		return this;
+	}
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 		sb.append("RenderResult { ");
 		sb.append("template: ").append(template).append(", ");
+		if(streaming)
+			sb.append("streaming: true, ");
 		sb.append("parameters: { ");
 		Iterator<String> it = this.getParameters().keySet().iterator();
 		while(it.hasNext()) {
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.api;
+
+/**
+ * Lifecycle of the @Controller instances handling the requests.
+ * 
+ * @author dfroz
+ */
+public enum Scope {
+	/**
+	 * new instance for every request
+	 */
+	PROTOTYPE,
+	/**
+	 * instances are recycled between requests; the @Parameter fields are cleared before the instance is reused
+	 */
+	POOLED,
+	/**
+	 * single instance handles all requests concurrently; the @Controller cannot declare @Parameter fields or
+	 * request bound contexts
+	 */
+	SINGLETON
+}
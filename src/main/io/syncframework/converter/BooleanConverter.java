@@ -15,6 +15,8 @@
  */
 package io.syncframework.converter;
 
+import java.util.List;
+
 import io.syncframework.api.Converter;
 
 /**
@@ -26,6 +28,15 @@ public class BooleanConverter implements Converter<Boolean> {
 			return null;
 		return Boolean.valueOf(values[0]);
 	}
+	@Override
+	public Boolean convert(List<String> values) {
+		if(values == null || values.isEmpty())
+			return null;
+		String value = values.get(0);
+		if(value.equals(""))
+			return null;
+		return Boolean.valueOf(value);
+	}
 	
 	public String toString() {
 		return "BooleanConverter";
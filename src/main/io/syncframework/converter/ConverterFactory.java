@@ -44,6 +44,14 @@ public class ConverterFactory {
 		converters.put(String.class, new StringConverter());
 		converters.put(String[].class, new StringArrayConverter());
 		converters.put(Map.class, new StringMapConverter());
+		// primitive @Parameters; the optimized classes parse the single values without boxing
+		converters.put(boolean.class, new PrimitiveBooleanConverter());
+		converters.put(double.class, new PrimitiveDoubleConverter());
+		converters.put(double[].class, new PrimitiveDoubleArrayConverter());
+		converters.put(int.class, new PrimitiveIntConverter());
+		converters.put(int[].class, new PrimitiveIntArrayConverter());
+		converters.put(long.class, new PrimitiveLongConverter());
+		converters.put(long[].class, new PrimitiveLongArrayConverter());
 	}
 	
 	public boolean isConverter(Class<?> clazz) {
@@ -65,6 +73,17 @@ public class ConverterFactory {
 		return converters.get(clazz);
 	}
 
+	/**
+	 * @param parameter @Parameter to be converted, reported if there is no converter for its type
+	 * @return converter for the type
+	 */
+	public Converter<?> getConverter(Class<?> clazz, String parameter) {
+		Converter<?> converter = getConverter(clazz);
+		if(converter == null)
+			throw new RuntimeException("@Converter not found to handle type "+clazz.getName()+" of @Parameter "+parameter);
+		return converter;
+	}
+
 	public Map<Class<?>, Converter<?>> getConverters() {
 		return converters;
 	}
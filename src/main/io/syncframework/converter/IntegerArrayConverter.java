@@ -26,7 +26,7 @@ public class IntegerArrayConverter implements Converter<Integer[]> {
 			throw new IllegalArgumentException("values");
 		Integer ints[] = new Integer[values.length];
 		for(int i=0; i < values.length; i++) {
-			ints[i] = Double.valueOf(values[i]).intValue();
+			ints[i] = PrimitiveIntConverter.parse(values[i]);
 		}
 		return ints;
 	}
@@ -15,6 +15,8 @@
  */
 package io.syncframework.converter;
 
+import java.util.List;
+
 import io.syncframework.api.Converter;
 
 /**
@@ -28,7 +30,16 @@ public class IntegerConverter implements Converter<Integer> {
 			return null;
 		if(values[0] == null || values[0].equals(""))
 			return null;
-		return Double.valueOf(values[0]).intValue();
+		return PrimitiveIntConverter.parse(values[0]);
+	}
+	@Override
+	public Integer convert(List<String> values) {
+		if(values == null || values.isEmpty())
+			return null;
+		String value = values.get(0);
+		if(value == null || value.equals(""))
+			return null;
+		return PrimitiveIntConverter.parse(value);
 	}
 	public String toString() {
 		return "IntegerConverter";
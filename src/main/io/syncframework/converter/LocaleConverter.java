@@ -15,6 +15,7 @@
  */
 package io.syncframework.converter;
 
+import java.util.List;
 import java.util.Locale;
 
 import io.syncframework.api.Converter;
@@ -27,7 +28,15 @@ public class LocaleConverter implements Converter<Locale> {
 	public Locale convert(String values[]) {
 		if(values == null || values.length == 0 || values[0].equals(""))
 			return null;
-		String v = values[0];
+		return convert(values[0]);
+	}
+	@Override
+	public Locale convert(List<String> values) {
+		if(values == null || values.isEmpty() || values.get(0).equals(""))
+			return null;
+		return convert(values.get(0));
+	}
+	private Locale convert(String v) {
 		int p = v.indexOf('_');
 		if(p == -1)
 			return new Locale(v);
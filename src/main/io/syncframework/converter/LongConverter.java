@@ -15,6 +15,8 @@
  */
 package io.syncframework.converter;
 
+import java.util.List;
+
 import io.syncframework.api.Converter;
 
 /**
@@ -26,6 +28,15 @@ public class LongConverter implements Converter<Long> {
 			return null;
 		return Long.valueOf(values[0]);
 	}
+	@Override
+	public Long convert(List<String> values) {
+		if(values == null || values.isEmpty())
+			return null;
+		String value = values.get(0);
+		if(value.equals(""))
+			return null;
+		return Long.valueOf(value);
+	}
 	public String toString() {
 		return "LongConverter";
 	}
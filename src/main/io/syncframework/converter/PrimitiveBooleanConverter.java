@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.converter;
+
+import java.util.List;
+
+import io.syncframework.api.Converter;
+
+/**
+ * Converter of boolean @Parameters. The optimized @Controllers and @Interceptors call parse() directly, storing the
+ * value without boxing.
+ * 
+ * @author dfroz
+ */
+public class PrimitiveBooleanConverter implements Converter<Boolean> {
+	public Boolean convert(String values[]) {
+		if(values == null || values.length == 0 || values[0] == null || values[0].equals(""))
+			return null;
+		return parse(values[0]);
+	}
+	@Override
+	public Boolean convert(List<String> values) {
+		if(values == null || values.isEmpty())
+			return null;
+		String value = values.get(0);
+		if(value == null || value.equals(""))
+			return null;
+		return parse(value);
+	}
+	/**
+	 * @return true if the value is "true", ignoring case; the same as Boolean.parseBoolean()
+	 */
+	public static boolean parse(CharSequence value) {
+		if(value.length() != 4)
+			return false;
+		return (value.charAt(0) | 0x20) == 't' && (value.charAt(1) | 0x20) == 'r' &&
+				(value.charAt(2) | 0x20) == 'u' && (value.charAt(3) | 0x20) == 'e';
+	}
+	public String toString() {
+		return "PrimitiveBooleanConverter";
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.converter;
+
+import java.util.List;
+
+import io.syncframework.api.Converter;
+
+/**
+ * Converter of double[] @Parameters, parsing the values with PrimitiveDoubleConverter.parse()
+ * 
+ * @author dfroz
+ */
+public class PrimitiveDoubleArrayConverter implements Converter<double[]> {
+	public double[] convert(String values[]) {
+		if(values == null || values.length == 0)
+			return null;
+		double result[] = new double[values.length];
+		for(int i=0; i < values.length; i++) {
+			result[i] = PrimitiveDoubleConverter.parse(values[i]);
+		}
+		return result;
+	}
+	@Override
+	public double[] convert(List<String> values) {
+		if(values == null || values.isEmpty())
+			return null;
+		double result[] = new double[values.size()];
+		for(int i=0; i < result.length; i++) {
+			result[i] = PrimitiveDoubleConverter.parse(values.get(i));
+		}
+		return result;
+	}
+	public String toString() {
+		return "PrimitiveDoubleArrayConverter";
+	}
+}
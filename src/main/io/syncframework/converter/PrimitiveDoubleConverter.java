@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.converter;
+
+import java.util.List;
+
+import io.syncframework.api.Converter;
+
+/**
+ * Converter of double @Parameters. The optimized @Controllers and @Interceptors call parse() directly, storing the
+ * value without boxing.
+ * 
+ * @author dfroz
+ */
+public class PrimitiveDoubleConverter implements Converter<Double> {
+	public Double convert(String values[]) {
+		if(values == null || values.length == 0 || values[0] == null || values[0].equals(""))
+			return null;
+		return parse(values[0]);
+	}
+	@Override
+	public Double convert(List<String> values) {
+		if(values == null || values.isEmpty())
+			return null;
+		String value = values.get(0);
+		if(value == null || value.equals(""))
+			return null;
+		return parse(value);
+	}
+	/**
+	 * Parses integral values without allocation; the others go through Double.parseDouble(), for exact rounding
+	 */
+	public static double parse(CharSequence value) {
+		int length = value.length();
+		int i = 0;
+		boolean negative = false;
+		if(length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+			negative = value.charAt(0) == '-';
+			i++;
+		}
+		// up to 15 digits the value is exactly representable
+		if(i == length || length - i > 15)
+			return Double.parseDouble(value.toString());
+		long result = 0;
+		for(; i < length; i++) {
+			char ch = value.charAt(i);
+			if(ch < '0' || ch > '9')
+				return Double.parseDouble(value.toString());
+			result = result * 10 + (ch - '0');
+		}
+		return negative ? -(double)result : (double)result;
+	}
+	public String toString() {
+		return "PrimitiveDoubleConverter";
+	}
+}
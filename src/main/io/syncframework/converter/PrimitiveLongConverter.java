@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.converter;
+
+import java.util.List;
+
+import io.syncframework.api.Converter;
+
+/**
+ * Converter of long @Parameters. The optimized @Controllers and @Interceptors call parse() directly, storing the
+ * value without boxing.
+ * 
+ * @author dfroz
+ */
+public class PrimitiveLongConverter implements Converter<Long> {
+	public Long convert(String values[]) {
+		if(values == null || values.length == 0 || values[0] == null || values[0].equals(""))
+			return null;
+		return parse(values[0]);
+	}
+	@Override
+	public Long convert(List<String> values) {
+		if(values == null || values.isEmpty())
+			return null;
+		String value = values.get(0);
+		if(value == null || value.equals(""))
+			return null;
+		return parse(value);
+	}
+	/**
+	 * Parses the digits without allocation, with the same rules of Long.parseLong()
+	 */
+	public static long parse(CharSequence value) {
+		int length = value.length();
+		int i = 0;
+		boolean negative = false;
+		if(length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+			negative = value.charAt(0) == '-';
+			i++;
+		}
+		if(i == length)
+			throw new NumberFormatException("For input string: \""+value+"\"");
+		// accumulating negatively, so Long.MIN_VALUE fits
+		long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		long result = 0;
+		for(; i < length; i++) {
+			char ch = value.charAt(i);
+			if(ch < '0' || ch > '9')
+				throw new NumberFormatException("For input string: \""+value+"\"");
+			int digit = ch - '0';
+			if(result < Long.MIN_VALUE / 10 || result * 10 < limit + digit)
+				throw new NumberFormatException("For input string: \""+value+"\"");
+			result = result * 10 - digit;
+		}
+		return negative ? result : -result;
+	}
+	public String toString() {
+		return "PrimitiveLongConverter";
+	}
+}
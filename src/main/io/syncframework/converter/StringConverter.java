@@ -15,6 +15,8 @@
  */
 package io.syncframework.converter;
 
+import java.util.List;
+
 import io.syncframework.api.Converter;
 
 /**
@@ -28,6 +30,15 @@ public class StringConverter implements Converter<String> {
 			return null;
 		return values[0];
 	}
+	@Override
+	public String convert(List<String> values) {
+		if(values == null || values.isEmpty())
+			return null;
+		String value = values.get(0);
+		if(value.equals(""))
+			return null;
+		return value;
+	}
 	public String toString() {
 		return "StringConverter";
 	}
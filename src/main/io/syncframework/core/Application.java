@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,6 +57,7 @@ public class Application {
 	private MessageFactory messageFactory;
 	private ResponderFactory responderFactory;
 	private SessionFactory sessionFactory;
+	private final List<Runnable> stopHooks = new CopyOnWriteArrayList<Runnable>();
 	
 	public Application(File base) {
 		this.base = base;
@@ -177,8 +179,20 @@ public class Application {
 		config.setSessionExpire(sessionExpire);
 		String sessionIdKey = config.getString(ApplicationConfig.SESSION_IDKEY_KEY, "SSID");
 		config.setSessionIdKey(sessionIdKey);
-		Integer sessionPoolSize = config.getInt(ApplicationConfig.SESSION_POOL_SIZE_KEY, 50);
+		String sessionIdGenerator = config.getString(ApplicationConfig.SESSION_IDGENERATOR_KEY, "secure");
+		config.setSessionIdGenerator(sessionIdGenerator);
+		Integer sessionIdLength = config.getInt(ApplicationConfig.SESSION_IDLENGTH_KEY, 16);
+		config.setSessionIdLength(sessionIdLength);
+		Integer sessionPoolSize = config.getInt(ApplicationConfig.SESSION_POOL_SIZE_KEY, 100000);
 		config.setSessionPoolSize(sessionPoolSize);
+		Long sessionMemorySize = config.getLong(ApplicationConfig.SESSION_MEMORY_SIZE_KEY, 67108864);
+		config.setSessionMemorySize(sessionMemorySize);
+		
+		//
+		// @Controller(scope = Scope.POOLED) configuration
+		//
+		Integer controllerPoolSize = config.getInt(ApplicationConfig.CONTROLLER_POOL_SIZE_KEY, 64);
+		config.setControllerPoolSize(controllerPoolSize);
 		
 		// template cache
 		Boolean templateCache = config.getBoolean(ApplicationConfig.TEMPLATE_CACHE, true);
@@ -220,12 +234,34 @@ public class Application {
 		else if(config.getSessionFactory().equals("secure")) {
 			sessionFactory = new SessionFactorySecureImpl();
 		}
+		else if(config.getSessionFactory().equals("persistent")) {
+			sessionFactory = new SessionFactoryPersistentImpl();
+		}
 		else {
 			sessionFactory = new SessionFactoryDefaultImpl();
 		}
 		if(log.isDebugEnabled())
 			log.debug("{} using {} session factory", this, sessionFactory);
-		sessionFactory.start(config);
+		//
+		// session id generator: "secure" or the class name of a SessionIdGenerator implementation
+		//
+		SessionIdGenerator sessionIdGenerator = null;
+		if(config.getSessionIdGenerator().equals("secure")) {
+			sessionIdGenerator = new SessionIdGeneratorSecureImpl();
+		}
+		else {
+			try {
+				Class<?> clazz = classLoader.loadClass(config.getSessionIdGenerator());
+				sessionIdGenerator = (SessionIdGenerator)clazz.newInstance();
+			}
+			catch(Exception e) {
+				throw new RuntimeException("failed to instantiate session id generator "+config.getSessionIdGenerator(), e);
+			}
+		}
+		sessionIdGenerator.start(config);
+		if(log.isDebugEnabled())
+			log.debug("{} using {} session id generator", this, sessionIdGenerator);
+		sessionFactory.start(config, sessionIdGenerator);
 		
 		// class loader for this application
 		
@@ -262,12 +298,33 @@ public class Application {
 	}
 	
 	public void stop() throws Exception {
-		if(initializerFactory == null) {
-			if(log.isDebugEnabled())
-				log.debug("application not initialized for stop procedure... InitializerFactory is null");
-			return;
+		try {
+			if(initializerFactory == null) {
+				if(log.isDebugEnabled())
+					log.debug("application not initialized for stop procedure... InitializerFactory is null");
+				return;
+			}
+			initializerFactory.destroy();
+			sessionFactory.stop();
 		}
-		initializerFactory.destroy();
+		finally {
+			for(Runnable hook: stopHooks) {
+				try {
+					hook.run();
+				}
+				catch(Exception e) {
+					log.error("{} stop hook has failed: ", this, e);
+				}
+			}
+			stopHooks.clear();
+		}
+	}
+	
+	/**
+	 * Registers a task run once the application stops, releasing resources held on its behalf by the server
+	 */
+	public void addStopHook(Runnable hook) {
+		stopHooks.add(hook);
 	}
 	
 	public ClassLoader getClassLoader() {
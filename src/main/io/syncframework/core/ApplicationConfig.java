@@ -27,11 +27,15 @@ public class ApplicationConfig extends Config {
 	private static final long serialVersionUID = -4106496145463699646L;
 	public static final String CONFIG_FILENAME = "application.properties";
 	public static final String CHARSET_KEY = "application.charset";
+	public static final String CONTROLLER_POOL_SIZE_KEY = "application.controller.poolsize";
 	public static final String DOMAINS_KEY = "application.domains";
 	public static final String LOCALE_KEY = "application.locale";
 	public static final String SESSION_EXPIRE_KEY = "application.session.expire";
 	public static final String SESSION_FACTORY_KEY = "application.session.factory";
+	public static final String SESSION_IDGENERATOR_KEY = "application.session.idgenerator";
 	public static final String SESSION_IDKEY_KEY = "application.session.key";
+	public static final String SESSION_IDLENGTH_KEY = "application.session.idlength";
+	public static final String SESSION_MEMORY_SIZE_KEY = "application.session.memorysize";
 	public static final String SESSION_POOL_SIZE_KEY = "application.session.poolsize";
 	public static final String TEMPLATE_CACHE = "application.template.cache";
 	public static final String TEMPLATE_VERSION = "application.template.version";
@@ -42,10 +46,14 @@ public class ApplicationConfig extends Config {
 	private File privateDirectory;
 	private File publicDirectory;
 	private String charset;
+	private int controllerPoolSize;
 	private Locale locale;
 	private long sessionExpire;
 	private String sessionFactory;
+	private String sessionIdGenerator;
 	private String sessionIdKey;
+	private int sessionIdLength;
+	private long sessionMemorySize;
 	private int sessionPoolSize;
 	private Boolean templateCache;
 	private String templateVersion;
@@ -100,6 +108,17 @@ public class ApplicationConfig extends Config {
 		this.charset = charset;
 	}
 
+	/**
+	 * @return maximum number of idle instances kept by each @Controller with scope POOLED
+	 */
+	public int getControllerPoolSize() {
+		return controllerPoolSize;
+	}
+
+	public void setControllerPoolSize(int controllerPoolSize) {
+		this.controllerPoolSize = controllerPoolSize;
+	}
+
 	public Locale getLocale() {
 		return locale;
 	}
@@ -124,6 +143,14 @@ public class ApplicationConfig extends Config {
 		this.sessionFactory = sessionFactory;
 	}
 
+	public String getSessionIdGenerator() {
+		return sessionIdGenerator;
+	}
+
+	public void setSessionIdGenerator(String sessionIdGenerator) {
+		this.sessionIdGenerator = sessionIdGenerator;
+	}
+
 	public String getSessionIdKey() {
 		return sessionIdKey;
 	}
@@ -132,6 +159,28 @@ public class ApplicationConfig extends Config {
 		this.sessionIdKey = sessionIdKey;
 	}
 
+	public int getSessionIdLength() {
+		return sessionIdLength;
+	}
+
+	public void setSessionIdLength(int sessionIdLength) {
+		this.sessionIdLength = sessionIdLength;
+	}
+
+	/**
+	 * @return estimated bytes the sessions of the application may hold before being evicted
+	 */
+	public long getSessionMemorySize() {
+		return sessionMemorySize;
+	}
+
+	public void setSessionMemorySize(long sessionMemorySize) {
+		this.sessionMemorySize = sessionMemorySize;
+	}
+
+	/**
+	 * @return maximum number of sessions of the application; the least recently used are evicted beyond it
+	 */
 	public int getSessionPoolSize() {
 		return sessionPoolSize;
 	}
@@ -15,8 +15,8 @@
  */
 package io.syncframework.core;
 
-import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,7 +25,6 @@ import io.syncframework.api.ApplicationContext;
 import io.syncframework.api.Converter;
 import io.syncframework.api.CookieContext;
 import io.syncframework.api.ErrorContext;
-import io.syncframework.api.FileUpload;
 import io.syncframework.api.MessageContext;
 import io.syncframework.api.RequestContext;
 import io.syncframework.api.Result;
@@ -41,11 +40,18 @@ import io.syncframework.optimizer.OController;
 public class ControllerBean implements ResponseBean {
 	private static Logger log = LoggerFactory.getLogger(ControllerBean.class);
 	private String action;
+	private int actionIndex = -1;
 	private Application application;
 	private OController controller;
+	private ControllerFactory.Route route;
 	private CookieContext cookieContext;
+	private Converter<?> converters[];
 	private ErrorContext errorContext;
+	private InterceptorBean interceptors[];
 	private MessageContext messageContext;
+	private boolean parameters[];
+	private boolean deferredParameters[];
+	private Request deferredRequest;
 	private RequestContext requestContext;
 	private SessionContext sessionContext;
 
@@ -66,6 +72,58 @@ public class ControllerBean implements ResponseBean {
 	 * @throws Exception
 	 */
 	public Result action(Request request, Response response) throws ControllerBeanException {
+		bind(request, response);
+
+		Result result = null;
+		
+		try { result = actionIndex < 0 ? controller._asAction(action) : controller._asAction(actionIndex); }
+		catch(Exception e) { throw new ControllerBeanException(e, this); }
+
+		if(log.isTraceEnabled())
+			log.trace("@Controller {}.{}() resulted in {}", this, action, result);
+
+		return result;
+	}
+	
+	/**
+	 * Executes the asynchronous action; the request is answered once the returned stage completes.
+	 */
+	public CompletionStage<Result> asyncAction(Request request, Response response) throws ControllerBeanException {
+		bind(request, response);
+		
+		CompletionStage<Result> stage = null;
+		
+		try { stage = actionIndex < 0 ? controller._asAsyncAction(action) : controller._asAsyncAction(actionIndex); }
+		catch(Exception e) { throw new ControllerBeanException(e, this); }
+		
+		if(stage == null)
+			throw new ControllerBeanException(new NullPointerException("@Action "+this+"."+action+"() returned null"), this);
+		
+		return stage;
+	}
+	
+	/**
+	 * @return true if the identified action returns CompletionStage<Result>
+	 */
+	public boolean isAsync() {
+		if(action == null)
+			return false;
+		return controller._asActionIsAsync(action);
+	}
+	
+	/**
+	 * @return true if the identified action is annotated with @Action(streaming = true)
+	 */
+	public boolean isStreaming() {
+		if(action == null)
+			return false;
+		return controller._asActionIsStreaming(action);
+	}
+	
+	/**
+	 * Sets the contexts and binds the request parameters to the controller
+	 */
+	private void bind(Request request, Response response) throws ControllerBeanException {
 		if(request == null)
 			throw new IllegalArgumentException("invalid request argument");
 		if(response == null)
@@ -74,112 +132,46 @@ public class ControllerBean implements ResponseBean {
 		if(log.isDebugEnabled())
 			log.debug("@Action "+this+"."+action+"()");
 
-		Session session = request.getSession();
-
 		errorContext = request.getSession().getErrorContext();
 		cookieContext = request.getCookieContext();
 		requestContext = request.getRequestContext();
 		sessionContext = request.getSession().getSessionContext();
-		messageContext = new MessageContextImpl(application.getMessageFactory(), application.getContext(), session.getSessionContext());
+		messageContext = null;
 
 		/*
 		 *  INVOKE SPECIALS
 		 */
-		controller._asApplicationContext(application.getContext());
-		controller._asCookieContext(cookieContext);
-		controller._asErrorContext(errorContext);
-		controller._asMessageContext(messageContext);
-		controller._asRequestContext(requestContext);
-		controller._asSessionContext(sessionContext);
+		controller._asInject(this);
 
 		/*
 		 *  INVOKE SETTERS
 		 */
-
-		Set<String> keys = request.getParameters().keySet();
-		if(keys != null) {
-			for(String name: keys) {
-				List<String> values = request.getParameters().get(name);
-				if(values.size() == 0)
-					continue;
-
-				if(log.isTraceEnabled())
-					log.trace("binding ... @Parameter "+this+"."+name);
-
-				Class<?> type = controller._asParameters().get(name);
-				if(type == null) {
-					if(log.isDebugEnabled()) {
-						log.debug("@Parameter "+name+" not declared by @Controller "+this+
-								"; requested url: "+request.getUri()+"");
-					}
-					continue;
-				}
-				
-				// check for defined converter
-				Converter<?> converter = application.getConverterFactory().getConverter(type);
-				Class<?> converterClazz = controller._asParameterConverter(name);
-				if(converterClazz != null) {
-					try { converter = (Converter<?>)converterClazz.newInstance(); }
-					catch(Exception e) {
-						throw new ControllerBeanException(e, this);
-					}
-				}
-				if(converter == null) {
-					log.error("{}: @Converter not found to handle type: {}", application, type.getName());
-					StringBuilder sb = new StringBuilder();
-					sb.append(application).append(" failed to locate @Converter to deal with @Parameter ").append(this).append(".").append(name);
-					String errmsg = sb.toString();
-					log.error(errmsg);
-					throw new RuntimeException(errmsg);
-				}
-				try {
-					Object value = converter.convert(values.toArray(new String[0]));
-					controller._asParameter(name, value);
-				}
-				catch(Exception e) {
-					throw new ControllerBeanException(e, this);
-				}
-			}
+		if(converters == null)
+			converters = controller._asConverters(application.getConverterFactory());
+		try {
+			controller._asBind(request.getParameters(), request.getFiles(), converters, parameters);
 		}
-		keys = request.getFiles().keySet();
-		if(keys != null) {
-			for(String name: keys) {
-				FileUpload file = request.getFiles().get(name);
-				Class<?> type = controller._asParameters().get(name);
-				if(type == null) {
-					if(log.isDebugEnabled()) {
-						log.debug("@Parameter "+name+" not declared by @Controller "+this+
-								"; requested url: "+request.getUri());
-					}
-					continue;
-				}
-				if(type != FileUpload.class) {
-					if(log.isDebugEnabled())
-						log.debug("@Parameter "+name+" not declared as FileUpload at @Controller "+this+
-								"; requested url: "+request.getUri());
-					continue;
-				}
-				try {
-					controller._asParameter(name, file);
-				}
-				catch(Exception e) {
-					throw new ControllerBeanException(e, this);
-				}
-			}
+		catch(Exception e) {
+			throw new ControllerBeanException(e, this);
 		}
 
-		if(log.isTraceEnabled())
-			log.trace("invoking @Action {}.{}()", controller.getClass().getName(), action);
-
-		Result result = null;
-		
-		try { result = controller._asAction(action); }
-		catch(Exception e) { throw new ControllerBeanException(e, this); }
+		if(deferredParameters != null)
+			deferredRequest = request;
 
 		if(log.isTraceEnabled())
-			log.trace("@Controller {}.{}() resulted in {}", this, action, result);
-
-		return result;
+			log.trace("invoking @Action {}.{}()", controller.getClass().getName(), action);
+	}
+	
+	/**
+	 * Hands the controller back to its @Controller scope once the request is complete; pooled instances are reset
+	 * and recycled
+	 */
+	public void release() {
+		if(route == null)
+			return;
+		deferredRequest = null;
+		route.release(controller);
+		route = null;
 	}
 	
 	public Class<?>[] interceptedBy() {
@@ -196,6 +188,36 @@ public class ControllerBean implements ResponseBean {
 
 	public void setAction(String action) {
 		this.action = action;
+		this.actionIndex = -1;
+		this.parameters = null;
+		this.deferredParameters = null;
+	}
+
+	/**
+	 * @return index of the action resolved by the ControllerFactory; -1 if the action is invoked by its name
+	 */
+	public int getActionIndex() {
+		return actionIndex;
+	}
+
+	public void setActionIndex(int actionIndex) {
+		this.actionIndex = actionIndex;
+	}
+
+	/**
+	 * @return \@Parameters bound before the action is executed, as resolved by the ControllerFactory; null if all
+	 */
+	public boolean[] getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * @param parameters \@Parameters accessed by the action, bound before it is executed; null binds all
+	 * @param deferredParameters \@Parameters not accessed by the action, bound only if the response reads them
+	 */
+	public void setParameters(boolean parameters[], boolean deferredParameters[]) {
+		this.parameters = parameters;
+		this.deferredParameters = deferredParameters;
 	}
 
 	public Application getApplication() {
@@ -213,9 +235,50 @@ public class ControllerBean implements ResponseBean {
 	public void setController(OController controller) {
 		this.controller = controller;
 	}
+
+	/**
+	 * @return converters of the @Parameters, resolved when the @Controller is registered
+	 */
+	public Converter<?>[] getConverters() {
+		return converters;
+	}
+
+	public void setConverters(Converter<?> converters[]) {
+		this.converters = converters;
+	}
+
+	void setRoute(ControllerFactory.Route route) {
+		this.route = route;
+	}
+
+	/**
+	 * @return chain of interceptors of the identified action, resolved when the @Controller is registered
+	 */
+	public InterceptorBean[] getInterceptors() {
+		return interceptors;
+	}
+
+	public void setInterceptors(InterceptorBean interceptors[]) {
+		this.interceptors = interceptors;
+	}
 	
+	/**
+	 * Binds the @Parameters not accessed by the action on the first read; their conversion failures surface as
+	 * ControllerBeanException, as the ones of the @Parameters bound before the action
+	 */
 	@Override
 	public Object getParameter(String name) throws Exception {
+		if(deferredRequest != null) {
+			// the response reads the @Parameters: binding the ones the action did not need
+			Request request = deferredRequest;
+			deferredRequest = null;
+			try {
+				controller._asBind(request.getParameters(), request.getFiles(), converters, deferredParameters);
+			}
+			catch(Exception e) {
+				throw new ControllerBeanException(e, this);
+			}
+		}
 		return controller._asParameter(name);
 	}
 
@@ -244,7 +307,12 @@ public class ControllerBean implements ResponseBean {
 		this.errorContext = errorContext;
 	}
 
+	/**
+	 * @return messages of the request, created on the first call
+	 */
 	public MessageContext getMessageContext() {
+		if(messageContext == null && sessionContext != null)
+			messageContext = new MessageContextImpl(application.getMessageFactory(), application.getContext(), sessionContext);
 		return messageContext;
 	}
 
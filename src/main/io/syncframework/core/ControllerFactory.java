@@ -15,16 +15,19 @@
  */
 package io.syncframework.core;
 
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedList;
-import java.util.List;
+import java.lang.reflect.Method;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.syncframework.api.Action;
+import io.syncframework.api.Controller;
+import io.syncframework.api.Converter;
+import io.syncframework.api.Scope;
 import io.syncframework.optimizer.OController;
 
 /**
@@ -33,55 +36,49 @@ import io.syncframework.optimizer.OController;
 public class ControllerFactory {
 	private static final Logger log = LoggerFactory.getLogger(ControllerFactory.class);
 	private Application application;
-	private URLPattern urls[] = new URLPattern[0];
-	private Map<URLPattern, Class<?>> map = new ConcurrentHashMap<URLPattern, Class<?>>();
+	private URLRouter<Route> router = new URLRouter<Route>();
 
 	public ControllerFactory(Application application) {
 		this.application = application;
 	}
 
-	public boolean find(ControllerBean controllerBean, String url) throws Exception {
+	/**
+	 * @param match owned by the caller, which reuses it across requests; receives the bounds of the action in the URL
+	 * @return true if a @Controller and @Action handle the URL, set into the controllerBean; false otherwise
+	 */
+	public boolean find(ControllerBean controllerBean, String url, URLRouter.Match match) throws Exception {
 		if(log.isTraceEnabled())
 			log.trace("finding controller to handle request: "+url);
 		
-		String actionName = null;
-		
-		URLPattern urlPattern = null;
-		for(int i=0; i < urls.length; i++) {
-			actionName = urls[i].action(url);
-			if(actionName != null) {
-				urlPattern = urls[i];
-				break;
-			}
-		}
-		if(urlPattern == null) {
+		Route route = router.route(url, match);
+		if(route == null) {
 			if(log.isDebugEnabled())
-				log.debug(urls.length+" @Controllers in the pool, none responsible for the url: "+url);
+				log.debug(router.size()+" @Controllers in the pool, none responsible for the url: "+url);
 			return false;
 		}
 		
-		Class<?> clazz = map.get(urlPattern);
-		OController controller = (OController)clazz.newInstance();
-		
-		String action = null;
-		if(controller._asActionIsDefined(actionName))
-			action = actionName;
-		if(action == null && controller._asActionIsDefined("main"))
-			action = "main";
+		RouteAction action = route.action(url, match.getActionOffset(), match.getActionLength());
 		if(action == null) {
 			if(log.isDebugEnabled()) {
-				log.debug("no @Action found on @Controller "+controller.getClass().getName()+
+				log.debug("no @Action found on @Controller "+route.clazz.getName()+
 					" to handle request: "+url);
 			}
 			return false;
 		}
 		
+		OController controller = route.acquire();
+		
 		if(log.isTraceEnabled())
-			log.trace("found @Controller {} -> @Action {}()", controller.getClass().getName(), action);
+			log.trace("found @Controller {} -> @Action {}()", controller.getClass().getName(), action.name);
 		
 		controllerBean.setApplication(application);
 		controllerBean.setController(controller);
-		controllerBean.setAction(action);
+		controllerBean.setAction(action.name);
+		controllerBean.setActionIndex(action.index);
+		controllerBean.setInterceptors(action.interceptors);
+		controllerBean.setParameters(action.parameters, action.deferredParameters);
+		controllerBean.setConverters(route.converters);
+		controllerBean.setRoute(route);
 		
 		return true;
 	}
@@ -89,8 +86,8 @@ public class ControllerFactory {
 	/**
 	 * This method is responsible to register new controllers to the application.<br/>
 	 * <br/>
-	 * The controllers are sorted by URL length before to be included into the controllers[]. This allows quick search
-	 * for the more specific Controller to the generic Controller.<br/>
+	 * The URL pattern is added to the URLRouter, which resolves the more specific Controller before the generic
+	 * Controller: the longest pattern matching the request wins.<br/>
 	 * <br/>
 	 * @param clazz
 	 */
@@ -108,40 +105,120 @@ public class ControllerFactory {
 		URLPattern pattern = new URLPattern();
 		pattern.compile(url);
 		
-		Class<?> c = map.get(pattern);
-		if(c != null) {
+		//
+		// the index, interceptors and accessed @Parameters of each @Action are resolved once; unknown @Interceptors 
+		// fail the deployment
+		//
+		InterceptorFactory interceptorFactory = application.getInterceptorFactory();
+		Map<String, RouteAction> actions = new HashMap<String, RouteAction>();
+		for(Method method: clazz.getDeclaredMethods()) {
+			String name = method.getName();
+			if(!method.isAnnotationPresent(Action.class))
+				continue;
+			int index = controller._asActionIndex(name);
+			if(index < 0)
+				continue;
+			try {
+				actions.put(name, new RouteAction(name, index, interceptorFactory.find(controller._asActionInterceptors(name)),
+						controller._asActionParameters(index)));
+			}
+			catch(RuntimeException e) {
+				throw new RuntimeException("@Action "+clazz.getName()+"."+name+"() cannot be intercepted: "+e.getMessage(), e);
+			}
+		}
+		
+		Route route = router.add(pattern, new Route(controller, actions, 
+				controller._asConverters(application.getConverterFactory()), application.getConfig().getControllerPoolSize()));
+		if(route != null) {
+			Class<?> c = route.clazz;
 			throw new RuntimeException("@Controller "+c.getName()+" already registered on URL pattern "+url+"; review @Controller "+clazz.getName());
 		}
 		
-		//
-		// Weight is based on the length of the pattern... A more specific @Controller may handle the request
-		//		
-		List<URLPattern> sorted = new LinkedList<URLPattern>();
-		if(urls.length > 0) {
-			for(URLPattern p: urls) {
-				sorted.add(p);
+		if(log.isTraceEnabled())
+			log.trace("@Controller {} registered", clazz.getName());
+	}
+	
+	/**
+	 * @Controller bound to a URL pattern and its actions. Provides the instances handling the requests according to
+	 * the @Controller scope
+	 */
+	static class Route {
+		private final Class<?> clazz;
+		private final Scope scope;
+		private final OController prototype;
+		private final RouteAction actions[];
+		private final RouteAction main;
+		private final BlockingQueue<OController> pool;
+		private final Converter<?> converters[];
+		
+		public Route(OController prototype, Map<String, RouteAction> actions, Converter<?> converters[], int poolSize) {
+			this.clazz = prototype.getClass();
+			this.scope = clazz.getAnnotation(Controller.class).scope();
+			this.prototype = prototype;
+			this.actions = actions.values().toArray(new RouteAction[actions.size()]);
+			this.main = actions.get("main");
+			this.converters = converters;
+			this.pool = scope == Scope.POOLED && poolSize > 0 ? new ArrayBlockingQueue<OController>(poolSize) : null;
+		}
+		
+		/**
+		 * @return action named by the region of the URL, or main() if the region is empty or names no action;
+		 * the actions of a @Controller are few, so they are compared in turn rather than hashed
+		 */
+		public RouteAction action(String url, int offset, int length) {
+			if(length > 0) {
+				for(RouteAction action: actions) {
+					if(action.name.length() == length && url.regionMatches(offset, action.name, 0, length))
+						return action;
+				}
 			}
+			return main;
 		}
-		sorted.add(pattern);
 		
-		Collections.sort(sorted, new Comparator<URLPattern>() {
-			public int compare(URLPattern p1, URLPattern p2) {
-				String url1 = p1.toString();
-				String url2 = p2.toString();
-				return url1.length() < url2.length() ? 1 : (url1.length() == url2.length() ? 0 : -1);
+		public OController acquire() {
+			if(scope == Scope.SINGLETON)
+				return prototype;
+			if(pool != null) {
+				OController controller = pool.poll();
+				if(controller != null)
+					return controller;
 			}
-		});
-
-		urls = new URLPattern[sorted.size()];
-		for(int i=0; i < sorted.size(); i++) {
-			urls[i] = sorted.get(i);
-			c = map.get(urls[i]);
-			if(c != null)
-				map.put(urls[i], c);
+			return prototype._asNew();
 		}
-		map.put(pattern, clazz);
 		
-		if(log.isTraceEnabled())
-			log.trace("@Controller {} registered", clazz.getName());
+		public void release(OController controller) {
+			if(pool == null)
+				return;
+			// the prototype of a POOLED @Controller never handles requests: its fields hold their initial values
+			controller._asReset(prototype);
+			pool.offer(controller);
+		}
+	}
+	
+	/**
+	 * @Action of a route: its index for the generated dispatch and its chain of interceptors
+	 */
+	private static class RouteAction {
+		private final String name;
+		private final int index;
+		private final InterceptorBean interceptors[];
+		private final boolean parameters[];
+		private final boolean deferredParameters[];
+		
+		public RouteAction(String name, int index, InterceptorBean interceptors[], boolean parameters[]) {
+			this.name = name;
+			this.index = index;
+			this.interceptors = interceptors;
+			this.parameters = parameters;
+			// the @Parameters not accessed by the action are only bound if rendered
+			if(parameters != null) {
+				deferredParameters = new boolean[parameters.length];
+				for(int i=0; i < parameters.length; i++)
+					deferredParameters[i] = !parameters[i];
+			}
+			else {
+				deferredParameters = null;
+			}
+		}
 	}
-}
\ No newline at end of file
+}
@@ -15,7 +15,6 @@
  */
 package io.syncframework.core;
 
-import java.util.List;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -25,7 +24,6 @@ import io.syncframework.api.ApplicationContext;
 import io.syncframework.api.Converter;
 import io.syncframework.api.CookieContext;
 import io.syncframework.api.ErrorContext;
-import io.syncframework.api.FileUpload;
 import io.syncframework.api.MessageContext;
 import io.syncframework.api.RequestContext;
 import io.syncframework.api.Result;
@@ -42,6 +40,7 @@ public class InterceptorBean implements ResponseBean {
 	private static Logger log = LoggerFactory.getLogger(InterceptorBean.class);
 	private Application application;
 	private OInterceptor interceptor;
+	private Converter<?> converters[];
 	private CookieContext cookieContext;
 	private ErrorContext errorContext;
 	private MessageContext messageContext;
@@ -55,6 +54,7 @@ public class InterceptorBean implements ResponseBean {
 	public InterceptorBean(Application application, OInterceptor interceptor) {
 		this.application = application;
 		this.interceptor = interceptor;
+		this.converters = interceptor._asConverters(application.getConverterFactory());
 	}
 
 	public Result after(Request request, Response response) {
@@ -67,92 +67,21 @@ public class InterceptorBean implements ResponseBean {
 		cookieContext = request.getCookieContext();
 		requestContext = request.getRequestContext();
 		sessionContext = request.getSession().getSessionContext();
-		messageContext = new MessageContextImpl(application.getMessageFactory(), application.getContext(), sessionContext);
+		messageContext = null;
 
 		/*
 		 *  INVOKE SPECIALS
 		 */
-		interceptor._asApplicationContext(application.getContext());
-		interceptor._asCookieContext(cookieContext);
-		interceptor._asErrorContext(errorContext);
-		interceptor._asMessageContext(messageContext);
-		interceptor._asRequestContext(requestContext);
-		interceptor._asSessionContext(sessionContext);
+		interceptor._asInject(this);
 
 		/*
 		 *  INVOKE SETTERS
 		 */
-		Set<String> keys = request.getParameters().keySet();
-		if(keys != null) {
-			for(String name: keys) {
-				List<String> values = request.getParameters().get(name);
-				if(values.size() == 0) {
-					continue;
-				}
-
-				if(log.isTraceEnabled())
-					log.trace("binding ... @Parameter "+this+"."+name);
-
-				Class<?> type = interceptor._asParameters().get(name);
-				if(type == null) {
-					if(log.isDebugEnabled()) {
-						log.debug("@Parameter "+name+" not declared by @Controller "+this+
-								"; requested url: "+request.getUri()+"");
-					}
-					continue;
-				}
-				
-				// check for defined converter
-				Converter<?> converter = application.getConverterFactory().getConverter(type);
-				Class<?> converterClazz = interceptor._asParameterConverter(name);
-				if(converterClazz != null) {
-					try { converter = (Converter<?>)converterClazz.newInstance(); }
-					catch(Exception e) {
-						throw new InterceptorBeanException(e, this);
-					}
-				}
-				if(converter == null) {
-					log.error("{}: @Converter not found to handle type: {}", application, type.getName());
-					StringBuilder sb = new StringBuilder();
-					sb.append(application).append(" failed to locate @Converter to deal with @Parameter ").append(this).append(".").append(name);
-					String errmsg = sb.toString();
-					log.error(errmsg);
-					throw new RuntimeException(errmsg);
-				}
-				try {
-					Object value = converter.convert(values.toArray(new String[0]));
-					interceptor._asParameter(name, value);
-				}
-				catch(Exception e) {
-					throw new InterceptorBeanException(e, this);
-				}
-			}
+		try {
+			interceptor._asBind(request.getParameters(), request.getFiles(), converters);
 		}
-		keys = request.getFiles().keySet();
-		if(keys != null) {
-			for(String name: keys) {
-				FileUpload file = request.getFiles().get(name);
-				Class<?> type = interceptor._asParameters().get(name);
-				if(type == null) {
-					if(log.isDebugEnabled()) {
-						log.debug("@Parameter "+name+" not declared by @Controller "+this+
-								"; requested url: "+request.getUri());
-					}
-					continue;
-				}
-				if(type != FileUpload.class) {
-					if(log.isDebugEnabled())
-						log.debug("@Parameter "+name+" not declared as FileUpload at @Controller "+this+
-								"; requested url: "+request.getUri());
-					continue;
-				}
-				try {
-					interceptor._asParameter(name, file);
-				}
-				catch(Exception e) {
-					throw new InterceptorBeanException(e, this);
-				}
-			}
+		catch(Exception e) {
+			throw new InterceptorBeanException(e, this);
 		}
 
 		if(log.isTraceEnabled())
@@ -179,92 +108,21 @@ public class InterceptorBean implements ResponseBean {
 		cookieContext = request.getCookieContext();
 		requestContext = request.getRequestContext();
 		sessionContext = request.getSession().getSessionContext();
-		messageContext = new MessageContextImpl(application.getMessageFactory(), application.getContext(), sessionContext);
+		messageContext = null;
 
 		/*
 		 *  INVOKE SPECIALS
 		 */
-		interceptor._asApplicationContext(application.getContext());
-		interceptor._asCookieContext(cookieContext);
-		interceptor._asErrorContext(errorContext);
-		interceptor._asMessageContext(messageContext);
-		interceptor._asRequestContext(requestContext);
-		interceptor._asSessionContext(sessionContext);
+		interceptor._asInject(this);
 
 		/*
 		 *  INVOKE SETTERS
 		 */
-		Set<String> keys = request.getParameters().keySet();
-		if(keys != null) {
-			for(String name: keys) {
-				List<String> values = request.getParameters().get(name);
-				if(values.size() == 0) {
-					continue;
-				}
-
-				if(log.isTraceEnabled())
-					log.trace("binding ... @Parameter "+this+"."+name);
-
-				Class<?> type = interceptor._asParameters().get(name);
-				if(type == null) {
-					if(log.isDebugEnabled()) {
-						log.debug("@Parameter "+name+" not declared by @Controller "+this+
-								"; requested url: "+request.getUri()+"");
-					}
-					continue;
-				}
-				
-				// check for defined converter
-				Converter<?> converter = application.getConverterFactory().getConverter(type);
-				Class<?> converterClazz = interceptor._asParameterConverter(name);
-				if(converterClazz != null) {
-					try { converter = (Converter<?>)converterClazz.newInstance(); }
-					catch(Exception e) {
-						throw new InterceptorBeanException(e, this);
-					}
-				}
-				if(converter == null) {
-					log.error("{}: @Converter not found to handle type: {}", application, type.getName());
-					StringBuilder sb = new StringBuilder();
-					sb.append(application).append(" failed to locate @Converter to deal with @Parameter ").append(this).append(".").append(name);
-					String errmsg = sb.toString();
-					log.error(errmsg);
-					throw new RuntimeException(errmsg);
-				}
-				try {
-					Object value = converter.convert(values.toArray(new String[0]));
-					interceptor._asParameter(name, value);
-				}
-				catch(Exception e) {
-					throw new InterceptorBeanException(e, this);
-				}
-			}
+		try {
+			interceptor._asBind(request.getParameters(), request.getFiles(), converters);
 		}
-		keys = request.getFiles().keySet();
-		if(keys != null) {
-			for(String name: keys) {
-				FileUpload file = request.getFiles().get(name);
-				Class<?> type = interceptor._asParameters().get(name);
-				if(type == null) {
-					if(log.isDebugEnabled()) {
-						log.debug("@Parameter "+name+" not declared by @Controller "+this+
-								"; requested url: "+request.getUri());
-					}
-					continue;
-				}
-				if(type != FileUpload.class) {
-					if(log.isDebugEnabled())
-						log.debug("@Parameter "+name+" not declared as FileUpload at @Controller "+this+
-								"; requested url: "+request.getUri());
-					continue;
-				}
-				try {
-					interceptor._asParameter(name, file);
-				}
-				catch(Exception e) {
-					throw new InterceptorBeanException(e, this);
-				}
-			}
+		catch(Exception e) {
+			throw new InterceptorBeanException(e, this);
 		}
 
 		if(log.isTraceEnabled())
@@ -315,7 +173,12 @@ public class InterceptorBean implements ResponseBean {
 		this.errorContext = errorContext;
 	}
 
+	/**
+	 * @return messages of the request, created on the first call
+	 */
 	public MessageContext getMessageContext() {
+		if(messageContext == null && sessionContext != null)
+			messageContext = new MessageContextImpl(application.getMessageFactory(), application.getContext(), sessionContext);
 		return messageContext;
 	}
 
@@ -15,6 +15,8 @@
  */
 package io.syncframework.core;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -25,6 +27,7 @@ import io.syncframework.optimizer.OInterceptor;
  * @author dfroz
  */
 public class InterceptorFactory {
+	private static final InterceptorBean EMPTY[] = new InterceptorBean[0];
 	private Application application;
 	private Map<Class<?>,InterceptorBean> map = new ConcurrentHashMap<Class<?>,InterceptorBean>();
 
@@ -32,30 +35,27 @@ public class InterceptorFactory {
 		this.application = application;
 	}
 
+	/**
+	 * Resolves the chain of interceptors declared by @Action(interceptedBy)
+	 * @return interceptors in the declared order; empty if there is none
+	 */
 	public InterceptorBean[] find(Class<?> classes[]) {
-		if(classes == null)
-			return null;
+		if(classes == null || classes.length == 0)
+			return EMPTY;
 		
-		int total = 0;		
+		List<InterceptorBean> interceptors = new ArrayList<InterceptorBean>(classes.length);
 		for(int i=0; i < classes.length; i++) {
-			// if(classes[i].equals(Object.class))
-			//	continue;
-			if(map.containsKey(classes[i]))
-				total++;
-		}
-		if(total == 0) {
-			return null;
-		}
-		
-		int j=0;
-		InterceptorBean interceptors[] = new InterceptorBean[total];
-		for(int i=0; i < classes.length; i++) {
-			// if(classes[i].equals(Object.class))
-			//	continue;
+			// @Action() uses java.lang.Object as default Interceptor
+			if(classes[i] == Object.class)
+				continue;
 			InterceptorBean interceptor = map.get(classes[i]);
-			interceptors[j++] = interceptor;
+			if(interceptor == null)
+				throw new RuntimeException("@Interceptor "+classes[i].getName()+" not registered by "+application);
+			interceptors.add(interceptor);
 		}
-		return interceptors;
+		if(interceptors.isEmpty())
+			return EMPTY;
+		return interceptors.toArray(new InterceptorBean[interceptors.size()]);
 	}
 
 	public void register(Class<?> clazz) throws Exception {
@@ -38,7 +38,7 @@ public class Response implements Recyclable {
 	private Code code;
 	private File file;
 	private final Map<String, String> headers = new ConcurrentHashMap<String, String>();
-	private final OutputStream outputStream = new ByteArrayOutputStream(8 * 1024);
+	private OutputStream outputStream;
 	private Session session;
 	
 	public Response() {
@@ -81,16 +81,30 @@ public class Response implements Recyclable {
 		this.session = session;
 	}
 
+	/**
+	 * @return stream receiving the response body; a ByteArrayOutputStream unless another stream has been set
+	 */
 	public OutputStream getOutputStream() {
+		if(outputStream == null)
+			outputStream = new ByteArrayOutputStream(8 * 1024);
 		return outputStream;
 	}
 	
+	/**
+	 * Sets the stream receiving the response body, such as one writing straight into the network buffer.
+	 * The stream remains owned by the caller; recycle() simply drops it.
+	 */
+	public void setOutputStream(OutputStream outputStream) {
+		this.outputStream = outputStream;
+	}
+	
 	@Override
 	public void recycle() {
 		application = null;
+		code = Code.OK;
 		file = null;
 		session = null;
 		headers.clear();
-		((ByteArrayOutputStream)outputStream).reset();
+		outputStream = null;
 	}
 }
\ No newline at end of file
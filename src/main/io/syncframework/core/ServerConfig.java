@@ -27,12 +27,75 @@ public class ServerConfig extends Config {
 	private String listenAddress;
 	private Integer listenPort;
 	private Boolean trustedProxyMode;
+	private Boolean keepAlive;
+	private Integer keepAliveTimeout;
+	private Integer keepAliveMaxRequests;
+	private String transport;
+	private Integer bossThreads;
+	private Integer workerThreads;
+	private Boolean reusePort;
+	private Integer acceptors;
+	private Boolean tcpNoDelay;
+	private Integer backlog;
+	private Integer sendBufferSize;
+	private Integer receiveBufferSize;
+	private String allocator;
+	private String dispatchMode;
+	private Integer dispatchPoolSize;
+	private Integer dispatchQueueSize;
+	private Boolean http2;
+	private Integer http2MaxConcurrentStreams;
+	private Integer http2InitialWindowSize;
+	private Integer http2MaxFrameSize;
+	private Integer http2MaxHeaderListSize;
+	private Integer http2MaxContentLength;
+	private Boolean staticCache;
+	private Long staticCacheMemorySize;
+	private Long staticCacheFileSize;
+	private Integer staticCacheOpenFiles;
+	private Boolean compression;
+	private Integer compressionLevel;
+	private Integer compressionMinSize;
+	private String compressionTypes;
+	private Integer streamingBufferSize;
 	
 	public void load(InputStream is) throws IOException {
 		super.load(is);
 		listenAddress = getString("listen.address");
 		listenPort = getInt("listen.port", 8080);
 		trustedProxyMode = getBoolean("trusted.proxy.mode", false);
+		keepAlive = getBoolean("keepalive.enabled", true);
+		keepAliveTimeout = getInt("keepalive.timeout", 60);
+		keepAliveMaxRequests = getInt("keepalive.max.requests", 100);
+		transport = getString("transport", "auto");
+		bossThreads = getInt("boss.threads", 1);
+		workerThreads = getInt("worker.threads", 0);
+		reusePort = getBoolean("socket.reuseport", false);
+		acceptors = getInt("socket.acceptors", 1);
+		tcpNoDelay = getBoolean("socket.tcp.nodelay", true);
+		backlog = getInt("socket.backlog", 1024);
+		sendBufferSize = getInt("socket.send.buffer", 0);
+		receiveBufferSize = getInt("socket.receive.buffer", 0);
+		allocator = getString("allocator", "pooled");
+		dispatchMode = getString("dispatch.mode", "virtual");
+		dispatchPoolSize = getInt("dispatch.pool.size", 200);
+		dispatchQueueSize = getInt("dispatch.queue.size", 1024);
+		http2 = getBoolean("http2.enabled", true);
+		http2MaxConcurrentStreams = getInt("http2.max.concurrent.streams", 100);
+		http2InitialWindowSize = getInt("http2.initial.window.size", 65535);
+		http2MaxFrameSize = getInt("http2.max.frame.size", 16384);
+		http2MaxHeaderListSize = getInt("http2.max.header.list.size", 8192);
+		http2MaxContentLength = getInt("http2.max.content.length", 10485760);
+		staticCache = getBoolean("static.cache.enabled", true);
+		staticCacheMemorySize = getLong("static.cache.memory.size", 67108864);
+		staticCacheFileSize = getLong("static.cache.file.size", 65536);
+		staticCacheOpenFiles = getInt("static.cache.open.files", 256);
+		compression = getBoolean("compression.enabled", true);
+		compressionLevel = getInt("compression.level", 6);
+		compressionMinSize = getInt("compression.min.size", 1024);
+		compressionTypes = getString("compression.types", "text/html,text/plain,text/css,text/javascript,"
+				+ "application/javascript,application/json,application/xml,image/svg+xml");
+		streamingBufferSize = getInt("streaming.buffer.size", 8192);
 	}
 
 	public String getListenAddress() {
@@ -58,4 +121,313 @@ public class ServerConfig extends Config {
 	public void setTrustedProxyMode(Boolean trustedProxyMode) {
 		this.trustedProxyMode = trustedProxyMode;
 	}
+
+	public Boolean getKeepAlive() {
+		return keepAlive;
+	}
+
+	public void setKeepAlive(Boolean keepAlive) {
+		this.keepAlive = keepAlive;
+	}
+
+	/**
+	 * @return seconds an idle persistent connection is kept open; 0 disables the idle timeout
+	 */
+	public Integer getKeepAliveTimeout() {
+		return keepAliveTimeout;
+	}
+
+	public void setKeepAliveTimeout(Integer keepAliveTimeout) {
+		this.keepAliveTimeout = keepAliveTimeout;
+	}
+
+	/**
+	 * @return maximum number of requests served by a single connection; 0 means unlimited
+	 */
+	public Integer getKeepAliveMaxRequests() {
+		return keepAliveMaxRequests;
+	}
+
+	public void setKeepAliveMaxRequests(Integer keepAliveMaxRequests) {
+		this.keepAliveMaxRequests = keepAliveMaxRequests;
+	}
+
+	/**
+	 * @return event loop transport: auto, epoll or nio
+	 */
+	public String getTransport() {
+		return transport;
+	}
+
+	public void setTransport(String transport) {
+		this.transport = transport;
+	}
+
+	public Integer getBossThreads() {
+		return bossThreads;
+	}
+
+	public void setBossThreads(Integer bossThreads) {
+		this.bossThreads = bossThreads;
+	}
+
+	/**
+	 * @return number of worker event loop threads; 0 lets Netty pick twice the number of cores
+	 */
+	public Integer getWorkerThreads() {
+		return workerThreads;
+	}
+
+	public void setWorkerThreads(Integer workerThreads) {
+		this.workerThreads = workerThreads;
+	}
+
+	public Boolean getReusePort() {
+		return reusePort;
+	}
+
+	public void setReusePort(Boolean reusePort) {
+		this.reusePort = reusePort;
+	}
+
+	/**
+	 * @return number of listening channels bound to the same port; only honoured with SO_REUSEPORT on epoll,
+	 * in which case the boss group has at least as many threads
+	 */
+	public Integer getAcceptors() {
+		return acceptors;
+	}
+
+	public void setAcceptors(Integer acceptors) {
+		this.acceptors = acceptors;
+	}
+
+	public Boolean getTcpNoDelay() {
+		return tcpNoDelay;
+	}
+
+	public void setTcpNoDelay(Boolean tcpNoDelay) {
+		this.tcpNoDelay = tcpNoDelay;
+	}
+
+	public Integer getBacklog() {
+		return backlog;
+	}
+
+	public void setBacklog(Integer backlog) {
+		this.backlog = backlog;
+	}
+
+	/**
+	 * @return SO_SNDBUF in bytes; 0 keeps the operating system default
+	 */
+	public Integer getSendBufferSize() {
+		return sendBufferSize;
+	}
+
+	public void setSendBufferSize(Integer sendBufferSize) {
+		this.sendBufferSize = sendBufferSize;
+	}
+
+	/**
+	 * @return SO_RCVBUF in bytes; 0 keeps the operating system default
+	 */
+	public Integer getReceiveBufferSize() {
+		return receiveBufferSize;
+	}
+
+	public void setReceiveBufferSize(Integer receiveBufferSize) {
+		this.receiveBufferSize = receiveBufferSize;
+	}
+
+	/**
+	 * @return ByteBuf allocator: pooled or unpooled
+	 */
+	public String getAllocator() {
+		return allocator;
+	}
+
+	public void setAllocator(String allocator) {
+		this.allocator = allocator;
+	}
+
+	/**
+	 * @return where dynamic requests are executed: loop, pool or virtual
+	 */
+	public String getDispatchMode() {
+		return dispatchMode;
+	}
+
+	public void setDispatchMode(String dispatchMode) {
+		this.dispatchMode = dispatchMode;
+	}
+
+	public Integer getDispatchPoolSize() {
+		return dispatchPoolSize;
+	}
+
+	public void setDispatchPoolSize(Integer dispatchPoolSize) {
+		this.dispatchPoolSize = dispatchPoolSize;
+	}
+
+	public Integer getDispatchQueueSize() {
+		return dispatchQueueSize;
+	}
+
+	public void setDispatchQueueSize(Integer dispatchQueueSize) {
+		this.dispatchQueueSize = dispatchQueueSize;
+	}
+
+	/**
+	 * @return true if cleartext HTTP/2 is accepted, through the h2c upgrade or with prior knowledge
+	 */
+	public Boolean getHttp2() {
+		return http2;
+	}
+
+	public void setHttp2(Boolean http2) {
+		this.http2 = http2;
+	}
+
+	public Integer getHttp2MaxConcurrentStreams() {
+		return http2MaxConcurrentStreams;
+	}
+
+	public void setHttp2MaxConcurrentStreams(Integer http2MaxConcurrentStreams) {
+		this.http2MaxConcurrentStreams = http2MaxConcurrentStreams;
+	}
+
+	/**
+	 * @return flow-control window, in bytes, granted to each stream
+	 */
+	public Integer getHttp2InitialWindowSize() {
+		return http2InitialWindowSize;
+	}
+
+	public void setHttp2InitialWindowSize(Integer http2InitialWindowSize) {
+		this.http2InitialWindowSize = http2InitialWindowSize;
+	}
+
+	public Integer getHttp2MaxFrameSize() {
+		return http2MaxFrameSize;
+	}
+
+	public void setHttp2MaxFrameSize(Integer http2MaxFrameSize) {
+		this.http2MaxFrameSize = http2MaxFrameSize;
+	}
+
+	public Integer getHttp2MaxHeaderListSize() {
+		return http2MaxHeaderListSize;
+	}
+
+	public void setHttp2MaxHeaderListSize(Integer http2MaxHeaderListSize) {
+		this.http2MaxHeaderListSize = http2MaxHeaderListSize;
+	}
+
+	/**
+	 * @return maximum size, in bytes, of a request received over a HTTP/2 stream or of an h2c upgrade request
+	 */
+	public Integer getHttp2MaxContentLength() {
+		return http2MaxContentLength;
+	}
+
+	public void setHttp2MaxContentLength(Integer http2MaxContentLength) {
+		this.http2MaxContentLength = http2MaxContentLength;
+	}
+
+	/**
+	 * @return true if the files under public/ are cached by the StaticFileCache
+	 */
+	public Boolean getStaticCache() {
+		return staticCache;
+	}
+
+	public void setStaticCache(Boolean staticCache) {
+		this.staticCache = staticCache;
+	}
+
+	/**
+	 * @return maximum bytes of file content held in memory by each application
+	 */
+	public Long getStaticCacheMemorySize() {
+		return staticCacheMemorySize;
+	}
+
+	public void setStaticCacheMemorySize(Long staticCacheMemorySize) {
+		this.staticCacheMemorySize = staticCacheMemorySize;
+	}
+
+	/**
+	 * @return largest file, in bytes, held in memory; larger files are cached as open channels
+	 */
+	public Long getStaticCacheFileSize() {
+		return staticCacheFileSize;
+	}
+
+	public void setStaticCacheFileSize(Long staticCacheFileSize) {
+		this.staticCacheFileSize = staticCacheFileSize;
+	}
+
+	public Integer getStaticCacheOpenFiles() {
+		return staticCacheOpenFiles;
+	}
+
+	public void setStaticCacheOpenFiles(Integer staticCacheOpenFiles) {
+		this.staticCacheOpenFiles = staticCacheOpenFiles;
+	}
+
+	/**
+	 * @return true if dynamic responses are compressed with gzip or deflate when accepted by the client
+	 */
+	public Boolean getCompression() {
+		return compression;
+	}
+
+	public void setCompression(Boolean compression) {
+		this.compression = compression;
+	}
+
+	/**
+	 * @return deflate level, from 1 (fastest) to 9 (best compression)
+	 */
+	public Integer getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	public void setCompressionLevel(Integer compressionLevel) {
+		this.compressionLevel = compressionLevel;
+	}
+
+	/**
+	 * @return smallest response body, in bytes, worth compressing
+	 */
+	public Integer getCompressionMinSize() {
+		return compressionMinSize;
+	}
+
+	public void setCompressionMinSize(Integer compressionMinSize) {
+		this.compressionMinSize = compressionMinSize;
+	}
+
+	/**
+	 * @return comma separated list of the content types compressed
+	 */
+	public String getCompressionTypes() {
+		return compressionTypes;
+	}
+
+	public void setCompressionTypes(String compressionTypes) {
+		this.compressionTypes = compressionTypes;
+	}
+
+	/**
+	 * @return bytes of rendered output buffered before each chunk is written, for streamed RenderResults
+	 */
+	public Integer getStreamingBufferSize() {
+		return streamingBufferSize;
+	}
+
+	public void setStreamingBufferSize(Integer streamingBufferSize) {
+		this.streamingBufferSize = streamingBufferSize;
+	}
 }
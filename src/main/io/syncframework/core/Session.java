@@ -35,23 +35,27 @@ public class Session implements Serializable {
 	/**
 	 * time when the last access was done (in milliseconds)
 	 */
-	private long accessTime; // in milliseconds
+	private volatile long accessTime; // in milliseconds
 	/**
 	 * time when session was created (in milliseconds)
 	 */
 	private long creationTime;
-	private ErrorContext errorContext = new ErrorContext();
+	private ErrorContext errorContext;
 	private String id;
 	private String idKey;
 	/**
 	 * identifies if recent created/reused session
 	 */
 	private boolean recent;
-	private SessionContext sessionContext = new SessionContext();
+	private SessionContext sessionContext;
 	/**
 	 * security measurement for anti-spoofing
 	 */
 	private String remoteAddress;
+	/**
+	 * entry of the session on the SessionExpirer wheel
+	 */
+	private transient volatile SessionExpirer.Entry expiration;
 	
 	// application.properties
 	// session.expirationtime = 10
@@ -60,6 +64,11 @@ public class Session implements Serializable {
 		this(null, null);
 	}
 	public Session(String id, String idKey) {
+		this(id, idKey, new SessionContext(), new ErrorContext());
+	}
+	protected Session(String id, String idKey, SessionContext sessionContext, ErrorContext errorContext) {
+		this.sessionContext = sessionContext;
+		this.errorContext = errorContext;
 		this.accessTime = this.creationTime = System.currentTimeMillis();
 		this.id = id;
 		this.idKey = idKey;
@@ -114,6 +123,12 @@ public class Session implements Serializable {
 	public void setSessionContext(SessionContext sessionContext) {
 		this.sessionContext = sessionContext;
 	}
+	SessionExpirer.Entry getExpiration() {
+		return expiration;
+	}
+	void setExpiration(SessionExpirer.Entry expiration) {
+		this.expiration = expiration;
+	}
 	public String toString() {
 		return "Session-"+id;
 	}
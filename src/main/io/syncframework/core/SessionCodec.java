@@ -0,0 +1,318 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import io.syncframework.api.ErrorContext;
+import io.syncframework.api.SessionContext;
+
+/**
+ * Compact binary form of the sessions written by the SessionLog.
+ *
+ * The id, remote address and times of the session are followed by the entries of its contexts. Values are tagged
+ * by type: strings, numbers, booleans, characters, dates, locales, byte arrays and lists and maps of them are
+ * supported. Entries holding any other type are not written, and thus not restored, as classes of the application
+ * cannot be resolved when the session is read back.
+ *
+ * @author dfroz
+ */
+public class SessionCodec {
+	private static final byte VERSION = 1;
+	private static final byte END = 0;
+	private static final byte ENTRY = 1;
+	private static final byte STRING = 1;
+	private static final byte INTEGER = 2;
+	private static final byte LONG = 3;
+	private static final byte DOUBLE = 4;
+	private static final byte FLOAT = 5;
+	private static final byte SHORT = 6;
+	private static final byte BYTE = 7;
+	private static final byte BOOLEAN = 8;
+	private static final byte CHARACTER = 9;
+	private static final byte BYTES = 10;
+	private static final byte DATE = 11;
+	private static final byte LOCALE = 12;
+	private static final byte BIGINTEGER = 13;
+	private static final byte BIGDECIMAL = 14;
+	private static final byte LIST = 15;
+	private static final byte MAP = 16;
+	private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+	private final DataOutputStream out = new DataOutputStream(bytes);
+	
+	/**
+	 * @return the session encoded; the codec is reused so it shall not be shared by threads
+	 */
+	public byte[] encode(Session session) throws IOException {
+		bytes.reset();
+		out.writeByte(VERSION);
+		out.writeUTF(session.getId());
+		out.writeLong(session.getCreationTime());
+		out.writeLong(session.getAccessTime());
+		out.writeBoolean(session.getRemoteAddress() != null);
+		if(session.getRemoteAddress() != null)
+			out.writeUTF(session.getRemoteAddress());
+		for(Map.Entry<String,Object> e: session.getSessionContext().entrySet()) {
+			if(!isSupported(e.getValue()))
+				continue;
+			out.writeByte(ENTRY);
+			writeString(e.getKey());
+			writeValue(e.getValue());
+		}
+		out.writeByte(END);
+		for(Map.Entry<String,String> e: session.getErrorContext().entrySet()) {
+			out.writeByte(ENTRY);
+			writeString(e.getKey());
+			writeString(e.getValue());
+		}
+		out.writeByte(END);
+		out.flush();
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * @return the session read from the input
+	 */
+	public static Session decode(DataInput in) throws IOException {
+		byte version = in.readByte();
+		if(version != VERSION)
+			throw new IOException("unsupported session version "+version);
+		Session session = new Session(in.readUTF(), null);
+		SessionContext sessionContext = session.getSessionContext();
+		ErrorContext errorContext = session.getErrorContext();
+		session.setCreationTime(in.readLong());
+		session.setAccessTime(in.readLong());
+		if(in.readBoolean())
+			session.setRemoteAddress(in.readUTF());
+		while(in.readByte() == ENTRY) {
+			String key = readString(in);
+			sessionContext.put(key, readValue(in));
+		}
+		while(in.readByte() == ENTRY) {
+			String key = readString(in);
+			errorContext.put(key, readString(in));
+		}
+		session.setRecent(false);
+		return session;
+	}
+	
+	/**
+	 * @return id of the session read from the input, skipping the rest of it
+	 */
+	public static String decodeId(DataInput in) throws IOException {
+		byte version = in.readByte();
+		if(version != VERSION)
+			throw new IOException("unsupported session version "+version);
+		return in.readUTF();
+	}
+	
+	/**
+	 * @return access time of the session read from the input, skipping the rest of it
+	 */
+	public static long decodeAccessTime(DataInput in) throws IOException {
+		decodeId(in);
+		in.readLong();
+		return in.readLong();
+	}
+	
+	private static boolean isSupported(Object value) {
+		if(value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Double
+				|| value instanceof Float || value instanceof Short || value instanceof Byte || value instanceof Boolean
+				|| value instanceof Character || value instanceof byte[] || value instanceof Date
+				|| value instanceof Locale || value instanceof BigInteger || value instanceof BigDecimal)
+			return true;
+		if(value instanceof List) {
+			for(Object o: (List<?>)value) {
+				if(!isSupported(o))
+					return false;
+			}
+			return true;
+		}
+		if(value instanceof Map) {
+			for(Map.Entry<?,?> e: ((Map<?,?>)value).entrySet()) {
+				if(!isSupported(e.getKey()) || !isSupported(e.getValue()))
+					return false;
+			}
+			return true;
+		}
+		return false;
+	}
+	
+	private void writeValue(Object value) throws IOException {
+		if(value instanceof String) {
+			out.writeByte(STRING);
+			writeString((String)value);
+		}
+		else if(value instanceof Integer) {
+			out.writeByte(INTEGER);
+			out.writeInt((Integer)value);
+		}
+		else if(value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long)value);
+		}
+		else if(value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double)value);
+		}
+		else if(value instanceof Float) {
+			out.writeByte(FLOAT);
+			out.writeFloat((Float)value);
+		}
+		else if(value instanceof Short) {
+			out.writeByte(SHORT);
+			out.writeShort((Short)value);
+		}
+		else if(value instanceof Byte) {
+			out.writeByte(BYTE);
+			out.writeByte((Byte)value);
+		}
+		else if(value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean)value);
+		}
+		else if(value instanceof Character) {
+			out.writeByte(CHARACTER);
+			out.writeChar((Character)value);
+		}
+		else if(value instanceof byte[]) {
+			byte b[] = (byte[])value;
+			out.writeByte(BYTES);
+			out.writeInt(b.length);
+			out.write(b);
+		}
+		else if(value instanceof Date) {
+			out.writeByte(DATE);
+			out.writeLong(((Date)value).getTime());
+		}
+		else if(value instanceof Locale) {
+			out.writeByte(LOCALE);
+			writeString(((Locale)value).toLanguageTag());
+		}
+		else if(value instanceof BigInteger) {
+			byte b[] = ((BigInteger)value).toByteArray();
+			out.writeByte(BIGINTEGER);
+			out.writeInt(b.length);
+			out.write(b);
+		}
+		else if(value instanceof BigDecimal) {
+			out.writeByte(BIGDECIMAL);
+			writeString(value.toString());
+		}
+		else if(value instanceof List) {
+			List<?> list = (List<?>)value;
+			out.writeByte(LIST);
+			out.writeInt(list.size());
+			for(Object o: list)
+				writeValue(o);
+		}
+		else if(value instanceof Map) {
+			Map<?,?> map = (Map<?,?>)value;
+			out.writeByte(MAP);
+			out.writeInt(map.size());
+			for(Map.Entry<?,?> e: map.entrySet()) {
+				writeValue(e.getKey());
+				writeValue(e.getValue());
+			}
+		}
+		else {
+			throw new IllegalArgumentException("unsupported session value "+value.getClass().getName());
+		}
+	}
+	
+	private static Object readValue(DataInput in) throws IOException {
+		byte tag = in.readByte();
+		switch(tag) {
+		case STRING:
+			return readString(in);
+		case INTEGER:
+			return in.readInt();
+		case LONG:
+			return in.readLong();
+		case DOUBLE:
+			return in.readDouble();
+		case FLOAT:
+			return in.readFloat();
+		case SHORT:
+			return in.readShort();
+		case BYTE:
+			return in.readByte();
+		case BOOLEAN:
+			return in.readBoolean();
+		case CHARACTER:
+			return in.readChar();
+		case BYTES: {
+			byte b[] = new byte[in.readInt()];
+			in.readFully(b);
+			return b;
+		}
+		case DATE:
+			return new Date(in.readLong());
+		case LOCALE:
+			return Locale.forLanguageTag(readString(in));
+		case BIGINTEGER: {
+			byte b[] = new byte[in.readInt()];
+			in.readFully(b);
+			return new BigInteger(b);
+		}
+		case BIGDECIMAL:
+			return new BigDecimal(readString(in));
+		case LIST: {
+			int n = in.readInt();
+			List<Object> list = new ArrayList<Object>(n);
+			for(int i=0; i < n; i++)
+				list.add(readValue(in));
+			return list;
+		}
+		case MAP: {
+			int n = in.readInt();
+			Map<Object,Object> map = new HashMap<Object,Object>();
+			for(int i=0; i < n; i++)
+				map.put(readValue(in), readValue(in));
+			return map;
+		}
+		default:
+			throw new IOException("unknown session value tag "+tag);
+		}
+	}
+	
+	/**
+	 * UTF-8 bytes preceded by their length; not bound to the 64KB of writeUTF
+	 */
+	private void writeString(String s) throws IOException {
+		byte b[] = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+	
+	private static String readString(DataInput in) throws IOException {
+		byte b[] = new byte[in.readInt()];
+		in.readFully(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+}
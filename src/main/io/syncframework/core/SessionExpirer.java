@@ -0,0 +1,262 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.core;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.syncframework.util.StandardThread;
+
+/**
+ * Server wide scheduler of the session expiration, shared by the SessionFactories of all the applications.
+ *
+ * The sessions are kept in a hashed timing wheel of one second ticks: each tick visits a single bucket, holding the
+ * sessions due on that tick, so the cost is proportional to the sessions expiring instead of the sessions alive.
+ * Accesses do not reschedule the session; once due, a session accessed meanwhile is placed back on the wheel for
+ * its new deadline. Sessions leaving their store otherwise, such as evicted ones, are cancelled: their entry lets go
+ * of the session at once and is dropped from the wheel when next visited.
+ *
+ * The lag between the deadline and the actual expiration is reported every minute at DEBUG level and by the getters.
+ *
+ * @author dfroz
+ */
+public class SessionExpirer {
+	private static final Logger log = LoggerFactory.getLogger(SessionExpirer.class);
+	private static final long TICK = 1000L;
+	private static final int WHEEL_SIZE = 1024;
+	private static final int REPORT_TICKS = 60;
+	private static SessionExpirer instance;
+	private final Entry wheel[] = new Entry[WHEEL_SIZE];
+	private final ConcurrentLinkedQueue<Entry> pending = new ConcurrentLinkedQueue<Entry>();
+	private final long startTime = System.currentTimeMillis();
+	private volatile boolean running = true;
+	private Thread thread;
+	private long tick;
+	private volatile long scheduled;
+	private volatile long expired;
+	private volatile long totalLag;
+	private volatile long maxLag;
+	private long reportExpired;
+	private long reportLag;
+	private long reportMaxLag;
+	
+	/**
+	 * Sessions of a SessionFactory handed to the expirer
+	 */
+	public interface Store {
+		/**
+		 * @return time in milliseconds a session lives without being accessed
+		 */
+		public long getSessionExpire();
+		/**
+		 * Removes the expired session
+		 * @return false if the session was no longer part of the store
+		 */
+		public boolean expire(Session session);
+	}
+	
+	private SessionExpirer() {
+	}
+	
+	/**
+	 * @return the expirer, started on the first call
+	 */
+	public static synchronized SessionExpirer getInstance() {
+		if(instance == null) {
+			instance = new SessionExpirer();
+			instance.thread = new StandardThread(instance.new Wheel(), "session-expirer");
+			instance.thread.setDaemon(true);
+			instance.thread.start();
+		}
+		return instance;
+	}
+	
+	/**
+	 * Stops the expirer; the sessions scheduled are no longer expired
+	 */
+	public static synchronized void shutdown() {
+		if(instance == null)
+			return;
+		instance.running = false;
+		instance.thread.interrupt();
+		instance = null;
+	}
+	
+	/**
+	 * Schedules the session to be expired by the store once it is not accessed for store.getSessionExpire()
+	 */
+	public void schedule(Session session, Store store) {
+		Entry entry = new Entry(session, store);
+		session.setExpiration(entry);
+		pending.add(entry);
+	}
+	
+	/**
+	 * Cancels the expiration of the session, no longer part of its store, so the wheel does not hold it until its
+	 * deadline
+	 */
+	public static void cancel(Session session) {
+		Entry entry = session.getExpiration();
+		if(entry == null)
+			return;
+		session.setExpiration(null);
+		entry.cancel();
+	}
+	
+	/**
+	 * @return sessions on the wheel
+	 */
+	public long getScheduled() {
+		return scheduled;
+	}
+	
+	/**
+	 * @return sessions expired since the server has started
+	 */
+	public long getExpired() {
+		return expired;
+	}
+	
+	/**
+	 * @return average time in milliseconds between the deadline and the expiration of the sessions
+	 */
+	public long getAverageLag() {
+		long count = expired;
+		return count > 0 ? totalLag / count : 0;
+	}
+	
+	/**
+	 * @return highest time in milliseconds between the deadline and the expiration of a session
+	 */
+	public long getMaxLag() {
+		return maxLag;
+	}
+	
+	/**
+	 * places the entry on the bucket of the tick following its deadline; called by the wheel thread only
+	 */
+	private void place(Entry entry, long deadline, long now) {
+		long ticks = (deadline - now + TICK - 1) / TICK;
+		if(ticks < 1)
+			ticks = 1;
+		entry.rounds = (ticks - 1) / WHEEL_SIZE;
+		int bucket = (int)((tick + ticks) & (WHEEL_SIZE - 1));
+		entry.next = wheel[bucket];
+		wheel[bucket] = entry;
+	}
+	
+	private void advance(long now) {
+		Entry entry = null;
+		while((entry = pending.poll()) != null) {
+			Session session = entry.session;
+			Store store = entry.store;
+			if(session == null || store == null)
+				continue;
+			place(entry, session.getAccessTime() + store.getSessionExpire(), now);
+			scheduled++;
+		}
+		
+		int bucket = (int)(tick & (WHEEL_SIZE - 1));
+		entry = wheel[bucket];
+		wheel[bucket] = null;
+		while(entry != null) {
+			Entry next = entry.next;
+			Session session = entry.session;
+			Store store = entry.store;
+			if(session == null || store == null) {
+				// cancelled
+				scheduled--;
+			}
+			else if(entry.rounds > 0) {
+				entry.rounds--;
+				entry.next = wheel[bucket];
+				wheel[bucket] = entry;
+			}
+			else {
+				long deadline = session.getAccessTime() + store.getSessionExpire();
+				if(deadline > now) {
+					// accessed since scheduled
+					place(entry, deadline, now);
+				}
+				else {
+					scheduled--;
+					if(store.expire(session)) {
+						long lag = now - deadline;
+						expired++;
+						totalLag += lag;
+						if(lag > maxLag)
+							maxLag = lag;
+						reportExpired++;
+						reportLag += lag;
+						if(lag > reportMaxLag)
+							reportMaxLag = lag;
+						if(log.isTraceEnabled())
+							log.trace("{} has expired {}ms after its deadline", session, lag);
+					}
+				}
+			}
+			entry = next;
+		}
+		
+		if(tick % REPORT_TICKS == 0 && reportExpired > 0) {
+			if(log.isDebugEnabled()) {
+				log.debug("{} sessions expired in the last {}s; lag average {}ms, max {}ms; {} sessions scheduled", 
+						reportExpired, REPORT_TICKS * TICK / 1000, reportLag / reportExpired, reportMaxLag, scheduled);
+			}
+			reportExpired = reportLag = reportMaxLag = 0;
+		}
+	}
+	
+	private class Wheel implements Runnable {
+		public void run() {
+			while(running) {
+				long sleep = startTime + (tick + 1) * TICK - System.currentTimeMillis();
+				if(sleep > 0) {
+					try { Thread.sleep(sleep); } 
+					catch(InterruptedException ignore) { continue; }
+				}
+				tick++;
+				try {
+					advance(System.currentTimeMillis());
+				}
+				catch(Throwable t) {
+					log.error("failed to expire sessions", t);
+				}
+			}
+			if(log.isTraceEnabled())
+				log.trace("session expirer thread has stopped");
+		}
+	}
+	
+	static class Entry {
+		private volatile Session session;
+		private volatile Store store;
+		private long rounds;
+		private Entry next;
+		
+		public Entry(Session session, Store store) {
+			this.session = session;
+			this.store = store;
+		}
+		
+		public void cancel() {
+			session = null;
+			store = null;
+		}
+	}
+}
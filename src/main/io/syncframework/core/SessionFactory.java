@@ -22,6 +22,10 @@ package io.syncframework.core;
  */
 public interface SessionFactory {
 	public Session find(Request request);
-	public void start(ApplicationConfig config);
+	/**
+	 * Called once the request using the session has completed, so the changes it made are accounted
+	 */
+	public void complete(Session session);
+	public void start(ApplicationConfig config, SessionIdGenerator generator);
 	public void stop();
 }
@@ -36,7 +36,11 @@ public class SessionFactoryBogusImpl implements SessionFactory {
 		return bogus;
 	}
 
-	public void start(ApplicationConfig config) {
+	public void complete(Session session) {
+		// do nothing
+	}
+
+	public void start(ApplicationConfig config, SessionIdGenerator generator) {
 		// do nothing
 	}
 
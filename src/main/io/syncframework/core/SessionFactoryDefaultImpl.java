@@ -16,8 +16,6 @@
 package io.syncframework.core;
 
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,47 +25,38 @@ import org.slf4j.LoggerFactory;
  * @author dfroz
  *
  */
-public class SessionFactoryDefaultImpl implements SessionFactory {
+public class SessionFactoryDefaultImpl implements SessionFactory, SessionExpirer.Store, SessionLazy.Creator {
 	private static final Logger log = LoggerFactory.getLogger(SessionFactoryDefaultImpl.class);
 	private ApplicationConfig config;
-	private static final StringBuffer buffer = new StringBuffer();
-	private static final Map<String,Session> sessions = new ConcurrentHashMap<String, Session>();
-	private boolean running;
-	private Thread sanitizer;
+	private SessionStore sessions;
+	private SessionExpirer expirer;
+	private SessionIdGenerator generator;
 	
 	public SessionFactoryDefaultImpl() {
-		running = true;
-		sanitizer = null;
+		super();
 	}
 
-	private synchronized Session create() {
-		String id = null;
+	/**
+	 * Registers the session on the first write to its contexts
+	 */
+	public void create(Session session) {
 		while(true) {
-			buffer.setLength(0);
-			for(int i=0; i < 2; i++) {
-				long l = (long)((System.nanoTime() & 0xffff) << 40) |
-						((System.nanoTime() & 0xffff) << 32) |
-						((System.nanoTime() & 0xffff) << 16) ^ 
-						((System.nanoTime() & 0xffff) << 8) |
-						((System.nanoTime() & 0xffff));
-				buffer.append(Long.toHexString(l));
-			}
-			id = buffer.toString();
-			if(!sessions.containsKey(id))
+			String id = generator.generate();
+			session.setId(id);
+			if(sessions.putIfAbsent(id, session))
 				break;
 			if(log.isTraceEnabled())
 				log.trace("id ["+id+"] already exists, generating new id");
-		} //!while(true)
-
-		Session session = new Session();
-		session.setId(id);
-		session.setIdKey(config.getSessionIdKey());
-		sessions.put(id, session);
-		return session;
+		}
+		session.setRecent(true);
+		expirer.schedule(session, this);
+		if(log.isTraceEnabled())
+			log.trace("session created: {}", session);
 	}
 
 	/**
-	 * Locates the existing session related to the client. In case that none is found, generate new one.
+	 * Locates the existing session related to the client. In case that none is found, a SessionLazy is returned
+	 * which is only created once written.
 	 */
 	public Session find(Request request) {		
 		String id = request.getCookieContext().get(config.getSessionIdKey());
@@ -83,11 +72,8 @@ public class SessionFactoryDefaultImpl implements SessionFactory {
 		}
 		// session may be null if the existing the session has expired or ID is invalid
 		if(session == null) {
-			// create new session
-			session = create();
-			session.setRecent(true);
-			if(log.isTraceEnabled())
-				log.trace("session created: {}", session);
+			// new session, created on the first write
+			session = new SessionLazy(this, config.getSessionIdKey());
 		}
 		else {
 			// session returned from the sessions are no longer recent
@@ -99,47 +85,46 @@ public class SessionFactoryDefaultImpl implements SessionFactory {
 		return session;
 	}
 
-	public void start(ApplicationConfig config) {
+	/**
+	 * Accounts the contents written by the request to the session
+	 */
+	public void complete(Session session) {
+		if(session.getId() != null)
+			sessions.update(session);
+	}
+
+	public void start(ApplicationConfig config, SessionIdGenerator generator) {
 		if(config == null)
 			throw new IllegalArgumentException("config");
+		if(generator == null)
+			throw new IllegalArgumentException("generator");
 		this.config = config;
-		running = true;
-		sanitizer = new Thread(new SessionSanitizer(), "session-sanitizer");
-		sanitizer.setDaemon(true);
-		sanitizer.start();
+		this.generator = generator;
+		this.sessions = new SessionStore(config.getSessionPoolSize(), config.getSessionMemorySize());
+		this.expirer = SessionExpirer.getInstance();
 	}
 
+	/**
+	 * Drops the sessions, releasing them and the application classes they hold from the SessionExpirer
+	 */
 	public void stop() {
-		running = false;
-		sanitizer = null;
+		if(sessions != null)
+			sessions.clear();
 	}
 
-	private class SessionSanitizer implements Runnable {
-		private long timeout = 1000L;
+	/**
+	 * @return sessions of the application
+	 */
+	public SessionStore getStore() {
+		return sessions;
+	}
 
-		public void run() {
-			while(running) {
-				try { Thread.sleep(timeout); } catch (InterruptedException ignore) {}
-				for(String id: sessions.keySet()) {
-					Session session = sessions.get(id);
-					if(session == null)
-						continue;
-					long now = System.currentTimeMillis();
-					long elapsed = now - session.getAccessTime();
-					// if(log.isTraceEnabled())
-					//	log.trace("checking session "+session+",  "+elapsed+" >= "+config.getSessionExpire());
-					if(elapsed >= config.getSessionExpire()) {
-						// session has expired
-						if(log.isTraceEnabled())
-							log.trace("{} has expired", session);
-						sessions.remove(id);
-					}
-				}
-			}
-			if(log.isTraceEnabled()) {
-				log.trace("session Sanitizer thread has stopped");
-			}
-		}
+	public long getSessionExpire() {
+		return config.getSessionExpire();
+	}
+
+	public boolean expire(Session session) {
+		return sessions.remove(session.getId(), session);
 	}
 	
 	public String toString() {
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.syncframework.util.StandardThread;
+
+/**
+ * SessionFactory keeping the sessions of the application in a SessionLog, so they survive restarts.
+ *
+ * Sessions are served from a SessionStore as by the default factory. The sessions accessed are written to the log
+ * by a background thread once a second, and once more after their last access so the changes of requests running
+ * meanwhile are not missed. Sessions evicted from the store before their changes are written are kept aside, and
+ * served from there, until written. The same thread removes the expired sessions from the log, after their last
+ * write. After a restart the sessions are decoded from the log on their first access. The same thread compacts the
+ * log, dropping the expired sessions, once it is mostly taken by superseded records.
+ *
+ * Values are written by the SessionCodec; entries holding values of other types live only in memory.
+ *
+ * @author dfroz
+ */
+public class SessionFactoryPersistentImpl implements SessionFactory, SessionExpirer.Store, SessionLazy.Creator {
+	private static final Logger log = LoggerFactory.getLogger(SessionFactoryPersistentImpl.class);
+	private static final String LOG_FILENAME = "sessions.dat";
+	private static final long FLUSH_INTERVAL = 1000L;
+	private final Set<Session> touched = ConcurrentHashMap.<Session>newKeySet();
+	/**
+	 * ids of the sessions to be removed from the log by the writer
+	 */
+	private final ConcurrentLinkedQueue<String> removed = new ConcurrentLinkedQueue<String>();
+	/**
+	 * sessions evicted from the store before their last changes were written; served from here until written
+	 */
+	private final ConcurrentHashMap<String,Session> evicted = new ConcurrentHashMap<String,Session>();
+	private final SessionCodec codec = new SessionCodec();
+	private ApplicationConfig config;
+	private SessionStore sessions;
+	private SessionLog journal;
+	private SessionExpirer expirer;
+	private SessionIdGenerator generator;
+	private Thread writer;
+	private volatile boolean running;
+	private long lastFlush;
+	
+	public SessionFactoryPersistentImpl() {
+		super();
+	}
+
+	/**
+	 * Registers the session on the first write to its contexts
+	 */
+	public void create(Session session) {
+		while(true) {
+			String id = generator.generate();
+			session.setId(id);
+			if(sessions.putIfAbsent(id, session))
+				break;
+			if(log.isTraceEnabled())
+				log.trace("id ["+id+"] already exists, generating new id");
+		}
+		session.setRecent(true);
+		expirer.schedule(session, this);
+		touched.add(session);
+		if(log.isTraceEnabled())
+			log.trace("session created: {}", session);
+	}
+
+	/**
+	 * Locates the existing session related to the client, restoring it from the log if not in memory. In case that
+	 * none is found, a SessionLazy is returned which is only created once written.
+	 */
+	public Session find(Request request) {
+		String id = request.getCookieContext().get(config.getSessionIdKey());
+		if(id == null) {
+			// try request parameter
+			List<String> values = request.getParameters().get(config.getSessionIdKey());
+			if(values != null && values.size() == 1)
+				id = values.get(0);
+		}
+		Session session = null;
+		if(id != null) {
+			session = sessions.get(id);
+			if(session == null)
+				session = restore(id);
+		}
+		// session may be null if the existing the session has expired or ID is invalid
+		if(session == null) {
+			// new session, created on the first write
+			session = new SessionLazy(this, config.getSessionIdKey());
+			session.setAccessTime(System.currentTimeMillis());
+			return session;
+		}
+		// session returned from the sessions are no longer recent
+		session.setRecent(false);
+		session.setAccessTime(System.currentTimeMillis());
+		touched.add(session);
+		if(log.isTraceEnabled())
+			log.trace("session identified: {}", session);
+		return session;
+	}
+	
+	/**
+	 * @return session read from the log, if not expired; null otherwise
+	 */
+	private Session restore(String id) {
+		Session session = evicted.remove(id);
+		if(session == null) {
+			session = journal.read(id);
+			if(session == null)
+				return null;
+			session.setIdKey(config.getSessionIdKey());
+		}
+		if(session.getAccessTime() + config.getSessionExpire() < System.currentTimeMillis()) {
+			touched.remove(session);
+			removed.add(id);
+			return null;
+		}
+		if(!sessions.putIfAbsent(id, session)) {
+			// restored meanwhile by a concurrent request
+			return sessions.get(id);
+		}
+		expirer.schedule(session, this);
+		if(log.isTraceEnabled())
+			log.trace("session restored: {}", session);
+		return session;
+	}
+
+	/**
+	 * Accounts the contents written by the request to the session
+	 */
+	public void complete(Session session) {
+		if(session.getId() != null)
+			sessions.update(session);
+	}
+
+	public void start(ApplicationConfig config, SessionIdGenerator generator) {
+		if(config == null)
+			throw new IllegalArgumentException("config");
+		if(generator == null)
+			throw new IllegalArgumentException("generator");
+		this.config = config;
+		this.generator = generator;
+		this.sessions = new SessionStore(config.getSessionPoolSize(), config.getSessionMemorySize()) {
+			protected void evicted(Session session) {
+				if(touched.contains(session))
+					SessionFactoryPersistentImpl.this.evicted.put(session.getId(), session);
+			}
+		};
+		this.expirer = SessionExpirer.getInstance();
+		
+		File file = new File(config.getBaseDirectory(), LOG_FILENAME);
+		journal = new SessionLog(file);
+		try {
+			journal.open();
+		}
+		catch(IOException e) {
+			throw new RuntimeException("failed to open session log "+file.getAbsolutePath(), e);
+		}
+		
+		running = true;
+		lastFlush = System.currentTimeMillis();
+		writer = new StandardThread(new Writer(), "session-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Writes the sessions accessed since the last flush and closes the log
+	 */
+	public void stop() {
+		if(writer == null)
+			return;
+		running = false;
+		writer.interrupt();
+		try {
+			writer.join();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		writer = null;
+		flush();
+		try {
+			journal.close();
+		}
+		catch(IOException e) {
+			log.error("{}: failed to close session log", this, e);
+		}
+		// written: released from memory and from the SessionExpirer
+		sessions.clear();
+		touched.clear();
+		evicted.clear();
+	}
+
+	/**
+	 * @return sessions of the application in memory
+	 */
+	public SessionStore getStore() {
+		return sessions;
+	}
+
+	/**
+	 * @return log of the sessions of the application
+	 */
+	public SessionLog getLog() {
+		return journal;
+	}
+
+	public long getSessionExpire() {
+		return config.getSessionExpire();
+	}
+
+	public boolean expire(Session session) {
+		if(!sessions.remove(session.getId(), session))
+			return false;
+		touched.remove(session);
+		// removed by the writer, so no write of the session being flushed lands after its removal
+		removed.add(session.getId());
+		return true;
+	}
+	
+	/**
+	 * writes the sessions accessed, then removes the expired ones; must be called by a single thread
+	 */
+	private void flush() {
+		long now = System.currentTimeMillis();
+		for(Session session: touched) {
+			if(!touched.contains(session)) {
+				// expired since the iteration began
+				continue;
+			}
+			try {
+				journal.write(session.getId(), codec.encode(session));
+			}
+			catch(ConcurrentModificationException e) {
+				// a value was modified while encoded; written on the next flush
+				continue;
+			}
+			catch(Throwable t) {
+				log.error("{}: failed to write session {}", this, session, t);
+			}
+			// not accessed since the previous flush: this write holds its last changes
+			if(session.getAccessTime() < lastFlush) {
+				touched.remove(session);
+				// if evicted, its next access restores it from the log
+				evicted.remove(session.getId(), session);
+			}
+		}
+		lastFlush = now;
+		
+		String id;
+		while((id = removed.poll()) != null) {
+			try {
+				journal.remove(id);
+			}
+			catch(Throwable t) {
+				log.error("{}: failed to remove expired session {}", this, id, t);
+			}
+		}
+	}
+	
+	public String toString() {
+		return "persistent";
+	}
+	
+	private class Writer implements Runnable {
+		@Override
+		public void run() {
+			if(log.isDebugEnabled())
+				log.debug("writing the sessions of {} to {}", config.getBaseDirectory(), LOG_FILENAME);
+			while(running) {
+				try {
+					Thread.sleep(FLUSH_INTERVAL);
+				}
+				catch(InterruptedException e) {
+					return;
+				}
+				try {
+					flush();
+					if(journal.isCompactable())
+						journal.compact(System.currentTimeMillis() - config.getSessionExpire());
+				}
+				catch(Throwable t) {
+					log.error("failed to write sessions log", t);
+				}
+			}
+		}
+	}
+}
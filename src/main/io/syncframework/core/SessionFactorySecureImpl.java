@@ -18,7 +18,6 @@ package io.syncframework.core;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,49 +29,56 @@ import io.syncframework.api.RequestContext;
  * @author dfroz
  *
  */
-public class SessionFactorySecureImpl implements SessionFactory {
+public class SessionFactorySecureImpl implements SessionFactory, SessionExpirer.Store, SessionLazy.Creator {
 	private static final Logger log = LoggerFactory.getLogger(SessionFactorySecureImpl.class);
-	private static final Session bogus = new SessionBogus();
 	private ApplicationConfig config;
-	private final StringBuffer buffer = new StringBuffer();
-	private final Map<String,Session> sessions = new ConcurrentHashMap<String, Session>();
+	private SessionStore sessions;
 	private final Map<String,Integer> remoteAddressCounter = new HashMap<String,Integer>();
-	private boolean running;
-	private Thread sanitizer;
+	private SessionExpirer expirer;
+	private SessionIdGenerator generator;
 	
 	public SessionFactorySecureImpl() {
-		running = true;
-		sanitizer = null;
+		super();
 	}
 
-	private synchronized Session create() {
-		String id = null;
-		while(true) {
-			buffer.setLength(0);
-			for(int i=0; i < 2; i++) {
-				long l = (long)((System.nanoTime() & 0xffff) << 40) |
-						((System.nanoTime() & 0xffff) << 32) |
-						((System.nanoTime() & 0xffff) << 16) ^ 
-						((System.nanoTime() & 0xffff) << 8) |
-						((System.nanoTime() & 0xffff));
-				buffer.append(Long.toHexString(l));
+	/**
+	 * Registers the session on the first write to its contexts, unless the remote address has reached its
+	 * maximum of sessions: then the session is left unregistered and is discarded with the request.
+	 */
+	public void create(Session session) {
+		String remoteAddress = session.getRemoteAddress();
+		//
+		// protect from memory exhaustion DDoS
+		//
+		synchronized(remoteAddressCounter) {
+			Integer i = remoteAddressCounter.get(remoteAddress);
+			if(i == null)
+				i = 0;
+			if(i+1 >= 100) {
+				if(log.isWarnEnabled())
+					log.warn("session max counter exceeded the value {} per remote address {}; session not created", i, remoteAddress);
+				return;
 			}
-			id = buffer.toString();
-			if(!sessions.containsKey(id))
+			remoteAddressCounter.put(remoteAddress, i+1);
+		}
+		
+		while(true) {
+			String id = generator.generate();
+			session.setId(id);
+			if(sessions.putIfAbsent(id, session))
 				break;
 			if(log.isTraceEnabled())
 				log.trace("id ["+id+"] already exists, generating new id");
-		} //!while(true)
-
-		Session session = new Session();
-		session.setId(id);
-		session.setIdKey(config.getSessionIdKey());
-		sessions.put(id, session);
-		return session;
+		}
+		session.setRecent(true);
+		expirer.schedule(session, this);
+		if(log.isTraceEnabled())
+			log.trace("session created: {}", session);
 	}
 
 	/**
-	 * Locates the existing session related to the client. In case that none is found, generate new one.
+	 * Locates the existing session related to the client. In case that none is found, a SessionLazy is returned
+	 * which is only created once written.
 	 */
 	public Session find(Request request) {
 		String id = request.getCookieContext().get(config.getSessionIdKey());
@@ -92,37 +98,15 @@ public class SessionFactorySecureImpl implements SessionFactory {
 		// 2. session has expired
 		// 3. ID is fake / invalid...
 		//
-		// All of them new session must be created...
+		// All of them new session must be created, once written...
 		//
 		if(session == null) {
 			String remoteAddress = (String)request.getRequestContext().get(RequestContext.REMOTE_ADDRESS);
 			if(remoteAddress == null)
 				throw new RuntimeException("remote address is null");
-			//
-			// protect from memory exhaustion DDoS
-			//
-			Integer i = remoteAddressCounter.get(remoteAddress);
-			if(i == null)
-				i = 0;
-			i++;
-			
-			if(i < 100) {
-				// create new session
-				session = create();
-				session.setRemoteAddress(remoteAddress);
-				session.setRecent(true);
-				remoteAddressCounter.put(remoteAddress, i);
-				if(log.isTraceEnabled())
-					log.trace("session created: {}", session);
-			}
-			else {
-				session = bogus;
-				session.setRecent(false);
-				// since sending bogus session, then no need to increment the sessions per address
-				remoteAddressCounter.put(remoteAddress, --i);
-				if(log.isWarnEnabled())
-					log.warn("session max counter exceeded the value {} per remote address {}; assigned bogus session", i, remoteAddress);
-			}
+			// new session, created on the first write
+			session = new SessionLazy(this, config.getSessionIdKey());
+			session.setRemoteAddress(remoteAddress);
 			session.setAccessTime(System.currentTimeMillis());
 			return session;
 		}
@@ -148,56 +132,70 @@ public class SessionFactorySecureImpl implements SessionFactory {
 		return session;
 	}
 
-	public void start(ApplicationConfig config) {
+	/**
+	 * Accounts the contents written by the request to the session
+	 */
+	public void complete(Session session) {
+		if(session.getId() != null)
+			sessions.update(session);
+	}
+
+	public void start(ApplicationConfig config, SessionIdGenerator generator) {
 		if(config == null)
 			throw new IllegalArgumentException("config");
+		if(generator == null)
+			throw new IllegalArgumentException("generator");
 		this.config = config;
-		running = true;
-		sanitizer = new Thread(new SessionSanitizer(), "session-sanitizer");
-		sanitizer.setDaemon(true);
-		sanitizer.start();
+		this.generator = generator;
+		this.sessions = new SessionStore(config.getSessionPoolSize(), config.getSessionMemorySize()) {
+			@Override
+			protected void evicted(Session session) {
+				release(session);
+			}
+		};
+		this.expirer = SessionExpirer.getInstance();
 	}
 
+	/**
+	 * Drops the sessions, releasing them and the application classes they hold from the SessionExpirer
+	 */
 	public void stop() {
-		running = false;
-		sanitizer = null;
+		if(sessions != null)
+			sessions.clear();
 	}
 
-	private class SessionSanitizer implements Runnable {
-		private long timeout = 1000L;
+	/**
+	 * @return sessions of the application
+	 */
+	public SessionStore getStore() {
+		return sessions;
+	}
 
-		public void run() {
-			while(running) {
-				try { Thread.sleep(timeout); } catch (InterruptedException ignore) {}
-				for(String id: sessions.keySet()) {
-					Session session = sessions.get(id);
-					long now = System.currentTimeMillis();
-					long elapsed = now - session.getAccessTime();
-					// if(log.isTraceEnabled())
-					//	log.trace("checking session "+session+",  "+elapsed+" >= "+config.getSessionExpire());
-					if(elapsed >= config.getSessionExpire()) {
-						// session has expired
-						if(log.isTraceEnabled())
-							log.trace("{} has expired", session);
-						
-						sessions.remove(id);
-						
-						// check for bogus session
-						Integer i = remoteAddressCounter.get(session.getRemoteAddress());
-						if(i != null) {
-							remoteAddressCounter.put(session.getRemoteAddress(), --i);
-							if(i <= 0) {
-								if(log.isTraceEnabled())
-									log.trace("removed address counter for remote address {}", session.getRemoteAddress());
-								remoteAddressCounter.remove(session.getRemoteAddress());
-							}
-						}
-					}
+	public long getSessionExpire() {
+		return config.getSessionExpire();
+	}
+
+	public boolean expire(Session session) {
+		if(!sessions.remove(session.getId(), session))
+			return false;
+		release(session);
+		return true;
+	}
+	
+	/**
+	 * releases the session from the remote address counter
+	 */
+	private void release(Session session) {
+		synchronized(remoteAddressCounter) {
+			Integer i = remoteAddressCounter.get(session.getRemoteAddress());
+			if(i != null) {
+				remoteAddressCounter.put(session.getRemoteAddress(), --i);
+				if(i <= 0) {
+					if(log.isTraceEnabled())
+						log.trace("removed address counter for remote address {}", session.getRemoteAddress());
+					remoteAddressCounter.remove(session.getRemoteAddress());
 				}
 			}
-			if(log.isTraceEnabled()) {
-				log.trace("session Sanitizer thread has stopped");
-			}
 		}
 	}
 	
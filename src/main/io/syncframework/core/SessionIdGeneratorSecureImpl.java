@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.core;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates unpredictable session ids from application.session.idlength random bytes, encoded as URL safe base64
+ * characters.
+ *
+ * The ids are drawn in turn from a few SecureRandoms, twice the processors, each seeded once from the shared one,
+ * so the threads seldom contend on a generator however many of them there are; the bytes are encoded straight into
+ * the characters of the id.
+ *
+ * @author dfroz
+ */
+public class SessionIdGeneratorSecureImpl implements SessionIdGenerator {
+	private static final char ALPHABET[] = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+	private static final int MIN_LENGTH = 8;
+	private static final SecureRandom seeder = new SecureRandom();
+	private final AtomicInteger next = new AtomicInteger();
+	private SecureRandom randoms[];
+	private int length;
+	
+	public SessionIdGeneratorSecureImpl() {
+		super();
+	}
+
+	public String generate() {
+		byte bytes[] = new byte[length];
+		char chars[] = new char[(length*8+5)/6];
+		SecureRandom random = randoms[(next.getAndIncrement() & 0x7fffffff) % randoms.length];
+		synchronized(random) {
+			random.nextBytes(bytes);
+		}
+		int c = 0;
+		int i = 0;
+		// 3 bytes to 4 characters
+		for(; i+2 < bytes.length; i += 3) {
+			int b = (bytes[i] & 0xff) << 16 | (bytes[i+1] & 0xff) << 8 | (bytes[i+2] & 0xff);
+			chars[c++] = ALPHABET[(b >>> 18) & 0x3f];
+			chars[c++] = ALPHABET[(b >>> 12) & 0x3f];
+			chars[c++] = ALPHABET[(b >>> 6) & 0x3f];
+			chars[c++] = ALPHABET[b & 0x3f];
+		}
+		// remaining 1 or 2 bytes, without padding
+		if(i < bytes.length) {
+			int b = (bytes[i] & 0xff) << 16;
+			if(i+1 < bytes.length)
+				b |= (bytes[i+1] & 0xff) << 8;
+			chars[c++] = ALPHABET[(b >>> 18) & 0x3f];
+			chars[c++] = ALPHABET[(b >>> 12) & 0x3f];
+			if(i+1 < bytes.length)
+				chars[c++] = ALPHABET[(b >>> 6) & 0x3f];
+		}
+		return new String(chars, 0, c);
+	}
+
+	public void start(ApplicationConfig config) {
+		if(config == null)
+			throw new IllegalArgumentException("config");
+		if(config.getSessionIdLength() < MIN_LENGTH)
+			throw new IllegalArgumentException(ApplicationConfig.SESSION_IDLENGTH_KEY+" shall be at least "+MIN_LENGTH+" bytes");
+		this.length = config.getSessionIdLength();
+		SecureRandom randoms[] = new SecureRandom[Runtime.getRuntime().availableProcessors() * 2];
+		for(int i=0; i < randoms.length; i++)
+			randoms[i] = newRandom();
+		this.randoms = randoms;
+	}
+	
+	public String toString() {
+		return "secure";
+	}
+
+	/**
+	 * @return SHA1PRNG seeded from the shared SecureRandom; seeded before its first use, it does not reach the
+	 * shared entropy source again
+	 */
+	private static SecureRandom newRandom() {
+		SecureRandom random = null;
+		try {
+			random = SecureRandom.getInstance("SHA1PRNG");
+		}
+		catch(NoSuchAlgorithmException e) {
+			random = new SecureRandom();
+		}
+		byte seed[] = new byte[32];
+		seeder.nextBytes(seed);
+		random.setSeed(seed);
+		return random;
+	}
+}
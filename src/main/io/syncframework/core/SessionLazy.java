@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.core;
+
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import io.syncframework.api.ErrorContext;
+import io.syncframework.api.SessionContext;
+
+/**
+ * Session handed to the requests which do not carry the id of a live session. It has no id, is not registered and
+ * sets no cookie until the request writes to its SessionContext or ErrorContext: the first write creates the
+ * session through its Creator. Anonymous requests which only read the contexts cost neither a live session
+ * nor a Set-Cookie.
+ *
+ * @author dfroz
+ */
+public class SessionLazy extends Session {
+	private static final long serialVersionUID = -2416016418542097105L;
+	private transient final Creator creator;
+	private transient volatile boolean pending = true;
+	
+	public SessionLazy(Creator creator, String idKey) {
+		super(null, idKey, null, null);
+		if(creator == null)
+			throw new IllegalArgumentException("creator");
+		this.creator = creator;
+		setSessionContext(new LazySessionContext());
+		setErrorContext(new LazyErrorContext());
+		setRecent(false);
+	}
+	
+	/**
+	 * @return true while the session has not been created
+	 */
+	public boolean isPending() {
+		return pending;
+	}
+	
+	/**
+	 * creates the session on the first write to its contexts
+	 */
+	private void create() {
+		if(!pending)
+			return;
+		synchronized(this) {
+			if(!pending)
+				return;
+			pending = false;
+			creator.create(this);
+		}
+	}
+	
+	/**
+	 * Implemented by the SessionFactory registering the sessions
+	 */
+	public interface Creator {
+		/**
+		 * Assigns the id of the session and registers it, setting it recent so the responders send its cookie
+		 */
+		public void create(Session session);
+	}
+	
+	private class LazySessionContext extends SessionContext {
+		private static final long serialVersionUID = 1383416424785574516L;
+
+		@Override
+		public Object put(String key, Object value) {
+			create();
+			return super.put(key, value);
+		}
+
+		@Override
+		public void putAll(Map<? extends String, ? extends Object> m) {
+			create();
+			super.putAll(m);
+		}
+
+		@Override
+		public Object putIfAbsent(String key, Object value) {
+			create();
+			return super.putIfAbsent(key, value);
+		}
+
+		@Override
+		public Object compute(String key, BiFunction<? super String, ? super Object, ? extends Object> f) {
+			create();
+			return super.compute(key, f);
+		}
+
+		@Override
+		public Object computeIfAbsent(String key, Function<? super String, ? extends Object> f) {
+			create();
+			return super.computeIfAbsent(key, f);
+		}
+
+		@Override
+		public Object merge(String key, Object value, BiFunction<? super Object, ? super Object, ? extends Object> f) {
+			create();
+			return super.merge(key, value, f);
+		}
+	}
+	
+	private class LazyErrorContext extends ErrorContext {
+		private static final long serialVersionUID = -7369181604305417934L;
+
+		@Override
+		public String put(String key, String value) {
+			create();
+			return super.put(key, value);
+		}
+
+		@Override
+		public void putAll(Map<? extends String, ? extends String> m) {
+			create();
+			super.putAll(m);
+		}
+
+		@Override
+		public String putIfAbsent(String key, String value) {
+			create();
+			return super.putIfAbsent(key, value);
+		}
+
+		@Override
+		public String compute(String key, BiFunction<? super String, ? super String, ? extends String> f) {
+			create();
+			return super.compute(key, f);
+		}
+
+		@Override
+		public String computeIfAbsent(String key, Function<? super String, ? extends String> f) {
+			create();
+			return super.computeIfAbsent(key, f);
+		}
+
+		@Override
+		public String merge(String key, String value, BiFunction<? super String, ? super String, ? extends String> f) {
+			create();
+			return super.merge(key, value, f);
+		}
+	}
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Memory-mapped, append only file keeping the sessions of an application across restarts.
+ *
+ * Every write of a session appends a record with its SessionCodec form; removals append a tombstone. Records are
+ * preceded by their length and CRC, the length being written last, so a record interrupted by a crash ends the log
+ * when it is scanned again. Opening the log only scans the ids of the records: sessions are decoded when read.
+ *
+ * Once most of the file is taken by superseded records the log shall be compacted: the current record of every
+ * session not expired is copied to a new file, which replaces the log.
+ *
+ * @author dfroz
+ */
+public class SessionLog {
+	private static final Logger log = LoggerFactory.getLogger(SessionLog.class);
+	private static final int MAGIC = 0x53594e43;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 8;
+	/**
+	 * length and CRC preceding the record
+	 */
+	private static final int RECORD_HEADER_SIZE = 8;
+	private static final byte SESSION = 1;
+	private static final byte REMOVED = 2;
+	private static final int MIN_CAPACITY = 1 << 20;
+	private static final int COMPACT_MIN_SIZE = 1 << 18;
+	private final File file;
+	private Map<String,Integer> index = new HashMap<String,Integer>();
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private int position;
+	private long liveSize;
+	
+	public SessionLog(File file) {
+		this.file = file;
+	}
+	
+	/**
+	 * Maps the file, creating it if needed, and indexes the records found
+	 */
+	public synchronized void open() throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		if(channel.size() > Integer.MAX_VALUE)
+			throw new IOException(file.getAbsolutePath()+" is too large");
+		if(channel.size() >= HEADER_SIZE) {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(MIN_CAPACITY, channel.size()));
+			if(buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION) {
+				scan();
+				return;
+			}
+			log.warn("{} is not a session log; discarding it", file.getAbsolutePath());
+			buffer = null;
+			channel.truncate(0);
+		}
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, MIN_CAPACITY);
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		position = HEADER_SIZE;
+	}
+	
+	/**
+	 * indexes the current record of every session up to the first incomplete or corrupt record
+	 */
+	private void scan() throws IOException {
+		int p = HEADER_SIZE;
+		while(p + RECORD_HEADER_SIZE < buffer.capacity()) {
+			int length = buffer.getInt(p);
+			if(length <= 0 || length > buffer.capacity() - p - RECORD_HEADER_SIZE)
+				break;
+			byte record[] = copy(p + RECORD_HEADER_SIZE, length);
+			if(crc(record) != buffer.getInt(p+4)) {
+				log.warn("{}: corrupt record at {}; discarding the records after it", file.getAbsolutePath(), p);
+				break;
+			}
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, 1, record.length-1));
+			String id = record[0] == SESSION ? SessionCodec.decodeId(in) : in.readUTF();
+			Integer previous = index.remove(id);
+			if(previous != null)
+				liveSize -= size(previous);
+			if(record[0] == SESSION) {
+				index.put(id, p);
+				liveSize += RECORD_HEADER_SIZE + length;
+			}
+			p += RECORD_HEADER_SIZE + length;
+		}
+		position = p;
+		if(log.isDebugEnabled())
+			log.debug("{}: {} sessions indexed; {} of {} bytes in use", file.getAbsolutePath(), index.size(), liveSize, position);
+	}
+	
+	/**
+	 * @return true if the log holds a record of the session
+	 */
+	public synchronized boolean contains(String id) {
+		return index.containsKey(id);
+	}
+	
+	/**
+	 * @return the session decoded from its current record; null if not found or unreadable
+	 */
+	public synchronized Session read(String id) {
+		Integer offset = index.get(id);
+		if(offset == null)
+			return null;
+		byte record[] = copy(offset + RECORD_HEADER_SIZE, buffer.getInt(offset));
+		try {
+			return SessionCodec.decode(new DataInputStream(new ByteArrayInputStream(record, 1, record.length-1)));
+		}
+		catch(IOException e) {
+			log.warn("{}: failed to read session {}", file.getAbsolutePath(), id, e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Appends the record of the session, superseding the previous one
+	 * @param encoded session encoded by the SessionCodec
+	 */
+	public synchronized void write(String id, byte encoded[]) throws IOException {
+		int offset = append(SESSION, encoded);
+		Integer previous = index.put(id, offset);
+		if(previous != null)
+			liveSize -= size(previous);
+		liveSize += size(offset);
+	}
+	
+	/**
+	 * Appends the tombstone of the session, if the log holds it
+	 */
+	public synchronized void remove(String id) throws IOException {
+		Integer previous = index.remove(id);
+		if(previous == null)
+			return;
+		liveSize -= size(previous);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+		new DataOutputStream(bytes).writeUTF(id);
+		append(REMOVED, bytes.toByteArray());
+	}
+	
+	/**
+	 * @return true if superseded records take most of the log
+	 */
+	public synchronized boolean isCompactable() {
+		return position > COMPACT_MIN_SIZE && liveSize < (position - HEADER_SIZE) / 2;
+	}
+	
+	/**
+	 * Replaces the log by a new file holding the current record of the sessions accessed since expireBefore
+	 */
+	public synchronized void compact(long expireBefore) throws IOException {
+		long start = System.currentTimeMillis();
+		File tmp = new File(file.getPath()+".tmp");
+		FileChannel target = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		MappedByteBuffer targetBuffer = null;
+		Map<String,Integer> targetIndex = new HashMap<String,Integer>();
+		int p = HEADER_SIZE;
+		try {
+			targetBuffer = target.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(MIN_CAPACITY, 2*liveSize + HEADER_SIZE));
+			targetBuffer.putInt(0, MAGIC);
+			targetBuffer.putInt(4, VERSION);
+			for(Map.Entry<String,Integer> e: index.entrySet()) {
+				int size = size(e.getValue());
+				byte record[] = copy(e.getValue(), size);
+				DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, RECORD_HEADER_SIZE+1, size-RECORD_HEADER_SIZE-1));
+				if(SessionCodec.decodeAccessTime(in) < expireBefore)
+					continue;
+				ByteBuffer dst = targetBuffer.duplicate();
+				dst.position(p);
+				dst.put(record);
+				targetIndex.put(e.getKey(), p);
+				p += size;
+			}
+			targetBuffer.force();
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(IOException e) {
+			target.close();
+			tmp.delete();
+			throw e;
+		}
+		if(log.isDebugEnabled())
+			log.debug("{}: compacted from {} to {} bytes, {} of {} sessions kept in {} ms", file.getAbsolutePath(), position, p,
+					targetIndex.size(), index.size(), System.currentTimeMillis()-start);
+		channel.close();
+		channel = target;
+		buffer = targetBuffer;
+		index = targetIndex;
+		position = p;
+		liveSize = p - HEADER_SIZE;
+	}
+	
+	/**
+	 * Forces the records to the file and closes it
+	 */
+	public synchronized void close() throws IOException {
+		if(channel == null)
+			return;
+		buffer.force();
+		channel.close();
+		channel = null;
+		buffer = null;
+	}
+	
+	/**
+	 * @return sessions held by the log
+	 */
+	public synchronized int getSize() {
+		return index.size();
+	}
+	
+	/**
+	 * @return bytes of the log in use, including the superseded records
+	 */
+	public synchronized int getPosition() {
+		return position;
+	}
+	
+	/**
+	 * writes the record, its CRC and finally its length, growing the mapping if needed
+	 * @return offset of the record
+	 */
+	private int append(byte type, byte body[]) throws IOException {
+		int length = 1 + body.length;
+		long required = (long)position + RECORD_HEADER_SIZE + length;
+		if(required > buffer.capacity()) {
+			long capacity = Math.max(2L*buffer.capacity(), required);
+			if(capacity > Integer.MAX_VALUE)
+				capacity = Integer.MAX_VALUE;
+			if(required > capacity)
+				throw new IOException(file.getAbsolutePath()+" has reached its maximum size");
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		}
+		int offset = position;
+		ByteBuffer dst = buffer.duplicate();
+		dst.position(offset + RECORD_HEADER_SIZE);
+		dst.put(type);
+		dst.put(body);
+		CRC32 crc = new CRC32();
+		crc.update(type);
+		crc.update(body);
+		buffer.putInt(offset + 4, (int)crc.getValue());
+		buffer.putInt(offset, length);
+		position += RECORD_HEADER_SIZE + length;
+		return offset;
+	}
+	
+	/**
+	 * @return bytes of the record at the offset, including its length and CRC
+	 */
+	private int size(int offset) {
+		return RECORD_HEADER_SIZE + buffer.getInt(offset);
+	}
+	
+	private byte[] copy(int offset, int length) {
+		byte bytes[] = new byte[length];
+		ByteBuffer src = buffer.duplicate();
+		src.position(offset);
+		src.get(bytes);
+		return bytes;
+	}
+	
+	private static int crc(byte record[]) {
+		CRC32 crc = new CRC32();
+		crc.update(record);
+		return (int)crc.getValue();
+	}
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.core;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sessions of an application, bounded by a maximum number of sessions and an approximate memory budget.
+ *
+ * Lookups are lock free and only mark the session as referenced. Once a bound is reached, a clock hand sweeps the
+ * sessions: referenced sessions are given a second chance, the first session not referenced since the previous
+ * sweep is evicted. Sessions enter the clock unreferenced, so the ones never requested again are evicted first.
+ * Evicted sessions are cancelled on the SessionExpirer, so nothing holds them once they leave the store.
+ * The memory held by each session is estimated from the contents of its contexts whenever
+ * the session is updated, which the factories do once every request using it completes.
+ *
+ * @author dfroz
+ */
+public class SessionStore {
+	private static final Logger log = LoggerFactory.getLogger(SessionStore.class);
+	/**
+	 * estimated bytes of a Session, its contexts and id
+	 */
+	private static final long SESSION_SIZE = 512;
+	/**
+	 * estimated bytes of a context entry, not counting its key and value
+	 */
+	private static final long ENTRY_SIZE = 48;
+	private static final long OBJECT_SIZE = 16;
+	private final ConcurrentHashMap<String,Entry> sessions = new ConcurrentHashMap<String,Entry>();
+	private final AtomicLong memorySize = new AtomicLong();
+	private final int maxSessions;
+	private final long maxMemorySize;
+	private final Entry clock[];
+	private final int free[];
+	private int freeCount;
+	private int hand;
+	private volatile long evictions;
+	
+	public SessionStore(int maxSessions, long maxMemorySize) {
+		if(maxSessions < 1)
+			throw new IllegalArgumentException("maxSessions shall be at least 1");
+		if(maxMemorySize < 1)
+			throw new IllegalArgumentException("maxMemorySize shall be at least 1");
+		this.maxSessions = maxSessions;
+		this.maxMemorySize = maxMemorySize;
+		this.clock = new Entry[maxSessions];
+		this.free = new int[maxSessions];
+		for(int i=0; i < maxSessions; i++)
+			free[i] = maxSessions-i-1;
+		this.freeCount = maxSessions;
+	}
+	
+	/**
+	 * @return the session identified by the id, marked as referenced; null if none
+	 */
+	public Session get(String id) {
+		Entry entry = sessions.get(id);
+		if(entry == null)
+			return null;
+		entry.referenced = true;
+		return entry.session;
+	}
+	
+	/**
+	 * Adds the session under the id, evicting other sessions if the store is full
+	 * @return false if another session is already identified by the id
+	 */
+	public boolean putIfAbsent(String id, Session session) {
+		Entry entry = new Entry(session);
+		synchronized(this) {
+			if(sessions.putIfAbsent(id, entry) != null)
+				return false;
+			if(freeCount == 0)
+				evict();
+			synchronized(entry) {
+				entry.slot = free[--freeCount];
+				clock[entry.slot] = entry;
+				entry.size = estimate(session);
+				memorySize.addAndGet(entry.size);
+			}
+		}
+		if(memorySize.get() > maxMemorySize)
+			shrink();
+		return true;
+	}
+	
+	/**
+	 * Removes the session identified by the id, if it is still the one stored
+	 * @return false if the session is no longer part of the store
+	 */
+	public boolean remove(String id, Session session) {
+		synchronized(this) {
+			Entry entry = sessions.get(id);
+			if(entry == null || entry.session != session)
+				return false;
+			sessions.remove(id);
+			release(entry);
+		}
+		return true;
+	}
+	
+	/**
+	 * Estimates again the memory held by the session, evicting sessions if over the memory budget
+	 */
+	public void update(Session session) {
+		Entry entry = sessions.get(session.getId());
+		if(entry == null || entry.session != session)
+			return;
+		long size = estimate(session);
+		synchronized(entry) {
+			if(entry.slot < 0)
+				return;
+			memorySize.addAndGet(size-entry.size);
+			entry.size = size;
+		}
+		if(memorySize.get() > maxMemorySize)
+			shrink();
+	}
+	
+	/**
+	 * Removes every session, cancelling their expiration, so the store and the sessions of a stopped application
+	 * are not held by the SessionExpirer
+	 */
+	public synchronized void clear() {
+		for(Entry entry: sessions.values()) {
+			release(entry);
+			SessionExpirer.cancel(entry.session);
+		}
+		sessions.clear();
+	}
+	
+	/**
+	 * Called for every session evicted from the store
+	 */
+	protected void evicted(Session session) {
+	}
+	
+	/**
+	 * @return sessions in the store
+	 */
+	public int getSize() {
+		return sessions.size();
+	}
+	
+	/**
+	 * @return estimated bytes held by the sessions in the store
+	 */
+	public long getMemorySize() {
+		return memorySize.get();
+	}
+	
+	/**
+	 * @return sessions evicted since the store was created
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+	
+	private synchronized void shrink() {
+		while(memorySize.get() > maxMemorySize && freeCount < maxSessions)
+			evict();
+	}
+	
+	/**
+	 * advances the clock hand up to the first session not referenced since the last sweep and evicts it;
+	 * must hold the store lock
+	 */
+	private void evict() {
+		while(true) {
+			Entry entry = clock[hand];
+			hand = (hand+1) % maxSessions;
+			if(entry == null)
+				continue;
+			if(entry.referenced) {
+				entry.referenced = false;
+				continue;
+			}
+			sessions.remove(entry.session.getId(), entry);
+			release(entry);
+			SessionExpirer.cancel(entry.session);
+			evictions++;
+			if(log.isTraceEnabled())
+				log.trace("evicting session {}; sessions: {}, memory: {}", entry.session, sessions.size(), memorySize.get());
+			evicted(entry.session);
+			return;
+		}
+	}
+	
+	/**
+	 * frees the slot of the entry; must hold the store lock
+	 */
+	private void release(Entry entry) {
+		synchronized(entry) {
+			clock[entry.slot] = null;
+			free[freeCount++] = entry.slot;
+			entry.slot = -1;
+			memorySize.addAndGet(-entry.size);
+		}
+	}
+	
+	/**
+	 * @return approximate bytes held by the session
+	 */
+	public static long estimate(Session session) {
+		long size = SESSION_SIZE;
+		for(Map.Entry<String,Object> e: session.getSessionContext().entrySet())
+			size += ENTRY_SIZE + estimate(e.getKey()) + estimate(e.getValue());
+		for(Map.Entry<String,String> e: session.getErrorContext().entrySet())
+			size += ENTRY_SIZE + estimate(e.getKey()) + estimate(e.getValue());
+		return size;
+	}
+	
+	/**
+	 * @return approximate bytes held by the value, not following its references but for strings and arrays
+	 */
+	private static long estimate(Object value) {
+		if(value == null)
+			return 0;
+		if(value instanceof CharSequence)
+			return 2*OBJECT_SIZE + 2*((CharSequence)value).length();
+		if(value instanceof byte[])
+			return OBJECT_SIZE + ((byte[])value).length;
+		if(value instanceof char[])
+			return OBJECT_SIZE + 2*((char[])value).length;
+		if(value instanceof Object[])
+			return OBJECT_SIZE + 8*((Object[])value).length;
+		if(value instanceof Collection)
+			return 4*OBJECT_SIZE + ENTRY_SIZE*((Collection<?>)value).size();
+		if(value instanceof Map)
+			return 4*OBJECT_SIZE + ENTRY_SIZE*((Map<?,?>)value).size();
+		return OBJECT_SIZE;
+	}
+	
+	private static class Entry {
+		private final Session session;
+		private volatile boolean referenced;
+		private long size;
+		private int slot = -1;
+		
+		public Entry(Session session) {
+			this.session = session;
+		}
+	}
+}
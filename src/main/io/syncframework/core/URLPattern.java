@@ -211,6 +211,13 @@ public class URLPattern {
 		return action;
 	}
 
+	/**
+	 * @return true if the pattern ends with the wildcard '*'; toString() then returns the prefix before it
+	 */
+	public boolean isWildcard() {
+		return wildcard;
+	}
+
 	public String toString() {
 		return pattern;
 	}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.core;
+
+/**
+ * <p>Radix tree of the URL patterns of the @Controllers, resolving the @Controller responsible for a request
+ * with a single pass over the URL and without allocation.</p>
+ *
+ * The matching rules are the ones of the URLPattern: the URL is considered up to the first character outside
+ * [./0-9a-zA-Z]; a pattern without wildcard matches the URL when both are equal and the URL names an action;
+ * a pattern with wildcard matches the URL starting with its prefix when the action is the last segment of the
+ * URL. Of the matching patterns the longest wins; the first registered wins among patterns of the same length.
+ * The bounds of the action, the alphanumeric prefix of the last segment of the URL, are found by the same pass.
+ *
+ * @author dfroz
+ */
+public class URLRouter<T> {
+	private final Node<T> root = new Node<T>("");
+	private int size;
+
+	/**
+	 * @param pattern compiled URL pattern
+	 * @param value route of the @Controller bound to the pattern
+	 * @return route already bound to the same pattern, which is kept; null if the pattern has been added
+	 */
+	public synchronized T add(URLPattern pattern, T value) {
+		String key = pattern.toString();
+		Node<T> node = root;
+		int i = 0;
+		while(i < key.length()) {
+			Node<T> child = node.child(key.charAt(i));
+			if(child == null) {
+				child = new Node<T>(key.substring(i));
+				node.add(child);
+				node = child;
+				break;
+			}
+			String label = child.label;
+			int k = 1;
+			while(k < label.length() && i+k < key.length() && label.charAt(k) == key.charAt(i+k))
+				k++;
+			if(k < label.length()) {
+				// splitting the edge where the key diverges
+				Node<T> middle = new Node<T>(label.substring(0, k));
+				child.label = label.substring(k);
+				middle.add(child);
+				node.replace(middle);
+				child = middle;
+			}
+			node = child;
+			i += k;
+		}
+
+		Entry<T> entry = pattern.isWildcard() ? node.wildcard : node.exact;
+		if(entry != null)
+			return entry.value;
+		entry = new Entry<T>(value, size++);
+		if(pattern.isWildcard())
+			node.wildcard = entry;
+		else
+			node.exact = entry;
+		return null;
+	}
+
+	/**
+	 * @return route of the @Controller responsible for the URL or null if none of the patterns matches it
+	 */
+	public T route(String url) {
+		return route(url, null);
+	}
+
+	/**
+	 * @param match receives the bounds of the action addressed by the URL, if not null
+	 * @return route of the @Controller responsible for the URL or null if none of the patterns matches it
+	 */
+	public T route(String url, Match match) {
+		if(url == null)
+			throw new IllegalArgumentException("url cannot be null");
+		if(url.length() == 0 || url.charAt(0) != '/')
+			return null;
+
+		Node<T> node = root;
+		int depth = 0;
+		Entry<T> wildcard = null;
+		int wildcardDepth = -1;
+		int lsp = -1;
+		int i = 0;
+
+		// walking down the tree while the edges match the URL
+		while(node != null) {
+			if(node.wildcard != null) {
+				wildcard = node.wildcard;
+				wildcardDepth = depth;
+			}
+			if(i >= url.length())
+				break;
+			Node<T> child = node.child(url.charAt(i));
+			if(child == null)
+				break;
+			String label = child.label;
+			int k = 0;
+			while(k < label.length() && i < url.length() && label.charAt(k) == url.charAt(i)) {
+				if(label.charAt(k) == '/')
+					lsp = i;
+				k++;
+				i++;
+			}
+			if(k < label.length()) {
+				node = null;
+				break;
+			}
+			node = child;
+			depth = i;
+		}
+
+		// remaining of the URL, not part of any pattern
+		int end = i;
+		for(; end < url.length(); end++) {
+			char ch = url.charAt(end);
+			if(ch == '/')
+				lsp = end;
+			else if(ch != '.' && !isAlphanumeric(ch))
+				break;
+		}
+
+		// the last slash shall not be beyond the wildcard
+		if(wildcard != null && lsp > wildcardDepth)
+			wildcard = null;
+
+		Entry<T> exact = null;
+		if(node != null && depth == end && lsp < end-1)
+			exact = node.exact;
+
+		Entry<T> entry = null;
+		if(exact == null)
+			entry = wildcard;
+		else if(wildcard == null || wildcardDepth < depth || exact.order < wildcard.order)
+			entry = exact;
+		else
+			entry = wildcard;
+		if(entry == null)
+			return null;
+
+		if(match != null) {
+			int a = lsp+1;
+			while(a < end && isAlphanumeric(url.charAt(a)))
+				a++;
+			match.actionOffset = lsp+1;
+			match.actionLength = a-lsp-1;
+		}
+		return entry.value;
+	}
+
+	/**
+	 * @return number of patterns in the router
+	 */
+	public int size() {
+		return size;
+	}
+
+	private static boolean isAlphanumeric(char ch) {
+		return (ch >= '0' && ch <= '9') || (ch >= 'A' && ch <= 'Z') || (ch >= 'a' && ch <= 'z');
+	}
+
+	/**
+	 * Bounds of the action addressed by the URL routed; an empty action stands for "main"
+	 */
+	public static class Match {
+		private int actionOffset;
+		private int actionLength;
+
+		public int getActionOffset() {
+			return actionOffset;
+		}
+
+		public int getActionLength() {
+			return actionLength;
+		}
+	}
+
+	private static class Node<T> {
+		private String label;
+		private char first[] = new char[0];
+		private Node<?> children[] = new Node<?>[0];
+		private Entry<T> exact;
+		private Entry<T> wildcard;
+
+		public Node(String label) {
+			this.label = label;
+		}
+
+		@SuppressWarnings("unchecked")
+		public Node<T> child(char ch) {
+			for(int i=0; i < first.length; i++) {
+				if(first[i] == ch)
+					return (Node<T>)children[i];
+			}
+			return null;
+		}
+
+		public void add(Node<T> child) {
+			int n = first.length;
+			char f[] = new char[n+1];
+			Node<?> c[] = new Node<?>[n+1];
+			System.arraycopy(first, 0, f, 0, n);
+			System.arraycopy(children, 0, c, 0, n);
+			f[n] = child.label.charAt(0);
+			c[n] = child;
+			first = f;
+			children = c;
+		}
+
+		public void replace(Node<T> child) {
+			char ch = child.label.charAt(0);
+			for(int i=0; i < first.length; i++) {
+				if(first[i] == ch)
+					children[i] = child;
+			}
+		}
+	}
+
+	private static class Entry<T> {
+		private final T value;
+		private final int order;
+
+		public Entry(T value, int order) {
+			this.value = value;
+			this.order = order;
+		}
+	}
+}
@@ -18,6 +18,7 @@ package io.syncframework.optimizer;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,8 +43,13 @@ public class ClassOptimizer {
 			reflector.reflect();
 			
 			ClassReader cr = new ClassReader(cl.getResourceAsStream(Type.getInternalName(clazz)+".class"));
+			ClassNode node = new ClassNode();
+			cr.accept(node, 0);
+			OControllerAnalyzer analyzer = new OControllerAnalyzer(reflector);
+			analyzer.analyze(node);
+			
 			ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
-			OControllerClassVisitor cv = new OControllerClassVisitor(cw, reflector);
+			OControllerClassVisitor cv = new OControllerClassVisitor(cw, reflector, analyzer);
 			cr.accept(cv, 0);
 			return cw.toByteArray();
 		}
@@ -15,15 +15,15 @@
  */
 package io.syncframework.optimizer;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
 
-import io.syncframework.api.ApplicationContext;
-import io.syncframework.api.CookieContext;
-import io.syncframework.api.ErrorContext;
-import io.syncframework.api.MessageContext;
-import io.syncframework.api.RequestContext;
+import io.syncframework.api.Converter;
+import io.syncframework.api.FileUpload;
 import io.syncframework.api.Result;
-import io.syncframework.api.SessionContext;
+import io.syncframework.converter.ConverterFactory;
+import io.syncframework.core.ResponseBean;
 
 /**
  * Optimized Controller Interface
@@ -39,6 +39,15 @@ public interface OController {
 	 * \@Controller URL pattern
 	 */
 	public String _asUrl();
+	/**
+	 * @return new instance of the \@Controller, created without reflection
+	 */
+	public OController _asNew();
+	/**
+	 * restores the \@Parameter fields to the values of the pristine instance, never bound to a request, and clears
+	 * the contexts injected so the instance may handle another request
+	 */
+	public void _asReset(OController pristine);
 	/**
 	 * @return Map with \@Parameters name as key and Class<?> as value
 	 */
@@ -57,22 +66,55 @@ public interface OController {
 	 */
 	public Class<?> _asParameterConverter(String name);
 	/**
-	 * \@Context setters.
+	 * @return converter of each \@Parameter, resolved once and handed to _asBind()
+	 */
+	public Converter<?>[] _asConverters(ConverterFactory factory);
+	/**
+	 * Binds the request parameters and files to the declared \@Parameters, converting the values with the
+	 * converters returned by _asConverters(); only the \@Parameters flagged by selected are bound, all if null
 	 */
-	public void _asApplicationContext(ApplicationContext application);
-	public void _asCookieContext(CookieContext cookies);
-	public void _asErrorContext(ErrorContext errors);
-	public void _asMessageContext(MessageContext messages);
-	public void _asRequestContext(RequestContext request);
-	public void _asSessionContext(SessionContext session);
+	public void _asBind(Map<String, List<String>> parameters, Map<String, FileUpload> files, Converter<?> converters[], boolean selected[]) throws Exception;
+	/**
+	 * Writes the contexts declared by the class, fetching them from the bean handling the request
+	 */
+	public void _asInject(ResponseBean bean);
 	/**
 	 * execute \@Action specified by the name
 	 */
 	public Result _asAction(String name);
+	/**
+	 * execute the asynchronous \@Action, returning CompletionStage<Result>, specified by the name
+	 */
+	public CompletionStage<Result> _asAsyncAction(String name);
+	/**
+	 * execute \@Action specified by the index returned by _asActionIndex()
+	 */
+	public Result _asAction(int index);
+	/**
+	 * execute the asynchronous \@Action specified by the index returned by _asActionIndex()
+	 */
+	public CompletionStage<Result> _asAsyncAction(int index);
+	/**
+	 * @return index of the \@Action, resolved once so the action is invoked without comparing its name; -1 if not defined
+	 */
+	public int _asActionIndex(String name);
+	/**
+	 * @return \@Parameters, in the order of _asConverters(), accessed by the \@Action specified by the index; null if
+	 * they could not be determined at optimization time
+	 */
+	public boolean[] _asActionParameters(int index);
 	/**
 	 * Utilized to identify if the action exists (declared)
 	 */
 	public boolean _asActionIsDefined(String name);
+	/**
+	 * Utilized to identify if the action is asynchronous and shall be executed by _asAsyncAction()
+	 */
+	public boolean _asActionIsAsync(String name);
+	/**
+	 * Utilized to identify if the action is annotated with @Action(streaming = true)
+	 */
+	public boolean _asActionIsStreaming(String name);
 	/**
 	 * Utilized to return the interceptors
 	 */
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.optimizer;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicInterpreter;
+import org.objectweb.asm.tree.analysis.BasicValue;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Identifies the \@Parameters each \@Action may access, so only those are bound before the action is executed.
+ * 
+ * The action's bytecode is followed through the methods of the \@Controller it invokes, getters and setters included,
+ * collecting the \@Parameter fields read or written. The dataflow analysis tracks the \@Controller
+ * instance: if it escapes (passed to another class, stored, returned or captured by a lambda) or code not declared
+ * by the \@Controller is invoked on it, the accessed \@Parameters cannot be determined and all of them are bound.
+ * 
+ * @author dfroz
+ */
+public class OControllerAnalyzer {
+	private static final Logger log = LoggerFactory.getLogger(OControllerAnalyzer.class);
+	private final OControllerReflector reflector;
+	private final Map<String, MethodNode> methods = new HashMap<String, MethodNode>();
+	private final Map<String, Set<String>> actionParameters = new HashMap<String, Set<String>>();
+	
+	public OControllerAnalyzer(OControllerReflector reflector) {
+		this.reflector = reflector;
+	}
+	
+	public void analyze(ClassNode node) {
+		for(MethodNode method: node.methods)
+			methods.put(method.name+method.desc, method);
+		
+		for(Map.Entry<String, Method> action: reflector.getActions().entrySet()) {
+			Set<String> parameters = new HashSet<String>();
+			boolean determined = false;
+			try {
+				determined = visit(action.getKey()+Type.getMethodDescriptor(action.getValue()), parameters, new HashSet<String>());
+			}
+			catch(AnalyzerException e) {
+				log.warn("@Action {}.{}() could not be analyzed; binding all @Parameters", reflector.getClazz().getName(), action.getKey(), e);
+			}
+			actionParameters.put(action.getKey(), determined ? parameters : null);
+			
+			if(log.isTraceEnabled())
+				log.trace("@Action {}.{}() accesses @Parameters {}", reflector.getClazz().getName(), action.getKey(), 
+						determined ? parameters : "(all)");
+		}
+	}
+	
+	/**
+	 * @return \@Parameters accessed by the action; null if they could not be determined
+	 */
+	public Set<String> getActionParameters(String action) {
+		return actionParameters.get(action);
+	}
+	
+	/**
+	 * Collects the \@Parameters accessed by the method and the methods of the \@Controller it invokes
+	 * @return false if the accessed \@Parameters cannot be determined
+	 */
+	private boolean visit(String key, Set<String> parameters, Set<String> visited) throws AnalyzerException {
+		if(!visited.add(key))
+			return true;
+		MethodNode method = methods.get(key);
+		if(method == null || (method.access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0)
+			return false;
+		
+		String owner = reflector.getClazzInternalName();
+		ControllerInterpreter interpreter = new ControllerInterpreter(Type.getObjectType(owner));
+		Frame<BasicValue> frames[] = new Analyzer<BasicValue>(interpreter).analyze(owner, method);
+		
+		for(int i=0; i < method.instructions.size(); i++) {
+			AbstractInsnNode insn = method.instructions.get(i);
+			Frame<BasicValue> frame = frames[i];
+			if(frame == null)
+				continue; // unreachable code
+			int top = frame.getStackSize() - 1;
+			
+			switch(insn.getType()) {
+				case AbstractInsnNode.FIELD_INSN: {
+					FieldInsnNode field = (FieldInsnNode)insn;
+					if(field.owner.equals(owner) && reflector.getParameters().containsKey(field.name))
+						parameters.add(field.name);
+					if((insn.getOpcode() == Opcodes.PUTFIELD || insn.getOpcode() == Opcodes.PUTSTATIC) && 
+							interpreter.isController(frame.getStack(top)))
+						return false;
+					break;
+				}
+				case AbstractInsnNode.METHOD_INSN: {
+					MethodInsnNode invoked = (MethodInsnNode)insn;
+					int arguments = Type.getArgumentTypes(invoked.desc).length;
+					boolean declared = invoked.owner.equals(owner);
+					if(!declared) {
+						// the @Controller handed to other code
+						for(int j=0; j <= arguments; j++) {
+							if(j == arguments && insn.getOpcode() == Opcodes.INVOKESTATIC)
+								break;
+							if(interpreter.isController(frame.getStack(top - j)))
+								return false;
+						}
+						break;
+					}
+					// getters and setters included, the invoked method is analyzed as well
+					if(!visit(invoked.name+invoked.desc, parameters, visited))
+						return false;
+					break;
+				}
+				case AbstractInsnNode.INVOKE_DYNAMIC_INSN: {
+					int arguments = Type.getArgumentTypes(((InvokeDynamicInsnNode)insn).desc).length;
+					for(int j=0; j < arguments; j++) {
+						if(interpreter.isController(frame.getStack(top - j)))
+							return false;
+					}
+					break;
+				}
+				case AbstractInsnNode.INSN: {
+					if((insn.getOpcode() == Opcodes.AASTORE || insn.getOpcode() == Opcodes.ARETURN) && 
+							interpreter.isController(frame.getStack(top)))
+						return false;
+					break;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Tells apart the values typed as the \@Controller, the instance itself included, from the other references.
+	 */
+	private static class ControllerInterpreter extends BasicInterpreter {
+		private final BasicValue controller;
+		
+		public ControllerInterpreter(Type type) {
+			super(Opcodes.ASM5);
+			this.controller = new BasicValue(type);
+		}
+		
+		public boolean isController(BasicValue value) {
+			return value == controller;
+		}
+		
+		@Override
+		public BasicValue newValue(Type type) {
+			if(type != null && type.equals(controller.getType()))
+				return controller;
+			return super.newValue(type);
+		}
+		
+		@Override
+		public BasicValue merge(BasicValue v, BasicValue w) {
+			if(v == controller || w == controller)
+				return controller;
+			return super.merge(v, w);
+		}
+	}
+}
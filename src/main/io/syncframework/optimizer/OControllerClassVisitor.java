@@ -15,6 +15,12 @@
  */
 package io.syncframework.optimizer;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.Label;
@@ -29,17 +35,20 @@ import io.syncframework.api.MessageContext;
 import io.syncframework.api.RequestContext;
 import io.syncframework.api.Result;
 import io.syncframework.api.SessionContext;
+import io.syncframework.core.ResponseBean;
 
 /**
  * @author dfroz
  */
 public class OControllerClassVisitor extends ClassVisitor {
 	private OControllerReflector reflector;
+	private OControllerAnalyzer analyzer;
 	private boolean createdStaticMethod = false;
 
-	public OControllerClassVisitor(ClassVisitor cv, OControllerReflector reflector) {
+	public OControllerClassVisitor(ClassVisitor cv, OControllerReflector reflector, OControllerAnalyzer analyzer) {
 		super(Opcodes.ASM5, cv);
 		this.reflector = reflector;
+		this.analyzer = analyzer;
 	}
 
 	/**
@@ -116,98 +125,284 @@ public class OControllerClassVisitor extends ClassVisitor {
 		}
 
 		createUrlMethod();
+		createNewMethod();
+		createResetMethod();
 
-		createContextMethod("_asApplicationContext", Type.getDescriptor(ApplicationContext.class), reflector.getApplicationContext());
-		createContextMethod("_asErrorContext", Type.getDescriptor(ErrorContext.class), reflector.getErrorContext());
-		createContextMethod("_asCookieContext", Type.getDescriptor(CookieContext.class), reflector.getCookieContext());
-		createContextMethod("_asMessageContext", Type.getDescriptor(MessageContext.class), reflector.getMessageContext());
-		createContextMethod("_asRequestContext", Type.getDescriptor(RequestContext.class), reflector.getRequestContext());
-		createContextMethod("_asSessionContext", Type.getDescriptor(SessionContext.class), reflector.getSessionContext());
+		createInjectMethod();
 		
 		createParametersMethod();
 		createParametersSetterMethod();
 		createParametersGetterMethod();
 		createParameterConverterMethod();
 		
-		createActionMethod();
+		ParameterBinder binder = new ParameterBinder(cv, reflector.getClazzInternalName(), reflector.getClazzDescriptor(), 
+				reflector.getParameters(), reflector.getSetters(), reflector.getConverters());
+		binder.createConvertersMethod();
+		binder.createBindMethod(true);
+		
+		createActionMethod("_asAction", Result.class, false);
+		createActionMethod("_asAsyncAction", CompletionStage.class, true);
+		createIndexedActionMethod("_asAction", Result.class, false);
+		createIndexedActionMethod("_asAsyncAction", CompletionStage.class, true);
+		createActionIndexMethod();
+		createActionParametersMethod();
 		createActionInterceptorsMethod();
 		createActionIsDefinedMethod();
+		createActionIsAsyncMethod();
+		createActionIsStreamingMethod();
 	}
 	
 	/**
 	 * Generates _asActions() method as following:
 	 * 
-	 * if(name.equals("upload"))
-	 * 	return upload();
-	 * else if(name.equals("save"))
-	 * 	return save();
-	 * else if(name.equals("main"))
-	 * 	return main();
-	 * else if(name.equals("redir"))
-	 * 	return redir();
-	 * else
-	 * 	throw new RuntimeException("no action named "+name);
+	 * switch(name) {
+	 * 	case "upload":
+	 * 		return upload();
+	 * 	case "save":
+	 * 		return save();
+	 * 	case "main":
+	 * 		return main();
+	 * 	case "redir":
+	 * 		return redir();
+	 * 	default:
+	 * 		throw new NoSuchMethodException("no @Action named "+name);
+	 * }
+	 * 
+	 * _asAsyncAction() is generated the same way, including only the actions returning CompletionStage<Result>.
 	 */
-	private void createActionMethod() {
+	private void createActionMethod(String methodName, Class<?> returnType, boolean async) {
 		StringBuilder sb = new StringBuilder();
-		sb.append("(").append(Type.getType(String.class)).append(")").append(Type.getType(Result.class));
+		sb.append("(").append(Type.getType(String.class)).append(")").append(Type.getType(returnType));
 		String desc = sb.toString();
 		
-		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, "_asAction", desc, null, null);
+		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, methodName, desc, null, null);
+		mv.visitCode();
+		
+		List<String> names = new ArrayList<String>();
+		for(String name: reflector.getActions().keySet()) {
+			if(reflector.isAsyncAction(name) == async)
+				names.add(name);
+		}
 		
 		Label start = new Label();
-		Label next = new Label();
-		Label variable = new Label();
-		boolean first = true;
+		Label notFound = new Label();
+		Label end = new Label();
+		Label labels[] = new Label[names.size()];
+		for(int i=0; i < labels.length; i++)
+			labels[i] = new Label();
 		
-		for(String name: reflector.getActions().keySet()) {
-			Label l0 = null;
-			Label l1 = new Label();
-			
-			if(first) {
-				l0 = new Label();
-				first = false;
-			}
-			else {
-				l0 = next;
-				next = new Label();
-			}
-			
-			mv.visitLabel(l0);
-			if(!first) {
-				mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
-			}
-			mv.visitVarInsn(Opcodes.ALOAD, 1);
-			mv.visitLdcInsn(name);
-			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
-			mv.visitJumpInsn(Opcodes.IFEQ, next);
-			
-			mv.visitLabel(l1);
+		mv.visitLabel(start);
+		StringSwitch.generate(mv, 1, names, labels, notFound);
+		
+		for(int i=0; i < labels.length; i++) {
+			mv.visitLabel(labels[i]);
 			mv.visitVarInsn(Opcodes.ALOAD, 0);
-			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, reflector.getClazzInternalName(), name, "()"+Type.getType(Result.class), false);
+			String actionDesc = Type.getMethodDescriptor(reflector.getActions().get(names.get(i)));
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, reflector.getClazzInternalName(), names.get(i), actionDesc, false);
 			mv.visitInsn(Opcodes.ARETURN);
 		}
 
-		mv.visitLabel(next);
-		mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+		mv.visitLabel(notFound);
+		createNoSuchMethod(mv, "no @Action named ", Opcodes.ALOAD, "(Ljava/lang/String;)Ljava/lang/StringBuilder;");
+		
+		mv.visitLabel(end);
+		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, start, end, 0);
+		mv.visitLocalVariable("name", "Ljava/lang/String;", null, start, end, 1);
+		mv.visitMaxs(5, 2);
+		mv.visitEnd();
+	}
+	
+	/**
+	 * Generates the action invocation by the index returned by _asActionIndex():
+	 * 
+	 * switch(index) {
+	 * 	case 0:
+	 * 		return upload();
+	 * 	case 1:
+	 * 		return save();
+	 * 	...
+	 * 	default:
+	 * 		throw new NoSuchMethodException("no @Action indexed "+index);
+	 * }
+	 * 
+	 * The indexes of the actions not matching the synchronous or asynchronous kind lead to the default case.
+	 */
+	private void createIndexedActionMethod(String methodName, Class<?> returnType, boolean async) {
+		String desc = "(I)"+Type.getType(returnType);
+		
+		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, methodName, desc, null, null);
+		mv.visitCode();
+		
+		List<String> names = new ArrayList<String>(reflector.getActions().keySet());
+		
+		Label start = new Label();
+		Label notFound = new Label();
+		Label end = new Label();
+		Label labels[] = new Label[names.size()];
+		for(int i=0; i < labels.length; i++)
+			labels[i] = reflector.isAsyncAction(names.get(i)) == async ? new Label() : notFound;
+		
+		mv.visitLabel(start);
+		if(labels.length > 0) {
+			mv.visitVarInsn(Opcodes.ILOAD, 1);
+			mv.visitTableSwitchInsn(0, labels.length - 1, notFound, labels);
+		}
+		else {
+			mv.visitJumpInsn(Opcodes.GOTO, notFound);
+		}
+		
+		for(int i=0; i < labels.length; i++) {
+			if(labels[i] == notFound)
+				continue;
+			mv.visitLabel(labels[i]);
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			String actionDesc = Type.getMethodDescriptor(reflector.getActions().get(names.get(i)));
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, reflector.getClazzInternalName(), names.get(i), actionDesc, false);
+			mv.visitInsn(Opcodes.ARETURN);
+		}
+
+		mv.visitLabel(notFound);
+		createNoSuchMethod(mv, "no @Action indexed ", Opcodes.ILOAD, "(I)Ljava/lang/StringBuilder;");
+		
+		mv.visitLabel(end);
+		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, start, end, 0);
+		mv.visitLocalVariable("index", "I", null, start, end, 1);
+		mv.visitMaxs(5, 2);
+		mv.visitEnd();
+	}
+	
+	/**
+	 * Generates the code:
+	 * 
+	 * public int _asActionIndex(String name) {
+	 * 	switch(name) {
+	 * 		case "upload":
+	 * 			return 0;
+	 * 		case "save":
+	 * 			return 1;
+	 * 		...
+	 * 		default:
+	 * 			return -1;
+	 * 	}
+	 * }
+	 */
+	private void createActionIndexMethod() {
+		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, "_asActionIndex", "(Ljava/lang/String;)I", null, null);
+		mv.visitCode();
+		
+		List<String> names = new ArrayList<String>(reflector.getActions().keySet());
+		
+		Label start = new Label();
+		Label notFound = new Label();
+		Label end = new Label();
+		Label labels[] = new Label[names.size()];
+		for(int i=0; i < labels.length; i++)
+			labels[i] = new Label();
+		
+		mv.visitLabel(start);
+		StringSwitch.generate(mv, 1, names, labels, notFound);
+		
+		for(int i=0; i < labels.length; i++) {
+			mv.visitLabel(labels[i]);
+			StringSwitch.push(mv, i);
+			mv.visitInsn(Opcodes.IRETURN);
+		}
+		
+		mv.visitLabel(notFound);
+		mv.visitInsn(Opcodes.ICONST_M1);
+		mv.visitInsn(Opcodes.IRETURN);
+		
+		mv.visitLabel(end);
+		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, start, end, 0);
+		mv.visitLocalVariable("name", "Ljava/lang/String;", null, start, end, 1);
+		mv.visitMaxs(2, 2);
+		mv.visitEnd();
+	}
+	
+	/**
+	 * Generates the code, with the \@Parameters each \@Action accesses as found by the OControllerAnalyzer:
+	 * 
+	 * public boolean[] _asActionParameters(int index) {
+	 * 	switch(index) {
+	 * 		case 0:
+	 * 			return new boolean[] { true, false };
+	 * 		case 1:
+	 * 			return null; // not determined
+	 * 		...
+	 * 	}
+	 * 	return null;
+	 * }
+	 */
+	private void createActionParametersMethod() {
+		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, "_asActionParameters", "(I)[Z", null, null);
+		mv.visitCode();
+		
+		List<String> names = new ArrayList<String>(reflector.getActions().keySet());
+		List<String> parameters = new ArrayList<String>(reflector.getParameters().keySet());
+		
+		Label start = new Label();
+		Label notFound = new Label();
+		Label end = new Label();
+		Label labels[] = new Label[names.size()];
+		for(int i=0; i < labels.length; i++)
+			labels[i] = new Label();
+		
+		mv.visitLabel(start);
+		if(labels.length > 0) {
+			mv.visitVarInsn(Opcodes.ILOAD, 1);
+			mv.visitTableSwitchInsn(0, labels.length - 1, notFound, labels);
+		}
+		else {
+			mv.visitJumpInsn(Opcodes.GOTO, notFound);
+		}
+		
+		for(int i=0; i < labels.length; i++) {
+			mv.visitLabel(labels[i]);
+			Set<String> accessed = analyzer.getActionParameters(names.get(i));
+			if(accessed == null) {
+				mv.visitInsn(Opcodes.ACONST_NULL);
+				mv.visitInsn(Opcodes.ARETURN);
+				continue;
+			}
+			StringSwitch.push(mv, parameters.size());
+			mv.visitIntInsn(Opcodes.NEWARRAY, Opcodes.T_BOOLEAN);
+			for(int j=0; j < parameters.size(); j++) {
+				if(!accessed.contains(parameters.get(j)))
+					continue;
+				mv.visitInsn(Opcodes.DUP);
+				StringSwitch.push(mv, j);
+				mv.visitInsn(Opcodes.ICONST_1);
+				mv.visitInsn(Opcodes.BASTORE);
+			}
+			mv.visitInsn(Opcodes.ARETURN);
+		}
+		
+		mv.visitLabel(notFound);
+		mv.visitInsn(Opcodes.ACONST_NULL);
+		mv.visitInsn(Opcodes.ARETURN);
+		
+		mv.visitLabel(end);
+		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, start, end, 0);
+		mv.visitLocalVariable("index", "I", null, start, end, 1);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+	
+	/**
+	 * Generates: throw new NoSuchMethodException(message+argument);
+	 */
+	private void createNoSuchMethod(MethodVisitor mv, String message, int loadOpcode, String appendDesc) {
 		mv.visitTypeInsn(Opcodes.NEW, "java/lang/NoSuchMethodException");
 		mv.visitInsn(Opcodes.DUP);
 		mv.visitTypeInsn(Opcodes.NEW, "java/lang/StringBuilder");
 		mv.visitInsn(Opcodes.DUP);
-		mv.visitLdcInsn("no @Action named ");
+		mv.visitLdcInsn(message);
 		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(Ljava/lang/String;)V", false);
-		mv.visitVarInsn(Opcodes.ALOAD, 1);
-		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;", false);
+		mv.visitVarInsn(loadOpcode, 1);
+		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "append", appendDesc, false);
 		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false);
 		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/NoSuchMethodException", "<init>", "(Ljava/lang/String;)V", false);
 		mv.visitInsn(Opcodes.ATHROW);
-		
-		mv.visitLabel(variable);
-		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, start, next, 0);
-		mv.visitLocalVariable("name", "Ljava/lang/String;", null, start, next, 1);
-		
-		mv.visitMaxs(5, 2);
-		mv.visitEnd();
 	}
 	
 	/**
@@ -277,42 +472,113 @@ public class OControllerClassVisitor extends ClassVisitor {
 	}
 	
 	/**
-	 * Generates context method setter: 
+	 * Generates this code:
 	 * 
-	 * public void _as(Application|Error|Message|...)Context((Application|Error|Message|...)Context variable) {
-	 * 	this.variable = variable
-	 * 		or
-	 * 	// do nothing
+	 * public boolean _asActionIsAsync(String name) {
+	 * 	return Boolean.TRUE.equals(_asActions.get(name));
 	 * }
 	 */
-	private void createContextMethod(String methodName, String typeDescriptor, String variableName) {
-		if(variableName != null) {
-			MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, methodName, "("+typeDescriptor+")V", null, null);
-			Label l0 = new Label();
-			Label l1 = new Label();
-			Label l2 = new Label();
-			mv.visitLabel(l0);
-			mv.visitVarInsn(Opcodes.ALOAD, 0);
+	public void createActionIsAsyncMethod() {
+		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, "_asActionIsAsync", "(Ljava/lang/String;)Z", null, null);
+		Label l0 = new Label();
+		Label l1 = new Label();
+		
+		mv.visitLabel(l0);
+		mv.visitFieldInsn(Opcodes.GETSTATIC, "java/lang/Boolean", "TRUE", "Ljava/lang/Boolean;");
+		mv.visitFieldInsn(Opcodes.GETSTATIC, reflector.getClazzInternalName(), "_asActions", "Ljava/util/Map;");
+		mv.visitVarInsn(Opcodes.ALOAD, 1);
+		mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/util/Map", "get", "(Ljava/lang/Object;)Ljava/lang/Object;", true);
+		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Boolean", "equals", "(Ljava/lang/Object;)Z", false);
+		mv.visitInsn(Opcodes.IRETURN);
+		
+		mv.visitLabel(l1);
+		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, l0, l1, 0);
+		mv.visitLocalVariable("name", "Ljava/lang/String;", null, l0, l1, 1);
+		mv.visitMaxs(3, 2);
+		
+		mv.visitEnd();
+	}
+	
+	/**
+	 * Generates this code, comparing the name with every action annotated with @Action(streaming = true):
+	 * 
+	 * public boolean _asActionIsStreaming(String name) {
+	 * 	if("download".equals(name))
+	 * 		return true;
+	 * 	return false;
+	 * }
+	 */
+	public void createActionIsStreamingMethod() {
+		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, "_asActionIsStreaming", "(Ljava/lang/String;)Z", null, null);
+		Label l0 = new Label();
+		Label l1 = new Label();
+		Label l2 = new Label();
+		
+		mv.visitLabel(l0);
+		for(String name: reflector.getStreamingActions()) {
+			mv.visitLdcInsn(name);
 			mv.visitVarInsn(Opcodes.ALOAD, 1);
-			mv.visitFieldInsn(Opcodes.PUTFIELD, reflector.getClazzInternalName(), variableName, typeDescriptor);
-			mv.visitLabel(l1);
-			mv.visitInsn(Opcodes.RETURN);
-			mv.visitLabel(l2);
-			mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, l0, l2, 0);
-			mv.visitLocalVariable(variableName, typeDescriptor, null, l0, l2, 1);
-			mv.visitMaxs(2, 2);
-			mv.visitEnd();
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
+			mv.visitJumpInsn(Opcodes.IFNE, l1);
 		}
-		else {
-			MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, methodName, "("+typeDescriptor+")V", null, null);
-			Label l0 = new Label();
-			Label l1 = new Label();
-			mv.visitLabel(l0);
-			mv.visitInsn(Opcodes.RETURN);
-			mv.visitLabel(l1);
-			mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, l0, l1, 0);
-			mv.visitLocalVariable("argument", typeDescriptor, null, l0, l1, 1);
+		mv.visitInsn(Opcodes.ICONST_0);
+		mv.visitInsn(Opcodes.IRETURN);
+		
+		mv.visitLabel(l1);
+		mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+		mv.visitInsn(Opcodes.ICONST_1);
+		mv.visitInsn(Opcodes.IRETURN);
+		
+		mv.visitLabel(l2);
+		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, l0, l2, 0);
+		mv.visitLocalVariable("name", "Ljava/lang/String;", null, l0, l2, 1);
+		mv.visitMaxs(2, 2);
+		
+		mv.visitEnd();
+	}
+	
+	/**
+	 * Generates the code writing the contexts declared by the class, fetched from the bean handling the request:
+	 * 
+	 * public void _asInject(ResponseBean bean) {
+	 * 	this.application = bean.getApplicationContext();
+	 * 	this.session = bean.getSessionContext();
+	 * 	...
+	 * }
+	 * 
+	 * Contexts not declared are not fetched; so the MessageContext is only created if declared or rendered.
+	 */
+	private void createInjectMethod() {
+		String beanInternalName = Type.getInternalName(ResponseBean.class);
+		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, "_asInject", "(L"+beanInternalName+";)V", null, null);
+		mv.visitCode();
+		Label l0 = new Label();
+		mv.visitLabel(l0);
+		
+		String contexts[][] = new String[][] {
+			{ reflector.getApplicationContext(), "getApplicationContext", Type.getDescriptor(ApplicationContext.class) },
+			{ reflector.getCookieContext(), "getCookieContext", Type.getDescriptor(CookieContext.class) },
+			{ reflector.getErrorContext(), "getErrorContext", Type.getDescriptor(ErrorContext.class) },
+			{ reflector.getMessageContext(), "getMessageContext", Type.getDescriptor(MessageContext.class) },
+			{ reflector.getRequestContext(), "getRequestContext", Type.getDescriptor(RequestContext.class) },
+			{ reflector.getSessionContext(), "getSessionContext", Type.getDescriptor(SessionContext.class) }
+		};
+		for(String context[]: contexts) {
+			if(context[0] == null)
+				continue;
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			mv.visitVarInsn(Opcodes.ALOAD, 1);
+			mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, beanInternalName, context[1], "()"+context[2], true);
+			mv.visitFieldInsn(Opcodes.PUTFIELD, reflector.getClazzInternalName(), context[0], context[2]);
 		}
+		mv.visitInsn(Opcodes.RETURN);
+		
+		Label l1 = new Label();
+		mv.visitLabel(l1);
+		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, l0, l1, 0);
+		mv.visitLocalVariable("bean", "L"+beanInternalName+";", null, l0, l1, 1);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
 	}
 	
 	/**
@@ -340,59 +606,50 @@ public class OControllerClassVisitor extends ClassVisitor {
 	 * Generates the _asParameter() getter as
 	 * 
 	 * public Object _asParameter(String name) {
-	 * 	if(name.equals("name"))
-	 * 		return getName();
-	 * 	if(name.equals("date"))
-	 * 		return getDate();
-	 * 	...
+	 * 	switch(name) {
+	 * 		case "name":
+	 * 			return getName();
+	 * 		case "date":
+	 * 			return getDate();
+	 * 		...
+	 * 	}
 	 * 	return null;
 	 * }
 	 */
 	private void createParametersGetterMethod() {
 		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, "_asParameter", "(Ljava/lang/String;)Ljava/lang/Object;", null, null);
+		mv.visitCode();
+		
+		List<String> names = new ArrayList<String>(reflector.getParameters().keySet());
 		
 		Label start = new Label();
-		Label next = new Label();
-		Label variable = new Label();
-		boolean first = true;
+		Label notFound = new Label();
+		Label end = new Label();
+		Label labels[] = new Label[names.size()];
+		for(int i=0; i < labels.length; i++)
+			labels[i] = new Label();
 		
-		for(String name: reflector.getParameters().keySet()) {
-			Label l0 = null;
-			Label l1 = new Label();
-			
-			if(first) {
-				l0 = new Label();
-				first = false;
-			}
-			else {
-				l0 = next;
-				next = new Label();
-			}
-			
-			mv.visitLabel(l0);
-			if(!first)
-				mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
-			mv.visitVarInsn(Opcodes.ALOAD, 1);
-			mv.visitLdcInsn(name);
-			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
-			mv.visitJumpInsn(Opcodes.IFEQ, next);
-			
+		mv.visitLabel(start);
+		StringSwitch.generate(mv, 1, names, labels, notFound);
+		
+		for(int i=0; i < labels.length; i++) {
+			String name = names.get(i);
 			String methodGetterName = reflector.getGetters().get(name).getName();
 			String methodGetterDesc = "()"+Type.getDescriptor(reflector.getParameters().get(name));
 			
-			mv.visitLabel(l1);
+			mv.visitLabel(labels[i]);
 			mv.visitVarInsn(Opcodes.ALOAD, 0);
 			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, reflector.getClazzInternalName(), methodGetterName, methodGetterDesc, false);
+			ParameterBinder.box(mv, reflector.getParameters().get(name));
 			mv.visitInsn(Opcodes.ARETURN);
 		}
 		
-		mv.visitLabel(next);
-		mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+		mv.visitLabel(notFound);
 		mv.visitInsn(Opcodes.ACONST_NULL);
 		mv.visitInsn(Opcodes.ARETURN);
-		mv.visitLabel(variable);
-		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, start, variable, 0);
-		mv.visitLocalVariable("name", "Ljava/lang/String;", null, start, variable, 1);
+		mv.visitLabel(end);
+		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, start, end, 0);
+		mv.visitLocalVariable("name", "Ljava/lang/String;", null, start, end, 1);
 		mv.visitMaxs(2, 2);
 		mv.visitEnd();
 	}
@@ -401,71 +658,55 @@ public class OControllerClassVisitor extends ClassVisitor {
 	 * Creates the code as:
 	 * 
 	 * public void _asParameter(String name, Object value) {
-	 * 	if(name.equals("name") {
-	 * 		setName((String)value);
-	 * 		return;
+	 * 	switch(name) {
+	 * 		case "name":
+	 * 			setName((String)value);
+	 * 			return;
+	 * 		case "date":
+	 * 			setDate((Date)value);
+	 * 			return;
+	 * 		...
 	 * 	}
-	 *	if(name.equals("date") {
-	 *		setDate((Date)value);
-	 *		return;
-	 *	}
-	 *	...
 	 * 	return;
 	 * } 
 	 */
 	private void createParametersSetterMethod() {
 		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, "_asParameter", "(Ljava/lang/String;Ljava/lang/Object;)V", null, null);
+		mv.visitCode();
+		
+		List<String> names = new ArrayList<String>(reflector.getParameters().keySet());
 		
 		Label start = new Label();
-		Label next = new Label();
-		Label variable = new Label();
-		boolean first = true;
-		
-		for(String name: reflector.getParameters().keySet()) {
-			Label l0 = null;
-			Label l1 = new Label();
-			Label l2 = new Label();
-			
-			if(first) {
-				l0 = new Label();
-				first = false;
-			}
-			else {
-				l0 = next;
-				next = new Label();
-			}
-			
-			mv.visitLabel(l0);
-			if(!first)
-				mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
-			mv.visitVarInsn(Opcodes.ALOAD, 1);
-			mv.visitLdcInsn(name);
-			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
-			mv.visitJumpInsn(Opcodes.IFEQ, next);
-			
+		Label notFound = new Label();
+		Label end = new Label();
+		Label labels[] = new Label[names.size()];
+		for(int i=0; i < labels.length; i++)
+			labels[i] = new Label();
+		
+		mv.visitLabel(start);
+		StringSwitch.generate(mv, 1, names, labels, notFound);
+		
+		for(int i=0; i < labels.length; i++) {
+			String name = names.get(i);
 			Class<?> parameterType = reflector.getParameters().get(name); 
-			
 			String setterMethodName = reflector.getSetters().get(name).getName();
 			String setterMethodDesc = "("+Type.getDescriptor(parameterType)+")V";
 			
-			mv.visitLabel(l1);
+			mv.visitLabel(labels[i]);
 			mv.visitVarInsn(Opcodes.ALOAD, 0);
 			mv.visitVarInsn(Opcodes.ALOAD, 2);
-			mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(parameterType));
+			ParameterBinder.unbox(mv, parameterType);
 			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, reflector.getClazzInternalName(), setterMethodName, setterMethodDesc, false);
-			
-			mv.visitLabel(l2);
 			mv.visitInsn(Opcodes.RETURN);
 		}
 		
-		mv.visitLabel(next);
-		mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+		mv.visitLabel(notFound);
 		mv.visitInsn(Opcodes.RETURN);
 		
-		mv.visitLabel(variable);
-		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, start, next, 0);
-		mv.visitLocalVariable("name", "Ljava/lang/String;", null, start, next, 1);
-		mv.visitLocalVariable("value", "Ljava/lang/Object;", null, start, next, 2);
+		mv.visitLabel(end);
+		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, start, end, 0);
+		mv.visitLocalVariable("name", "Ljava/lang/String;", null, start, end, 1);
+		mv.visitLocalVariable("value", "Ljava/lang/Object;", null, start, end, 2);
 		mv.visitMaxs(2, 3);
 		mv.visitEnd();
 	}
@@ -508,4 +749,78 @@ public class OControllerClassVisitor extends ClassVisitor {
 		mv.visitMaxs(1, 1);
 		mv.visitEnd();
 	}
+	
+	/**
+	 * Generates the factory method, creating instances without reflection
+	 * public OController _asNew() { return new ExampleController(); }
+	 */
+	public void createNewMethod() {
+		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, "_asNew", "()"+Type.getDescriptor(OController.class), null, null);
+		mv.visitCode();
+		Label l0 = new Label();
+		mv.visitLabel(l0);
+		mv.visitTypeInsn(Opcodes.NEW, reflector.getClazzInternalName());
+		mv.visitInsn(Opcodes.DUP);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, reflector.getClazzInternalName(), "<init>", "()V", false);
+		mv.visitInsn(Opcodes.ARETURN);
+		Label l1 = new Label();
+		mv.visitLabel(l1);
+		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, l0, l1, 0);
+		mv.visitMaxs(2, 1);
+		mv.visitEnd();
+	}
+	
+	/**
+	 * Generates the code restoring the @Parameter fields to the values of a pristine instance, so their initializers
+	 * hold again, and clearing the contexts injected by the previous request:
+	 * 
+	 * public void _asReset(OController pristine) {
+	 * 	ExampleController p = (ExampleController)pristine;
+	 * 	this.name = p.name;
+	 * 	this.page = p.page;
+	 * 	this.session = null;
+	 * }
+	 */
+	public void createResetMethod() {
+		String oControllerDescriptor = Type.getDescriptor(OController.class);
+		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, "_asReset", "("+oControllerDescriptor+")V", null, null);
+		mv.visitCode();
+		Label l0 = new Label();
+		mv.visitLabel(l0);
+		mv.visitVarInsn(Opcodes.ALOAD, 1);
+		mv.visitTypeInsn(Opcodes.CHECKCAST, reflector.getClazzInternalName());
+		mv.visitVarInsn(Opcodes.ASTORE, 2);
+		Label l1 = new Label();
+		mv.visitLabel(l1);
+		for(Map.Entry<String, Class<?>> parameter: reflector.getParameters().entrySet()) {
+			String descriptor = Type.getDescriptor(parameter.getValue());
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			mv.visitVarInsn(Opcodes.ALOAD, 2);
+			mv.visitFieldInsn(Opcodes.GETFIELD, reflector.getClazzInternalName(), parameter.getKey(), descriptor);
+			mv.visitFieldInsn(Opcodes.PUTFIELD, reflector.getClazzInternalName(), parameter.getKey(), descriptor);
+		}
+		String contexts[][] = new String[][] {
+			{ reflector.getApplicationContext(), Type.getDescriptor(ApplicationContext.class) },
+			{ reflector.getCookieContext(), Type.getDescriptor(CookieContext.class) },
+			{ reflector.getErrorContext(), Type.getDescriptor(ErrorContext.class) },
+			{ reflector.getMessageContext(), Type.getDescriptor(MessageContext.class) },
+			{ reflector.getRequestContext(), Type.getDescriptor(RequestContext.class) },
+			{ reflector.getSessionContext(), Type.getDescriptor(SessionContext.class) }
+		};
+		for(String context[]: contexts) {
+			if(context[0] == null)
+				continue;
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			mv.visitInsn(Opcodes.ACONST_NULL);
+			mv.visitFieldInsn(Opcodes.PUTFIELD, reflector.getClazzInternalName(), context[0], context[1]);
+		}
+		mv.visitInsn(Opcodes.RETURN);
+		Label l2 = new Label();
+		mv.visitLabel(l2);
+		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, l0, l2, 0);
+		mv.visitLocalVariable("pristine", oControllerDescriptor, null, l0, l2, 1);
+		mv.visitLocalVariable("p", reflector.getClazzDescriptor(), null, l1, l2, 2);
+		mv.visitMaxs(3, 3);
+		mv.visitEnd();
+	}
 }
@@ -18,10 +18,15 @@ package io.syncframework.optimizer;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.WildcardType;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
 
 import org.objectweb.asm.Type;
 import org.slf4j.Logger;
@@ -38,6 +43,7 @@ import io.syncframework.api.MessageContext;
 import io.syncframework.api.Parameter;
 import io.syncframework.api.RequestContext;
 import io.syncframework.api.Result;
+import io.syncframework.api.Scope;
 import io.syncframework.api.SessionContext;
 import io.syncframework.util.StringUtils;
 
@@ -54,6 +60,7 @@ public class OControllerReflector implements Reflector {
 	private String clazzInternalName;
 	private String clazzDescriptor;
 	private Map<String,Method> actions = new LinkedHashMap<String,Method>();
+	private Set<String> streamingActions = new LinkedHashSet<String>();
 	private Map<String,Class<?>[]> interceptors = new LinkedHashMap<String,Class<?>[]>();
 	private Map<String,Class<?>> parameters = new LinkedHashMap<String,Class<?>>();
 	private Map<String,Method> getters = new LinkedHashMap<String,Method>();
@@ -150,8 +157,8 @@ public class OControllerReflector implements Reflector {
 				continue;
 			
 			Class<?> type = field.getType();
-			if(type.isPrimitive()) {
-				throw new ReflectorException("@Parameter "+clazz.getName()+"."+field.getName()+" cannot be defined as primitive");
+			if(type.isPrimitive() && type != boolean.class && type != double.class && type != int.class && type != long.class) {
+				throw new ReflectorException("@Parameter "+clazz.getName()+"."+field.getName()+" cannot be defined as "+type.getName());
 			}
 			// check for Contexts... we already treated the contexts
 			if(type.equals(ApplicationContext.class) ||
@@ -200,6 +207,19 @@ public class OControllerReflector implements Reflector {
 			if(log.isTraceEnabled())
 				log.trace("@Parameter "+clazz.getName()+"."+field.getName()+" loaded");
 		}
+		
+		/*
+		 * A single instance handles the requests concurrently; no request state can be kept on its fields
+		 */
+		if(controllerAnnotation.scope() == Scope.SINGLETON) {
+			if(!parameters.isEmpty()) {
+				throw new ReflectorException("@Controller "+clazz.getName()+" with scope SINGLETON cannot declare @Parameter fields");
+			}
+			if(cookieContext != null || errorContext != null || messageContext != null || 
+					requestContext != null || sessionContext != null) {
+				throw new ReflectorException("@Controller "+clazz.getName()+" with scope SINGLETON cannot declare request contexts");
+			}
+		}
 
 		/*
 		 * Reflecting ACTIONS
@@ -227,19 +247,50 @@ public class OControllerReflector implements Reflector {
 			}
 			this.interceptors.put(method.getName(), interceptorsOnly.toArray(new Class<?>[0]));
 			
-			if(method.getReturnType() != Result.class || method.getParameterTypes().length != 0) {
-				throw new ReflectorException("@Action "+clazz.getName()+"."+method.getName()+"() not returning Result object");
+			if(method.getParameterTypes().length != 0 || (method.getReturnType() != Result.class && !isAsync(method))) {
+				throw new ReflectorException("@Action "+clazz.getName()+"."+method.getName()+
+						"() not returning Result or CompletionStage<Result> object");
 			}
 			actions.put(method.getName(), method);
+			if(a.streaming())
+				streamingActions.add(method.getName());
 			if(log.isTraceEnabled()) {
 				log.trace("@Action "+clazz.getName()+"."+method.getName()+"() loaded");
 			}
 		}
 	}
 
+	/**
+	 * Asynchronous actions return CompletionStage<Result> or any of its implementations such as CompletableFuture<Result>
+	 */
+	private static boolean isAsync(Method method) {
+		if(!CompletionStage.class.isAssignableFrom(method.getReturnType()))
+			return false;
+		java.lang.reflect.Type type = method.getGenericReturnType();
+		if(!(type instanceof ParameterizedType))
+			return false;
+		java.lang.reflect.Type argument = ((ParameterizedType)type).getActualTypeArguments()[0];
+		if(argument instanceof WildcardType)
+			argument = ((WildcardType)argument).getUpperBounds()[0];
+		return argument == Result.class;
+	}
+
 	public Map<String, Method> getActions() {
 		return actions;
 	}
+	public boolean isAsyncAction(String name) {
+		Method method = actions.get(name);
+		return method != null && method.getReturnType() != Result.class;
+	}
+	/**
+	 * @return true if the action is annotated with @Action(streaming = true)
+	 */
+	public boolean isStreamingAction(String name) {
+		return streamingActions.contains(name);
+	}
+	public Set<String> getStreamingActions() {
+		return streamingActions;
+	}
 	public Map<String, Class<?>[]> getInterceptors() {
 		return interceptors;
 	}
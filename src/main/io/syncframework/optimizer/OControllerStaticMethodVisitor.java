@@ -26,7 +26,8 @@ import org.objectweb.asm.Type;
  * static {
  * 	try {
  * 		_asActions = new HashMap<String, Boolean>();
- *		_asActions.put("main", true);
+ *		_asActions.put("main", false);
+ *		_asActions.put("fetch", true); // asynchronous @Action
  *		_asInterceptors = new HashMap<String, Class<?>[]>();
  *		_asInterceptors.put("upload", new Class<?>[] { LoginInterceptor.class, DummyInterceptor.class });
  *		_asInterceptors.put("save", new Class<?>[] { LoginInterceptor.class });
@@ -76,15 +77,17 @@ public class OControllerStaticMethodVisitor extends MethodVisitor {
 			mv.visitFieldInsn(Opcodes.PUTSTATIC, reflector.getClazzInternalName(), "_asActions", "Ljava/util/Map;");
 		}
 		/*
-		 * _asActions.put("main", true);
+		 * _asActions.put("main", false);
 		 * _asActions.put("action1", true);
+		 * 
+		 * value tells whether the @Action is asynchronous
 		 */
 		for(String name: reflector.getActions().keySet()) {
 			Label l = new Label();
 			mv.visitLabel(l);
 			mv.visitFieldInsn(Opcodes.GETSTATIC, reflector.getClazzInternalName(), "_asActions", "Ljava/util/Map;");
 			mv.visitLdcInsn(name);
-			mv.visitInsn(Opcodes.ICONST_1);
+			mv.visitInsn(reflector.isAsyncAction(name) ? Opcodes.ICONST_1 : Opcodes.ICONST_0);
 			mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;", false);
 			mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/util/Map", "put", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", true);
 			mv.visitInsn(Opcodes.POP);
@@ -170,7 +173,7 @@ public class OControllerStaticMethodVisitor extends MethodVisitor {
 			mv.visitLabel(l);
 			mv.visitFieldInsn(Opcodes.GETSTATIC, reflector.getClazzInternalName(), "_asParameters", "Ljava/util/Map;");
 			mv.visitLdcInsn(name);
-			mv.visitLdcInsn(Type.getType(reflector.getParameters().get(name)));
+			ParameterBinder.pushClass(mv, reflector.getParameters().get(name));
 			mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/util/Map", "put", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", true);
 			mv.visitInsn(Opcodes.POP);
 		}
@@ -15,15 +15,14 @@
  */
 package io.syncframework.optimizer;
 
+import java.util.List;
 import java.util.Map;
 
-import io.syncframework.api.ApplicationContext;
-import io.syncframework.api.CookieContext;
-import io.syncframework.api.ErrorContext;
-import io.syncframework.api.MessageContext;
-import io.syncframework.api.RequestContext;
+import io.syncframework.api.Converter;
+import io.syncframework.api.FileUpload;
 import io.syncframework.api.Result;
-import io.syncframework.api.SessionContext;
+import io.syncframework.converter.ConverterFactory;
+import io.syncframework.core.ResponseBean;
 
 /**
  * Represents the interface of @Interceptor internally running at the application server.
@@ -52,12 +51,16 @@ public interface OInterceptor {
 	 */
 	public Class<?> _asParameterConverter(String name);
 	/**
-	 * \@Context setters.
+	 * @return converter of each \@Parameter, resolved once and handed to _asBind()
 	 */
-	public void _asApplicationContext(ApplicationContext application);
-	public void _asCookieContext(CookieContext cookies);
-	public void _asErrorContext(ErrorContext errors);
-	public void _asMessageContext(MessageContext messages);
-	public void _asRequestContext(RequestContext request);
-	public void _asSessionContext(SessionContext session);
+	public Converter<?>[] _asConverters(ConverterFactory factory);
+	/**
+	 * Binds the request parameters and files to the declared \@Parameters, converting the values with the
+	 * converters returned by _asConverters()
+	 */
+	public void _asBind(Map<String, List<String>> parameters, Map<String, FileUpload> files, Converter<?> converters[]) throws Exception;
+	/**
+	 * Writes the contexts declared by the class, fetching them from the bean handling the request
+	 */
+	public void _asInject(ResponseBean bean);
 }
@@ -15,6 +15,9 @@
  */
 package io.syncframework.optimizer;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.Label;
@@ -29,6 +32,7 @@ import io.syncframework.api.MessageContext;
 import io.syncframework.api.RequestContext;
 import io.syncframework.api.Result;
 import io.syncframework.api.SessionContext;
+import io.syncframework.core.ResponseBean;
 
 /**
  * @author dfroz
@@ -100,18 +104,18 @@ public class OInterceptorClassVisitor extends ClassVisitor {
 			mv.visitEnd();
 		}
 		
-		createContextMethod("_asApplicationContext", Type.getDescriptor(ApplicationContext.class), reflector.getApplicationContext());
-		createContextMethod("_asErrorContext", Type.getDescriptor(ErrorContext.class), reflector.getErrorContext());
-		createContextMethod("_asCookieContext", Type.getDescriptor(CookieContext.class), reflector.getCookieContext());
-		createContextMethod("_asMessageContext", Type.getDescriptor(MessageContext.class), reflector.getMessageContext());
-		createContextMethod("_asRequestContext", Type.getDescriptor(RequestContext.class), reflector.getRequestContext());
-		createContextMethod("_asSessionContext", Type.getDescriptor(SessionContext.class), reflector.getSessionContext());
+		createInjectMethod();
 		
 		createParametersMethod();
 		createParametersSetterMethod();
 		createParametersGetterMethod();
 		createParameterConverterMethod();
 		
+		ParameterBinder binder = new ParameterBinder(cv, reflector.getClazzInternalName(), reflector.getClazzDescriptor(), 
+				reflector.getParameters(), reflector.getSetters(), reflector.getConverters());
+		binder.createConvertersMethod();
+		binder.createBindMethod(false);
+		
 		createBeforeMethod();
 		createAfterMethod();
 	}
@@ -201,59 +205,50 @@ public class OInterceptorClassVisitor extends ClassVisitor {
 	 * Generates the _asParameter() getter as
 	 * 
 	 * public Object _asParameter(String name) {
-	 * 	if(name.equals("name"))
-	 * 		return getName();
-	 * 	if(name.equals("date"))
-	 * 		return getDate();
-	 * 	...
+	 * 	switch(name) {
+	 * 		case "name":
+	 * 			return getName();
+	 * 		case "date":
+	 * 			return getDate();
+	 * 		...
+	 * 	}
 	 * 	return null;
 	 * }
 	 */
 	private void createParametersGetterMethod() {
 		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, "_asParameter", "(Ljava/lang/String;)Ljava/lang/Object;", null, null);
+		mv.visitCode();
+		
+		List<String> names = new ArrayList<String>(reflector.getParameters().keySet());
 		
 		Label start = new Label();
-		Label next = new Label();
-		Label variable = new Label();
-		boolean first = true;
+		Label notFound = new Label();
+		Label end = new Label();
+		Label labels[] = new Label[names.size()];
+		for(int i=0; i < labels.length; i++)
+			labels[i] = new Label();
 		
-		for(String name: reflector.getParameters().keySet()) {
-			Label l0 = null;
-			Label l1 = new Label();
-			
-			if(first) {
-				l0 = new Label();
-				first = false;
-			}
-			else {
-				l0 = next;
-				next = new Label();
-			}
-			
-			mv.visitLabel(l0);
-			if(!first)
-				mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
-			mv.visitVarInsn(Opcodes.ALOAD, 1);
-			mv.visitLdcInsn(name);
-			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
-			mv.visitJumpInsn(Opcodes.IFEQ, next);
-			
+		mv.visitLabel(start);
+		StringSwitch.generate(mv, 1, names, labels, notFound);
+		
+		for(int i=0; i < labels.length; i++) {
+			String name = names.get(i);
 			String methodGetterName = reflector.getGetters().get(name).getName();
 			String methodGetterDesc = "()"+Type.getDescriptor(reflector.getParameters().get(name));
 			
-			mv.visitLabel(l1);
+			mv.visitLabel(labels[i]);
 			mv.visitVarInsn(Opcodes.ALOAD, 0);
 			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, reflector.getClazzInternalName(), methodGetterName, methodGetterDesc, false);
+			ParameterBinder.box(mv, reflector.getParameters().get(name));
 			mv.visitInsn(Opcodes.ARETURN);
 		}
 		
-		mv.visitLabel(next);
-		mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+		mv.visitLabel(notFound);
 		mv.visitInsn(Opcodes.ACONST_NULL);
 		mv.visitInsn(Opcodes.ARETURN);
-		mv.visitLabel(variable);
-		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, start, variable, 0);
-		mv.visitLocalVariable("name", "Ljava/lang/String;", null, start, variable, 1);
+		mv.visitLabel(end);
+		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, start, end, 0);
+		mv.visitLocalVariable("name", "Ljava/lang/String;", null, start, end, 1);
 		mv.visitMaxs(2, 2);
 		mv.visitEnd();
 	}
@@ -262,71 +257,55 @@ public class OInterceptorClassVisitor extends ClassVisitor {
 	 * Creates the code as:
 	 * 
 	 * public void _asParameter(String name, Object value) {
-	 * 	if(name.equals("name") {
-	 * 		setName((String)value);
-	 * 		return;
+	 * 	switch(name) {
+	 * 		case "name":
+	 * 			setName((String)value);
+	 * 			return;
+	 * 		case "date":
+	 * 			setDate((Date)value);
+	 * 			return;
+	 * 		...
 	 * 	}
-	 *	if(name.equals("date") {
-	 *		setDate((Date)value);
-	 *		return;
-	 *	}
-	 *	...
 	 * 	return;
 	 * } 
 	 */
 	private void createParametersSetterMethod() {
 		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, "_asParameter", "(Ljava/lang/String;Ljava/lang/Object;)V", null, null);
+		mv.visitCode();
+		
+		List<String> names = new ArrayList<String>(reflector.getParameters().keySet());
 		
 		Label start = new Label();
-		Label next = new Label();
-		Label variable = new Label();
-		boolean first = true;
+		Label notFound = new Label();
+		Label end = new Label();
+		Label labels[] = new Label[names.size()];
+		for(int i=0; i < labels.length; i++)
+			labels[i] = new Label();
 		
-		for(String name: reflector.getParameters().keySet()) {
-			Label l0 = null;
-			Label l1 = new Label();
-			Label l2 = new Label();
-			
-			if(first) {
-				l0 = new Label();
-				first = false;
-			}
-			else {
-				l0 = next;
-				next = new Label();
-			}
-			
-			mv.visitLabel(l0);
-			if(!first)
-				mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
-			mv.visitVarInsn(Opcodes.ALOAD, 1);
-			mv.visitLdcInsn(name);
-			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
-			mv.visitJumpInsn(Opcodes.IFEQ, next);
-			
+		mv.visitLabel(start);
+		StringSwitch.generate(mv, 1, names, labels, notFound);
+		
+		for(int i=0; i < labels.length; i++) {
+			String name = names.get(i);
 			Class<?> parameterType = reflector.getParameters().get(name); 
-			
 			String setterMethodName = reflector.getSetters().get(name).getName();
 			String setterMethodDesc = "("+Type.getDescriptor(parameterType)+")V";
 			
-			mv.visitLabel(l1);
+			mv.visitLabel(labels[i]);
 			mv.visitVarInsn(Opcodes.ALOAD, 0);
 			mv.visitVarInsn(Opcodes.ALOAD, 2);
-			mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(parameterType));
+			ParameterBinder.unbox(mv, parameterType);
 			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, reflector.getClazzInternalName(), setterMethodName, setterMethodDesc, false);
-			
-			mv.visitLabel(l2);
 			mv.visitInsn(Opcodes.RETURN);
 		}
 		
-		mv.visitLabel(next);
-		mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+		mv.visitLabel(notFound);
 		mv.visitInsn(Opcodes.RETURN);
 		
-		mv.visitLabel(variable);
-		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, start, next, 0);
-		mv.visitLocalVariable("name", "Ljava/lang/String;", null, start, next, 1);
-		mv.visitLocalVariable("value", "Ljava/lang/Object;", null, start, next, 2);
+		mv.visitLabel(end);
+		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, start, end, 0);
+		mv.visitLocalVariable("name", "Ljava/lang/String;", null, start, end, 1);
+		mv.visitLocalVariable("value", "Ljava/lang/Object;", null, start, end, 2);
 		mv.visitMaxs(2, 3);
 		mv.visitEnd();
 	}
@@ -354,42 +333,47 @@ public class OInterceptorClassVisitor extends ClassVisitor {
 	}
 	
 	/**
-	 * Generates Contexts setter method: 
+	 * Generates the code writing the contexts declared by the class, fetched from the bean handling the request:
 	 * 
-	 * public void _as(Application|Error|Message|...)Context((Application|Error|Message|...)Context variable) {
-	 * 	this.variable = variable
-	 * 		or
-	 * 	// do nothing
+	 * public void _asInject(ResponseBean bean) {
+	 * 	this.application = bean.getApplicationContext();
+	 * 	this.session = bean.getSessionContext();
+	 * 	...
 	 * }
+	 * 
+	 * Contexts not declared are not fetched; so the MessageContext is only created if declared or rendered.
 	 */
-	private void createContextMethod(String methodName, String typeDescriptor, String variableName) {
-		if(variableName != null) {
-			MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, methodName, "("+typeDescriptor+")V", null, null);
-			Label l0 = new Label();
-			Label l1 = new Label();
-			Label l2 = new Label();
-			mv.visitLabel(l0);
+	private void createInjectMethod() {
+		String beanInternalName = Type.getInternalName(ResponseBean.class);
+		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, "_asInject", "(L"+beanInternalName+";)V", null, null);
+		mv.visitCode();
+		Label l0 = new Label();
+		mv.visitLabel(l0);
+		
+		String contexts[][] = new String[][] {
+			{ reflector.getApplicationContext(), "getApplicationContext", Type.getDescriptor(ApplicationContext.class) },
+			{ reflector.getCookieContext(), "getCookieContext", Type.getDescriptor(CookieContext.class) },
+			{ reflector.getErrorContext(), "getErrorContext", Type.getDescriptor(ErrorContext.class) },
+			{ reflector.getMessageContext(), "getMessageContext", Type.getDescriptor(MessageContext.class) },
+			{ reflector.getRequestContext(), "getRequestContext", Type.getDescriptor(RequestContext.class) },
+			{ reflector.getSessionContext(), "getSessionContext", Type.getDescriptor(SessionContext.class) }
+		};
+		for(String context[]: contexts) {
+			if(context[0] == null)
+				continue;
 			mv.visitVarInsn(Opcodes.ALOAD, 0);
 			mv.visitVarInsn(Opcodes.ALOAD, 1);
-			mv.visitFieldInsn(Opcodes.PUTFIELD, reflector.getClazzInternalName(), variableName, typeDescriptor);
-			mv.visitLabel(l1);
-			mv.visitInsn(Opcodes.RETURN);
-			mv.visitLabel(l2);
-			mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, l0, l2, 0);
-			mv.visitLocalVariable(variableName, typeDescriptor, null, l0, l2, 1);
-			mv.visitMaxs(2, 2);
-			mv.visitEnd();
-		}
-		else {
-			MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, methodName, "("+typeDescriptor+")V", null, null);
-			Label l0 = new Label();
-			Label l1 = new Label();
-			mv.visitLabel(l0);
-			mv.visitInsn(Opcodes.RETURN);
-			mv.visitLabel(l1);
-			mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, l0, l1, 0);
-			mv.visitLocalVariable("argument", typeDescriptor, null, l0, l1, 1);
+			mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, beanInternalName, context[1], "()"+context[2], true);
+			mv.visitFieldInsn(Opcodes.PUTFIELD, reflector.getClazzInternalName(), context[0], context[2]);
 		}
+		mv.visitInsn(Opcodes.RETURN);
+		
+		Label l1 = new Label();
+		mv.visitLabel(l1);
+		mv.visitLocalVariable("this", reflector.getClazzDescriptor(), null, l0, l1, 0);
+		mv.visitLocalVariable("bean", "L"+beanInternalName+";", null, l0, l1, 1);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
 	}
 	
 	/**
@@ -135,8 +135,8 @@ public class OInterceptorReflector implements Reflector {
 				continue;
 
 			Class<?> type = field.getType();
-			if(type.isPrimitive()) {
-				throw new ReflectorException("@Parameter "+clazz.getName()+"."+field.getName()+" cannot be defined as primitive");
+			if(type.isPrimitive() && type != boolean.class && type != double.class && type != int.class && type != long.class) {
+				throw new ReflectorException("@Parameter "+clazz.getName()+"."+field.getName()+" cannot be defined as "+type.getName());
 			}
 			
 			// check for Contexts... we already treated the contexts
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.optimizer;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import io.syncframework.api.Converter;
+import io.syncframework.api.FileUpload;
+import io.syncframework.converter.ConverterFactory;
+import io.syncframework.converter.PrimitiveBooleanConverter;
+import io.syncframework.converter.PrimitiveDoubleConverter;
+import io.syncframework.converter.PrimitiveIntConverter;
+import io.syncframework.converter.PrimitiveLongConverter;
+
+/**
+ * Generates the methods binding the request to the @Parameters of @Controllers and @Interceptors:
+ * _asConverters(), resolving the converter of each @Parameter once, and _asBind(), invoking the setters of the
+ * declared @Parameters with the converted values. Primitive @Parameters are parsed by the static parse() of the
+ * primitive converters and stored without boxing.
+ * 
+ * @author dfroz
+ */
+public class ParameterBinder {
+	private static final String CONVERTER = Type.getInternalName(Converter.class);
+	private static final String CONVERTER_FACTORY = Type.getInternalName(ConverterFactory.class);
+	private final ClassVisitor cv;
+	private final String clazzInternalName;
+	private final String clazzDescriptor;
+	private final Map<String, Class<?>> parameters;
+	private final Map<String, Method> setters;
+	private final Map<String, Class<?>> converters;
+	
+	public ParameterBinder(ClassVisitor cv, String clazzInternalName, String clazzDescriptor, Map<String, Class<?>> parameters,
+			Map<String, Method> setters, Map<String, Class<?>> converters) {
+		this.cv = cv;
+		this.clazzInternalName = clazzInternalName;
+		this.clazzDescriptor = clazzDescriptor;
+		this.parameters = parameters;
+		this.setters = setters;
+		this.converters = converters;
+	}
+	
+	/**
+	 * Generates the code, with one converter per @Parameter in the order of declaration:
+	 * 
+	 * public Converter<?>[] _asConverters(ConverterFactory factory) {
+	 * 	return new Converter<?>[] { 
+	 * 		factory.getConverter(String.class, "ExampleController.name"), 
+	 * 		new SimpleDateConverter(),
+	 * 		null // FileUpload
+	 * 	};
+	 * }
+	 */
+	public void createConvertersMethod() {
+		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, "_asConverters", 
+				"(L"+CONVERTER_FACTORY+";)[L"+CONVERTER+";", null, null);
+		mv.visitCode();
+		Label l0 = new Label();
+		mv.visitLabel(l0);
+		
+		List<String> names = new ArrayList<String>(parameters.keySet());
+		StringSwitch.push(mv, names.size());
+		mv.visitTypeInsn(Opcodes.ANEWARRAY, CONVERTER);
+		for(int i=0; i < names.size(); i++) {
+			String name = names.get(i);
+			Class<?> type = parameters.get(name);
+			Class<?> converter = converters.get(name);
+			
+			mv.visitInsn(Opcodes.DUP);
+			StringSwitch.push(mv, i);
+			if(converter != null) {
+				String converterInternalName = Type.getInternalName(converter);
+				mv.visitTypeInsn(Opcodes.NEW, converterInternalName);
+				mv.visitInsn(Opcodes.DUP);
+				mv.visitMethodInsn(Opcodes.INVOKESPECIAL, converterInternalName, "<init>", "()V", false);
+			}
+			else if(type == FileUpload.class) {
+				mv.visitInsn(Opcodes.ACONST_NULL);
+			}
+			else {
+				mv.visitVarInsn(Opcodes.ALOAD, 1);
+				pushClass(mv, type);
+				mv.visitLdcInsn(Type.getObjectType(clazzInternalName).getClassName()+"."+name);
+				mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, CONVERTER_FACTORY, "getConverter", 
+						"(Ljava/lang/Class;Ljava/lang/String;)L"+CONVERTER+";", false);
+			}
+			mv.visitInsn(Opcodes.AASTORE);
+		}
+		mv.visitInsn(Opcodes.ARETURN);
+		
+		Label l1 = new Label();
+		mv.visitLabel(l1);
+		mv.visitLocalVariable("this", clazzDescriptor, null, l0, l1, 0);
+		mv.visitLocalVariable("factory", "L"+CONVERTER_FACTORY+";", null, l0, l1, 1);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+	
+	/**
+	 * Generates the code, for each @Parameter in the order of declaration:
+	 * 
+	 * public void _asBind(Map<String,List<String>> parameters, Map<String,FileUpload> files, Converter<?> converters[]) {
+	 * 	List<String> values = parameters.get("name");
+	 * 	if(values != null && !values.isEmpty())
+	 * 		setName((String)converters[0].convert(values));
+	 * 	...
+	 * 	values = parameters.get("page");
+	 * 	if(values != null && !values.isEmpty()) {
+	 * 		CharSequence value = values.get(0);
+	 * 		if(value != null && value.length() > 0)
+	 * 			setPage(PrimitiveIntConverter.parse(value));
+	 * 	}
+	 * 	...
+	 * 	FileUpload file = files.get("file");
+	 * 	if(file != null)
+	 * 		setFile(file);
+	 * }
+	 * 
+	 * If selective, _asBind() takes one more argument, boolean selected[], flagging which @Parameters to bind;
+	 * the others are skipped before their values are looked up. A null array binds all of them.
+	 */
+	public void createBindMethod(boolean selective) {
+		String desc = "(Ljava/util/Map;Ljava/util/Map;[L"+CONVERTER+";"+(selective ? "[Z" : "")+")V";
+		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, "_asBind", desc, null, new String[] { "java/lang/Exception" });
+		// locals after the arguments
+		int values = selective ? 5 : 4;
+		int file = values + 1;
+		int value = values + 2;
+		mv.visitCode();
+		Label l0 = new Label();
+		mv.visitLabel(l0);
+		
+		List<String> names = new ArrayList<String>(parameters.keySet());
+		for(int i=0; i < names.size(); i++) {
+			String name = names.get(i);
+			Class<?> type = parameters.get(name);
+			String setterDesc = "("+Type.getDescriptor(type)+")V";
+			Label next = new Label();
+			
+			if(selective) {
+				Label bind = new Label();
+				mv.visitVarInsn(Opcodes.ALOAD, 4);
+				mv.visitJumpInsn(Opcodes.IFNULL, bind);
+				mv.visitVarInsn(Opcodes.ALOAD, 4);
+				StringSwitch.push(mv, i);
+				mv.visitInsn(Opcodes.BALOAD);
+				mv.visitJumpInsn(Opcodes.IFEQ, next);
+				mv.visitLabel(bind);
+			}
+			
+			if(type == FileUpload.class) {
+				mv.visitVarInsn(Opcodes.ALOAD, 2);
+				mv.visitLdcInsn(name);
+				mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/util/Map", "get", "(Ljava/lang/Object;)Ljava/lang/Object;", true);
+				mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(FileUpload.class));
+				mv.visitVarInsn(Opcodes.ASTORE, file);
+				mv.visitVarInsn(Opcodes.ALOAD, file);
+				mv.visitJumpInsn(Opcodes.IFNULL, next);
+				mv.visitVarInsn(Opcodes.ALOAD, 0);
+				mv.visitVarInsn(Opcodes.ALOAD, file);
+				mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, clazzInternalName, setters.get(name).getName(), setterDesc, false);
+			}
+			else {
+				mv.visitVarInsn(Opcodes.ALOAD, 1);
+				mv.visitLdcInsn(name);
+				mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/util/Map", "get", "(Ljava/lang/Object;)Ljava/lang/Object;", true);
+				mv.visitTypeInsn(Opcodes.CHECKCAST, "java/util/List");
+				mv.visitVarInsn(Opcodes.ASTORE, values);
+				mv.visitVarInsn(Opcodes.ALOAD, values);
+				mv.visitJumpInsn(Opcodes.IFNULL, next);
+				mv.visitVarInsn(Opcodes.ALOAD, values);
+				mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/util/List", "isEmpty", "()Z", true);
+				mv.visitJumpInsn(Opcodes.IFNE, next);
+				if(type.isPrimitive() && converters.get(name) == null) {
+					mv.visitVarInsn(Opcodes.ALOAD, values);
+					mv.visitInsn(Opcodes.ICONST_0);
+					mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/util/List", "get", "(I)Ljava/lang/Object;", true);
+					mv.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/CharSequence");
+					mv.visitVarInsn(Opcodes.ASTORE, value);
+					mv.visitVarInsn(Opcodes.ALOAD, value);
+					mv.visitJumpInsn(Opcodes.IFNULL, next);
+					mv.visitVarInsn(Opcodes.ALOAD, value);
+					mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/lang/CharSequence", "length", "()I", true);
+					mv.visitJumpInsn(Opcodes.IFEQ, next);
+					mv.visitVarInsn(Opcodes.ALOAD, 0);
+					mv.visitVarInsn(Opcodes.ALOAD, value);
+					mv.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(parser(type)), "parse", 
+							"(Ljava/lang/CharSequence;)"+Type.getDescriptor(type), false);
+					mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, clazzInternalName, setters.get(name).getName(), setterDesc, false);
+				}
+				else if(type.isPrimitive()) {
+					// @Parameter(converter=...): a null value leaves the field untouched
+					mv.visitVarInsn(Opcodes.ALOAD, 3);
+					StringSwitch.push(mv, i);
+					mv.visitInsn(Opcodes.AALOAD);
+					mv.visitVarInsn(Opcodes.ALOAD, values);
+					mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, CONVERTER, "convert", "(Ljava/util/List;)Ljava/lang/Object;", true);
+					mv.visitVarInsn(Opcodes.ASTORE, value);
+					mv.visitVarInsn(Opcodes.ALOAD, value);
+					mv.visitJumpInsn(Opcodes.IFNULL, next);
+					mv.visitVarInsn(Opcodes.ALOAD, 0);
+					mv.visitVarInsn(Opcodes.ALOAD, value);
+					unbox(mv, type);
+					mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, clazzInternalName, setters.get(name).getName(), setterDesc, false);
+				}
+				else {
+					mv.visitVarInsn(Opcodes.ALOAD, 0);
+					mv.visitVarInsn(Opcodes.ALOAD, 3);
+					StringSwitch.push(mv, i);
+					mv.visitInsn(Opcodes.AALOAD);
+					mv.visitVarInsn(Opcodes.ALOAD, values);
+					mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, CONVERTER, "convert", "(Ljava/util/List;)Ljava/lang/Object;", true);
+					mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(type));
+					mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, clazzInternalName, setters.get(name).getName(), setterDesc, false);
+				}
+			}
+			mv.visitLabel(next);
+		}
+		mv.visitInsn(Opcodes.RETURN);
+		
+		Label l1 = new Label();
+		mv.visitLabel(l1);
+		mv.visitLocalVariable("this", clazzDescriptor, null, l0, l1, 0);
+		mv.visitLocalVariable("parameters", "Ljava/util/Map;", null, l0, l1, 1);
+		mv.visitLocalVariable("files", "Ljava/util/Map;", null, l0, l1, 2);
+		mv.visitLocalVariable("converters", "[L"+CONVERTER+";", null, l0, l1, 3);
+		if(selective)
+			mv.visitLocalVariable("selected", "[Z", null, l0, l1, 4);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+	
+	/**
+	 * @return converter whose static parse(CharSequence) parses values of the primitive type
+	 */
+	private static Class<?> parser(Class<?> type) {
+		if(type == boolean.class)
+			return PrimitiveBooleanConverter.class;
+		if(type == double.class)
+			return PrimitiveDoubleConverter.class;
+		if(type == int.class)
+			return PrimitiveIntConverter.class;
+		if(type == long.class)
+			return PrimitiveLongConverter.class;
+		throw new IllegalArgumentException("primitive type "+type.getName()+" is not supported");
+	}
+	
+	/**
+	 * @return internal name of the wrapper of the primitive type
+	 */
+	private static String wrapper(Class<?> type) {
+		switch(Type.getType(type).getSort()) {
+			case Type.BOOLEAN: return "java/lang/Boolean";
+			case Type.BYTE: return "java/lang/Byte";
+			case Type.CHAR: return "java/lang/Character";
+			case Type.SHORT: return "java/lang/Short";
+			case Type.INT: return "java/lang/Integer";
+			case Type.LONG: return "java/lang/Long";
+			case Type.FLOAT: return "java/lang/Float";
+			case Type.DOUBLE: return "java/lang/Double";
+		}
+		throw new IllegalArgumentException(type.getName()+" is not primitive");
+	}
+	
+	/**
+	 * Pushes the Class of the type; int.class is Integer.TYPE, as primitive types have no class constant
+	 */
+	public static void pushClass(MethodVisitor mv, Class<?> type) {
+		if(type.isPrimitive())
+			mv.visitFieldInsn(Opcodes.GETSTATIC, wrapper(type), "TYPE", "Ljava/lang/Class;");
+		else
+			mv.visitLdcInsn(Type.getType(type));
+	}
+	
+	/**
+	 * Boxes the primitive value on top of the stack, so it can be returned as Object
+	 */
+	public static void box(MethodVisitor mv, Class<?> type) {
+		if(!type.isPrimitive())
+			return;
+		String wrapper = wrapper(type);
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, wrapper, "valueOf", "("+Type.getDescriptor(type)+")L"+wrapper+";", false);
+	}
+	
+	/**
+	 * Casts the Object on top of the stack to the type, unboxing it if primitive
+	 */
+	public static void unbox(MethodVisitor mv, Class<?> type) {
+		if(!type.isPrimitive()) {
+			mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(type));
+			return;
+		}
+		String wrapper = wrapper(type);
+		mv.visitTypeInsn(Opcodes.CHECKCAST, wrapper);
+		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, wrapper, type.getName()+"Value", "()"+Type.getDescriptor(type), false);
+	}
+}
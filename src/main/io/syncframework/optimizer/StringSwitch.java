@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Generates the code of a switch over a String the same way javac compiles it: a lookupswitch on the
+ * String.hashCode() followed by String.equals() only against the cases sharing the same hash.
+ * 
+ * @author dfroz
+ */
+public class StringSwitch {
+	/**
+	 * @param mv method being generated
+	 * @param variable index of the local variable holding the String
+	 * @param keys cases of the switch
+	 * @param labels label of each case, in the same order of the keys
+	 * @param defaultLabel label where the code continues if none of the cases matches
+	 */
+	public static void generate(MethodVisitor mv, int variable, List<String> keys, Label labels[], Label defaultLabel) {
+		if(keys.isEmpty()) {
+			mv.visitJumpInsn(Opcodes.GOTO, defaultLabel);
+			return;
+		}
+		
+		// cases grouped and sorted by hash, as required by the lookupswitch
+		TreeMap<Integer, List<Integer>> buckets = new TreeMap<Integer, List<Integer>>();
+		for(int i=0; i < keys.size(); i++) {
+			Integer hash = keys.get(i).hashCode();
+			List<Integer> bucket = buckets.get(hash);
+			if(bucket == null) {
+				bucket = new ArrayList<Integer>(1);
+				buckets.put(hash, bucket);
+			}
+			bucket.add(i);
+		}
+		
+		int hashes[] = new int[buckets.size()];
+		Label hashLabels[] = new Label[buckets.size()];
+		int i = 0;
+		for(Integer hash: buckets.keySet()) {
+			hashes[i] = hash;
+			hashLabels[i] = new Label();
+			i++;
+		}
+		
+		mv.visitVarInsn(Opcodes.ALOAD, variable);
+		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "hashCode", "()I", false);
+		mv.visitLookupSwitchInsn(defaultLabel, hashes, hashLabels);
+		
+		i = 0;
+		for(Map.Entry<Integer, List<Integer>> bucket: buckets.entrySet()) {
+			mv.visitLabel(hashLabels[i++]);
+			for(Integer key: bucket.getValue()) {
+				mv.visitVarInsn(Opcodes.ALOAD, variable);
+				mv.visitLdcInsn(keys.get(key));
+				mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
+				mv.visitJumpInsn(Opcodes.IFNE, labels[key]);
+			}
+			mv.visitJumpInsn(Opcodes.GOTO, defaultLabel);
+		}
+	}
+	
+	/**
+	 * Pushes the int constant with the shortest instruction
+	 */
+	public static void push(MethodVisitor mv, int value) {
+		if(value >= -1 && value <= 5)
+			mv.visitInsn(Opcodes.ICONST_0 + value);
+		else if(value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+			mv.visitIntInsn(Opcodes.BIPUSH, value);
+		else if(value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+			mv.visitIntInsn(Opcodes.SIPUSH, value);
+		else
+			mv.visitLdcInsn(value);
+	}
+}
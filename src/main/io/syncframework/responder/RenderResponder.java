@@ -15,7 +15,7 @@
  */
 package io.syncframework.responder;
 
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.HashMap;
@@ -146,8 +146,11 @@ public class RenderResponder implements Responder {
 			log.trace("render template attributes mapped");
 		}
 		
-		ByteArrayOutputStream bos = (ByteArrayOutputStream)response.getOutputStream();
-		bos.reset();
+		// streamed output sends the headers along with the first chunk
+		if(rr.isStreaming())
+			setHeaders(response, rr);
+		
+		OutputStream os = response.getOutputStream();
 		
 		try {
 			Configuration cfg = (Configuration)context.get(TEMPLATE_ENGINE);
@@ -169,9 +172,9 @@ public class RenderResponder implements Responder {
 			}
 			
 			response.setCode(Response.Code.OK);
-			PrintWriter writer = new PrintWriter(new OutputStreamWriter(bos, this.charset));
+			PrintWriter writer = new PrintWriter(new OutputStreamWriter(os, this.charset));
 			template.process(attributes, writer);
-			bos.flush();
+			writer.flush();
 		}
 		catch(TemplateException e) {
 			StringBuffer sb = new StringBuffer();
@@ -183,11 +186,24 @@ public class RenderResponder implements Responder {
 			sb.append(ExceptionUtils.printStackTraceHtml(e));
 			// sb.append("Caused by: ").append(ExceptionUtils.printStackTraceHtml(e.getCauseException()));
 			response.setCode(Response.Code.INTERNAL_ERROR);
-			response.getOutputStream().write(sb.toString().getBytes());
-			bos.flush();
+			os.write(sb.toString().getBytes());
+			os.flush();
 			return;
 		}
 		
+		if(!rr.isStreaming())
+			setHeaders(response, rr);
+		
+		//
+		// clear errors after successful render
+		//
+		response.getSession().getErrorContext().clear();
+	}
+	
+	/**
+	 * Content-Type, cookies and the RenderResult headers
+	 */
+	private void setHeaders(Response response, RenderResult rr) {
 		// Content-type
 		
 		String contentType = "text/html; charset="+this.charset;
@@ -223,10 +239,5 @@ public class RenderResponder implements Responder {
 		for(String key: rr.getHeaders().keySet()) {
 			response.getHeaders().put(key, rr.getHeaders().get(key));
 		}
-		
-		//
-		// clear errors after successful render
-		//
-		session.getErrorContext().clear();
 	}
 }
\ No newline at end of file
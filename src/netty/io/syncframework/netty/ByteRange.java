@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.netty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Byte range of a Range: bytes=... request header, as defined by RFC 7233.
+ * 
+ * @author dfroz
+ */
+public class ByteRange {
+	/**
+	 * more ranges than this are not worth the multipart overhead; the whole file is returned instead
+	 */
+	public static final int MAX_RANGES = 16;
+	private static final String BYTES_UNIT = "bytes=";
+	private final long start;
+	private final long end;
+	
+	public ByteRange(long start, long end) {
+		this.start = start;
+		this.end = end;
+	}
+	
+	public long getStart() {
+		return start;
+	}
+	
+	/**
+	 * @return last byte position, inclusive
+	 */
+	public long getEnd() {
+		return end;
+	}
+	
+	public long getLength() {
+		return end - start + 1;
+	}
+	
+	/**
+	 * @return Content-Range header value
+	 */
+	public String toContentRange(long length) {
+		return "bytes "+start+"-"+end+"/"+length;
+	}
+	
+	public String toString() {
+		return start+"-"+end;
+	}
+	
+	/**
+	 * @param value Range header value
+	 * @param length file length
+	 * @return satisfiable ranges, clipped to the file length; empty if none is satisfiable (416) or null if the
+	 * header is malformed or not worth honoring, in which case the whole file is returned
+	 */
+	public static List<ByteRange> parse(String value, long length) {
+		if(value == null || !value.startsWith(BYTES_UNIT))
+			return null;
+		
+		List<ByteRange> ranges = new ArrayList<ByteRange>();
+		String specs[] = value.substring(BYTES_UNIT.length()).split(",");
+		if(specs.length > MAX_RANGES)
+			return null;
+		for(String spec: specs) {
+			spec = spec.trim();
+			int p = spec.indexOf('-');
+			if(p == -1)
+				return null;
+			long start;
+			long end;
+			try {
+				if(p == 0) {
+					// suffix range: last n bytes
+					long suffix = Long.parseLong(spec.substring(1));
+					if(suffix <= 0)
+						continue;
+					start = Math.max(0, length - suffix);
+					end = length - 1;
+				}
+				else {
+					start = Long.parseLong(spec.substring(0, p));
+					end = p == spec.length()-1 ? length - 1 : Math.min(Long.parseLong(spec.substring(p+1)), length - 1);
+					if(end < start && start < length)
+						return null;
+				}
+			}
+			catch(NumberFormatException e) {
+				return null;
+			}
+			if(start < 0)
+				return null;
+			if(start >= length)
+				continue;
+			ranges.add(new ByteRange(start, end));
+		}
+		return ranges;
+	}
+}
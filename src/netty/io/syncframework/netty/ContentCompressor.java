@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.netty;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.syncframework.core.ServerConfig;
+
+/**
+ * Compresses dynamic response bodies with gzip or deflate, as accepted by the client. The Deflaters are reused
+ * from a bounded pool; those not fitting in the pool are ended so their native memory is freed right away.
+ * 
+ * @author dfroz
+ */
+public class ContentCompressor {
+	public static final String GZIP = "gzip";
+	public static final String DEFLATE = "deflate";
+	private static final byte GZIP_HEADER[] = { 0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte)0xff };
+	private final int level;
+	private final int minSize;
+	private final Set<String> types = new HashSet<String>();
+	private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+	/**
+	 * raw deflate; the gzip header and trailer are written by compress()
+	 */
+	private final BlockingQueue<Deflater> gzipDeflaters = new ArrayBlockingQueue<Deflater>(POOL_SIZE);
+	private final BlockingQueue<Deflater> deflateDeflaters = new ArrayBlockingQueue<Deflater>(POOL_SIZE);
+	
+	private ContentCompressor(ServerConfig config) {
+		this.level = config.getCompressionLevel();
+		this.minSize = config.getCompressionMinSize();
+		for(String type: config.getCompressionTypes().split(",")) {
+			type = type.trim().toLowerCase();
+			if(!type.isEmpty())
+				types.add(type);
+		}
+	}
+	
+	/**
+	 * @return compressor configured by the server.properties or null if compression is disabled
+	 */
+	public static ContentCompressor create(ServerConfig config) {
+		if(!config.getCompression())
+			return null;
+		return new ContentCompressor(config);
+	}
+	
+	/**
+	 * @return true if the content type is listed by compression.types; its parameters are ignored
+	 */
+	public boolean isCompressible(String contentType) {
+		if(contentType == null)
+			return false;
+		int p = contentType.indexOf(';');
+		if(p != -1)
+			contentType = contentType.substring(0, p);
+		return types.contains(contentType.trim().toLowerCase());
+	}
+	
+	/**
+	 * @return true if the body is large enough to be worth compressing
+	 */
+	public boolean isCompressible(int length) {
+		return length >= minSize;
+	}
+	
+	/**
+	 * @param acceptEncoding Accept-Encoding request header
+	 * @return gzip or deflate, gzip preferred, or null if the client accepts neither
+	 */
+	public static String selectEncoding(String acceptEncoding) {
+		if(isAccepted(acceptEncoding, GZIP))
+			return GZIP;
+		if(isAccepted(acceptEncoding, DEFLATE))
+			return DEFLATE;
+		return null;
+	}
+	
+	/**
+	 * @return true if the encoding is listed by the Accept-Encoding header, or else *, and none of its entries has
+	 * a zero quality; an entry naming the encoding takes precedence over *
+	 */
+	public static boolean isAccepted(String acceptEncoding, String encoding) {
+		if(acceptEncoding == null)
+			return false;
+		// 1 when accepted, 0 when refused, -1 when not listed
+		int named = -1;
+		int any = -1;
+		for(String coding: acceptEncoding.split(",")) {
+			boolean accepted = true;
+			int p = coding.indexOf(';');
+			if(p != -1) {
+				accepted = quality(coding.substring(p+1)) > 0;
+				coding = coding.substring(0, p);
+			}
+			coding = coding.trim();
+			if(coding.equalsIgnoreCase(encoding))
+				named = named == 0 || !accepted ? 0 : 1;
+			else if(coding.equals("*"))
+				any = any == 0 || !accepted ? 0 : 1;
+		}
+		if(named != -1)
+			return named == 1;
+		return any == 1;
+	}
+	
+	/**
+	 * @return the q parameter among the parameters of an Accept-Encoding entry, 1 if absent or 0 if malformed
+	 */
+	private static double quality(String parameters) {
+		for(String parameter: parameters.split(";")) {
+			parameter = parameter.trim();
+			if(!parameter.startsWith("q=") && !parameter.startsWith("Q="))
+				continue;
+			try {
+				return Double.parseDouble(parameter.substring(2).trim());
+			}
+			catch(NumberFormatException e) {
+				return 0;
+			}
+		}
+		return 1;
+	}
+	
+	/**
+	 * @return buffer allocated from alloc with the readable bytes of content compressed with the encoding
+	 */
+	public ByteBuf compress(ByteBuf content, String encoding, ByteBufAllocator alloc) {
+		int length = content.readableBytes();
+		if(content.hasArray())
+			return compress(content.array(), content.arrayOffset() + content.readerIndex(), length, encoding, alloc);
+		// Deflater only reads arrays
+		byte b[] = new byte[length];
+		content.getBytes(content.readerIndex(), b);
+		return compress(b, 0, length, encoding, alloc);
+	}
+	
+	/**
+	 * @return buffer allocated from alloc with the content compressed with the encoding
+	 */
+	public ByteBuf compress(byte b[], int offset, int length, String encoding, ByteBufAllocator alloc) {
+		boolean gzip = GZIP.equals(encoding);
+		BlockingQueue<Deflater> pool = gzip ? gzipDeflaters : deflateDeflaters;
+		Deflater deflater = pool.poll();
+		if(deflater == null)
+			deflater = new Deflater(level, gzip);
+		
+		ByteBuf out = alloc.heapBuffer(length / 2 + 64);
+		try {
+			deflater.setInput(b, offset, length);
+			deflater.finish();
+			if(gzip)
+				out.writeBytes(GZIP_HEADER);
+			while(!deflater.finished()) {
+				out.ensureWritable(4096);
+				int n = deflater.deflate(out.array(), out.arrayOffset() + out.writerIndex(), out.writableBytes());
+				out.writerIndex(out.writerIndex() + n);
+			}
+		}
+		catch(RuntimeException e) {
+			out.release();
+			throw e;
+		}
+		finally {
+			deflater.reset();
+			if(!pool.offer(deflater))
+				deflater.end();
+		}
+		if(gzip) {
+			CRC32 crc = new CRC32();
+			crc.update(b, offset, length);
+			out.writeIntLE((int)crc.getValue());
+			out.writeIntLE(length);
+		}
+		return out;
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.netty;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.syncframework.core.ServerConfig;
+
+/**
+ * First handler of the pipeline. Looks at the first bytes received: when they are the HTTP/2 connection preface
+ * (prior knowledge), the HTTP/1.x codecs are replaced by the HTTP/2 connection handler; otherwise it simply
+ * removes itself. Either way the bytes read so far are passed on untouched.
+ *
+ * @author dfroz
+ */
+public class Http2PriorKnowledgeHandler extends ByteToMessageDecoder {
+	private static final Logger log = LoggerFactory.getLogger(Http2PriorKnowledgeHandler.class);
+	private static final ByteBuf PREFACE = Http2CodecUtil.connectionPrefaceBuf();
+	private final ServerConfig config;
+
+	public Http2PriorKnowledgeHandler(ServerConfig config) {
+		this.config = config;
+	}
+
+	@Override
+	protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+		int length = Math.min(in.readableBytes(), PREFACE.readableBytes());
+		ChannelPipeline pipeline = ctx.pipeline();
+		if(!ByteBufUtil.equals(in, in.readerIndex(), PREFACE, PREFACE.readerIndex(), length)) {
+			// HTTP/1.x
+			pipeline.remove(this);
+			return;
+		}
+		if(length < PREFACE.readableBytes()) {
+			// wait for the remaining of the preface
+			return;
+		}
+
+		if(log.isTraceEnabled())
+			log.trace("HTTP/2 with prior knowledge on connection {}", ctx.channel());
+		pipeline.remove(HttpServerCodec.class);
+		pipeline.remove(HttpServerUpgradeHandler.class);
+		pipeline.replace(this, null, Http2StreamHandler.newConnectionHandler(config));
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.netty;
+
+import java.util.concurrent.ExecutorService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler.UpgradeCodec;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler.UpgradeCodecFactory;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler.UpgradeEvent;
+import io.netty.handler.codec.http2.DefaultHttp2Connection;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2Connection;
+import io.netty.handler.codec.http2.Http2ConnectionHandler;
+import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.HttpConversionUtil.ExtensionHeaderNames;
+import io.netty.handler.codec.http2.HttpToHttp2ConnectionHandlerBuilder;
+import io.netty.handler.codec.http2.InboundHttp2ToHttpAdapter;
+import io.netty.handler.codec.http2.InboundHttp2ToHttpAdapterBuilder;
+import io.netty.util.AsciiString;
+import io.netty.util.ReferenceCountUtil;
+import io.syncframework.core.Server;
+import io.syncframework.core.ServerConfig;
+
+/**
+ * Routes the requests of HTTP/2 streams, translated to FullHttpRequest by the InboundHttp2ToHttpAdapter,
+ * to a RequestHandler created for each stream; so the streams of a connection are handled concurrently.
+ * HTTP/1.x messages are passed on to the connection's RequestHandler.
+ *
+ * The request which upgraded the connection (h2c) is answered over the stream 1.
+ *
+ * @author dfroz
+ */
+public class Http2StreamHandler extends ChannelInboundHandlerAdapter {
+	private static final Logger log = LoggerFactory.getLogger(Http2StreamHandler.class);
+	private final Server server;
+	private final ExecutorService dispatcher;
+	private final ContentCompressor compressor;
+
+	public Http2StreamHandler(Server server, ExecutorService dispatcher, ContentCompressor compressor) {
+		this.server = server;
+		this.dispatcher = dispatcher;
+		this.compressor = compressor;
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if(msg instanceof FullHttpRequest) {
+			FullHttpRequest request = (FullHttpRequest)msg;
+			if(request.headers().contains(ExtensionHeaderNames.STREAM_ID.text())) {
+				if(log.isTraceEnabled())
+					log.trace("handling HTTP/2 stream {}: {}", request.headers().get(ExtensionHeaderNames.STREAM_ID.text()), request.uri());
+				// RequestHandler releases the message
+				new RequestHandler(server, dispatcher, compressor, true).channelRead(ctx, request);
+				return;
+			}
+		}
+		ctx.fireChannelRead(msg);
+	}
+
+	@Override
+	public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+		if(evt instanceof UpgradeEvent) {
+			UpgradeEvent event = (UpgradeEvent)evt;
+			try {
+				if(log.isTraceEnabled())
+					log.trace("connection {} upgraded to {}", ctx.channel(), event.protocol());
+				FullHttpRequest request = event.upgradeRequest().retain();
+				request.headers().setInt(ExtensionHeaderNames.STREAM_ID.text(), Http2CodecUtil.HTTP_UPGRADE_STREAM_ID);
+				new RequestHandler(server, dispatcher, compressor, true).channelRead(ctx, request);
+			}
+			finally {
+				ReferenceCountUtil.release(event);
+			}
+			return;
+		}
+		ctx.fireUserEventTriggered(evt);
+	}
+
+	/**
+	 * @return HTTP/2 connection handler converting the streams to and from HTTP/1.x messages
+	 */
+	public static Http2ConnectionHandler newConnectionHandler(ServerConfig config) {
+		Http2Connection connection = new DefaultHttp2Connection(true);
+		InboundHttp2ToHttpAdapter listener = new InboundHttp2ToHttpAdapterBuilder(connection)
+				.maxContentLength(config.getHttp2MaxContentLength())
+				.propagateSettings(false)
+				.validateHttpHeaders(false)
+				.build();
+
+		Http2Settings settings = new Http2Settings();
+		settings.maxConcurrentStreams(config.getHttp2MaxConcurrentStreams());
+		settings.initialWindowSize(config.getHttp2InitialWindowSize());
+		settings.maxFrameSize(config.getHttp2MaxFrameSize());
+		settings.maxHeaderListSize(config.getHttp2MaxHeaderListSize());
+
+		return new HttpToHttp2ConnectionHandlerBuilder()
+				.server(true)
+				.connection(connection)
+				.frameListener(listener)
+				.initialSettings(settings)
+				.build();
+	}
+
+	/**
+	 * @return factory accepting the h2c upgrade
+	 */
+	public static UpgradeCodecFactory newUpgradeCodecFactory(final ServerConfig config) {
+		return new UpgradeCodecFactory() {
+			@Override
+			public UpgradeCodec newUpgradeCodec(CharSequence protocol) {
+				if(AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol))
+					return new Http2ServerUpgradeCodec(newConnectionHandler(config));
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * @return handler upgrading HTTP/1.1 connections to h2c
+	 */
+	public static HttpServerUpgradeHandler newUpgradeHandler(HttpServerUpgradeHandler.SourceCodec codec, ServerConfig config) {
+		return new HttpServerUpgradeHandler(codec, newUpgradeCodecFactory(config), config.getHttp2MaxContentLength());
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.netty;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.syncframework.core.ServerConfig;
+import io.syncframework.util.StandardThread;
+
+/**
+ * Creates the executor running the dynamic requests (interceptors, @Controller actions and rendering)
+ * away from the Netty event loops, so a blocking @Action holds its own thread instead of every connection
+ * served by the same event loop.
+ *
+ * virtual mode runs each request on its own virtual thread, when the JVM supports them, falling back to pool mode.
+ * pool mode uses a bounded pool of platform threads with a bounded queue.
+ * loop mode keeps the dispatch on the event loop; no executor is created.
+ *
+ * @author dfroz
+ */
+public class RequestDispatcher {
+	private static final Logger log = LoggerFactory.getLogger(RequestDispatcher.class);
+	public static final String MODE_LOOP = "loop";
+	public static final String MODE_POOL = "pool";
+	public static final String MODE_VIRTUAL = "virtual";
+
+	/**
+	 * @return the dispatch executor or null if dynamic requests shall be handled on the event loop
+	 */
+	public static ExecutorService create(ServerConfig config) {
+		String mode = config.getDispatchMode();
+		if(MODE_LOOP.equalsIgnoreCase(mode)) {
+			if(log.isInfoEnabled())
+				log.info("dispatching dynamic requests on the event loop");
+			return null;
+		}
+		if(MODE_VIRTUAL.equalsIgnoreCase(mode)) {
+			ExecutorService executor = newVirtualThreadExecutor();
+			if(executor != null) {
+				if(log.isInfoEnabled())
+					log.info("dispatching dynamic requests on virtual threads");
+				return executor;
+			}
+			if(log.isInfoEnabled())
+				log.info("virtual threads are not supported by this JVM; falling back to pool dispatch mode");
+		}
+		else if(!MODE_POOL.equalsIgnoreCase(mode)) {
+			throw new IllegalArgumentException("invalid dispatch.mode: "+mode);
+		}
+
+		int size = config.getDispatchPoolSize();
+		if(log.isInfoEnabled())
+			log.info("dispatching dynamic requests on a pool of {} threads", size);
+		return new ThreadPoolExecutor(size, size, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(config.getDispatchQueueSize()), new DispatcherThreadFactory());
+	}
+
+	/**
+	 * Executors.newVirtualThreadPerTaskExecutor() is looked up reflectively as it is only available on Java 21+
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService)method.invoke(null);
+		}
+		catch(Exception e) {
+			if(log.isTraceEnabled())
+				log.trace("failed to create virtual thread executor: {}", e.toString());
+			return null;
+		}
+	}
+
+	private static class DispatcherThreadFactory implements ThreadFactory {
+		private final AtomicInteger counter = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new StandardThread(runnable, "dispatcher-"+counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -16,38 +16,53 @@
 package io.syncframework.netty;
 
 import static io.netty.buffer.Unpooled.copiedBuffer;
+import static io.netty.handler.codec.http.HttpHeaderNames.ACCEPT_RANGES;
 import static io.netty.handler.codec.http.HttpHeaderNames.CACHE_CONTROL;
 import static io.netty.handler.codec.http.HttpHeaderNames.CONNECTION;
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_RANGE;
 import static io.netty.handler.codec.http.HttpHeaderNames.DATE;
+import static io.netty.handler.codec.http.HttpHeaderNames.ETAG;
 import static io.netty.handler.codec.http.HttpHeaderNames.EXPIRES;
+import static io.netty.handler.codec.http.HttpHeaderNames.IF_MODIFIED_SINCE;
+import static io.netty.handler.codec.http.HttpHeaderNames.IF_NONE_MATCH;
+import static io.netty.handler.codec.http.HttpHeaderNames.IF_RANGE;
 import static io.netty.handler.codec.http.HttpHeaderNames.LAST_MODIFIED;
+import static io.netty.handler.codec.http.HttpHeaderNames.RANGE;
 import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_MODIFIED;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpResponseStatus.PARTIAL_CONTENT;
+import static io.netty.handler.codec.http.HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.net.InetSocketAddress;
 import java.net.URLDecoder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.GregorianCalendar;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.util.TimeZone;
+import java.util.Queue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
@@ -56,13 +71,18 @@ import io.netty.channel.ChannelProgressiveFuture;
 import io.netty.channel.ChannelProgressiveFutureListener;
 import io.netty.channel.DefaultFileRegion;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpConstants;
 import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpObject;
 import io.netty.handler.codec.http.HttpRequest;
@@ -80,9 +100,13 @@ import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.EndOfDataDec
 import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.ErrorDataDecoderException;
 import io.netty.handler.codec.http.multipart.InterfaceHttpData;
 import io.netty.handler.codec.http.multipart.InterfaceHttpData.HttpDataType;
+import io.netty.handler.codec.http2.HttpConversionUtil.ExtensionHeaderNames;
+import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
 import io.syncframework.api.ApplicationContext;
 import io.syncframework.api.FileResult;
+import io.syncframework.api.RenderResult;
 import io.syncframework.api.RequestContext;
 import io.syncframework.api.Result;
 import io.syncframework.core.Application;
@@ -92,11 +116,12 @@ import io.syncframework.core.ControllerBeanException;
 import io.syncframework.core.ControllerFactory;
 import io.syncframework.core.InterceptorBean;
 import io.syncframework.core.InterceptorBeanException;
-import io.syncframework.core.InterceptorFactory;
 import io.syncframework.core.Response;
 import io.syncframework.core.Server;
+import io.syncframework.core.ServerConfig;
 import io.syncframework.core.Session;
 import io.syncframework.core.SessionFactory;
+import io.syncframework.core.URLRouter;
 import io.syncframework.responder.Responder;
 import io.syncframework.responder.ResponderFactory;
 import io.syncframework.util.ExceptionUtils;
@@ -105,13 +130,27 @@ import io.syncframework.util.ExceptionUtils;
  * Main request handler class. Please note that this class handles partial requests, so handling both small requests 
  * and file upload requests.
  * 
+ * One instance is bound to each channel. Persistent (keep-alive) connections reuse the same RequestWrapper and Response,
+ * which are recycled once each response has been written. Requests are handled one at a time in the order they arrive,
+ * so pipelined requests are answered in order.
+ * 
+ * Static files are served on the event loop. Dynamic requests are handed to the dispatcher executor, when configured;
+ * meanwhile the channel stops reading and any message already decoded is queued until the response has been written.
+ * Asynchronous @Actions suspend the request without holding any thread; the cycle is completed when their
+ * CompletionStage<Result> completes.
+ * 
+ * HTTP/2 streams are handled by instances created per stream by the Http2StreamHandler, sharing the channel.
+ * The connection handler sends content on the stream of the last response head written, so the response of a stream
+ * is always written as a single FullHttpResponse: a head and its content written apart could be split by the head
+ * of a concurrent stream. Streaming, file regions and chunked files are not used for HTTP/2.
+ * 
  * @author dfroz
  */
 public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 	private static final Logger log = LoggerFactory.getLogger(RequestHandler.class);
-	private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
-	private static final String HTTP_DATE_GMT_TIMEZONE = "GMT";
 	private static final int HTTP_CACHE_SECONDS = 60;
+	private static final String GZIP_SUFFIX = ".gz";
+	private static final int BODY_BUFFER_SIZE = 8 * 1024;
 	private static String charset;
 	private Application application;
 	private String domain;
@@ -119,11 +158,35 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 	private HttpRequest request;
 	private final RequestWrapper requestWrapper = new RequestWrapper();
 	private final Response response = new Response();
+	private final URLRouter.Match match = new URLRouter.Match();
+	private ByteBufOutputStream body;
+	private StreamingOutputStream streamed;
 	private HttpPostRequestDecoder decoder;
+	private boolean keepAlive;
+	private final boolean stream;
+	private String streamId;
+	private int requests;
+	private ChannelFuture lastWriteFuture;
+	private final ExecutorService dispatcher;
+	private final ContentCompressor compressor;
+	private boolean dispatching;
+	private AsyncAction suspended;
+	private final Queue<HttpObject> pending = new LinkedList<HttpObject>();
 	private static final HttpDataFactory factory = new DefaultHttpDataFactory(8 * 1024);
 	
-	public RequestHandler(Server server) {
+	public RequestHandler(Server server, ExecutorService dispatcher, ContentCompressor compressor) {
+		this(server, dispatcher, compressor, false);
+	}
+	
+	/**
+	 * @param compressor compresses dynamic responses; null if compression is disabled
+	 * @param stream true when handling a single HTTP/2 stream; responses are tagged with its stream id
+	 */
+	public RequestHandler(Server server, ExecutorService dispatcher, ContentCompressor compressor, boolean stream) {
 		this.server = server;
+		this.dispatcher = dispatcher;
+		this.compressor = compressor;
+		this.stream = stream;
 		// default @Server charset
 		charset = Charset.defaultCharset().name();
 	}
@@ -132,6 +195,11 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
 		if(log.isTraceEnabled())
 			log.trace("channelInactive()");
+		releasePending();
+		if(dispatching) {
+			// the dispatched request still owns the decoder, wrapper and response; it will reset them
+			return;
+		}
 		if (decoder != null) {
 			decoder.cleanFiles();
 			decoder.destroy();
@@ -139,11 +207,34 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 		reset();
 	}
 	
+	@Override
+	public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+		if(evt instanceof IdleStateEvent) {
+			// close idle persistent connections, but never in the middle of a request or of a file transfer
+			if(!dispatching && request == null && (lastWriteFuture == null || lastWriteFuture.isDone())) {
+				if(log.isTraceEnabled())
+					log.trace("closing idle connection {}", ctx.channel());
+				ctx.close();
+			}
+			return;
+		}
+		super.userEventTriggered(ctx, evt);
+	}
+	
 	@Override
 	protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg)
 			throws Exception {
+		if(dispatching) {
+			// decoded together with the request being dispatched; handled once it has been answered
+			pending.add(ReferenceCountUtil.retain(msg));
+			return;
+		}
 		if(msg instanceof HttpRequest) {
 			this.request = (HttpRequest)msg;
+			this.requests++;
+			this.keepAlive = isKeepAlive(request);
+			if(stream)
+				this.streamId = request.headers().get(ExtensionHeaderNames.STREAM_ID.text());
 			
 			//
 			// Verify application's domain. This is a common code to both static and dynamic request handlers... 
@@ -177,10 +268,8 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 					requestWrapper.getRequestContext().put(RequestContext.URL, this.request.uri());
 					requestWrapper.getRequestContext().put(RequestContext.REMOTE_ADDRESS, this.request.headers().getAsString("X-SAS-Client"));
 					
-					if(handleRequestDynamically(ctx)) {
-						// no need to continue as the action has been taken by the application
-						return;
-					}
+					dispatch(ctx);
+					return;
 				}
 				else {
 					if(handleRequestStatically(ctx)) {
@@ -196,14 +285,9 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 					InetSocketAddress isa = (InetSocketAddress)ctx.channel().remoteAddress();
 					requestWrapper.getRequestContext().put(RequestContext.REMOTE_ADDRESS, isa.getHostString());
 					
-					if(handleRequestDynamically(ctx)) {
-						// no need to continue as the page has been delivered
-						return;
-					}
+					dispatch(ctx);
+					return;
 				}
-				
-				sendFileNotFound(ctx);
-				return;
 			}
 
 			// treating POST requests...
@@ -214,8 +298,8 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 			} catch (ErrorDataDecoderException e1) {
 				// e1.printStackTrace();
 				log.error("failed to decode HTTP post request", e1);
+				keepAlive = false;
 				sendError(ctx, HttpResponseStatus.BAD_REQUEST);
-				ctx.channel().close();
 				return;
 			}			
 		}
@@ -227,8 +311,8 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 					decoder.offer(chunk);
 				} catch(Exception e) {
 					log.error("failed to decode HTTP post request", e);
+					keepAlive = false;
 					sendError(ctx, HttpResponseStatus.BAD_REQUEST);
-					ctx.channel().close();
 					return;
 				}
 
@@ -265,19 +349,128 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 						InetSocketAddress isa = (InetSocketAddress)ctx.channel().remoteAddress();
 						requestWrapper.getRequestContext().put(RequestContext.REMOTE_ADDRESS, isa.getHostString());
 					}
-					if(handleRequestDynamically(ctx)) {
-						// no need to continue as the action has been taken by the application
-						return;
-					}
-					sendFileNotFound(ctx);
+					dispatch(ctx);
 					return;
 				}
 			}
 		}
 		else {
-			sendFileNotFound(ctx);
+			//
+			// remaining content of a request which has already been answered (e.g. GET's LastHttpContent)
+			//
+			if(log.isTraceEnabled())
+				log.trace("discarding content of an already handled request");
+		}
+	}
+
+	/**
+	 * Handles the dynamic request on the event loop or hands it to the dispatcher executor. In the latter case
+	 * the channel stops reading until the response has been written, keeping pipelined responses in order.
+	 */
+	private void dispatch(final ChannelHandlerContext ctx) {
+		dispatching = true;
+		// responders write the body straight into a pooled buffer, allocated here on the event loop
+		body = new ByteBufOutputStream(ctx.alloc().directBuffer(BODY_BUFFER_SIZE));
+		response.setOutputStream(body);
+		if(dispatcher == null) {
+			handle(ctx);
 			return;
 		}
+		
+		if(!stream)
+			ctx.channel().config().setAutoRead(false);
+		try {
+			dispatcher.execute(new Runnable() {
+				@Override
+				public void run() {
+					handle(ctx);
+				}
+			});
+		}
+		catch(RejectedExecutionException e) {
+			log.warn("{}: dispatcher is saturated; rejecting request: {}", application, request.uri());
+			keepAlive = false;
+			sendError(ctx, HttpResponseStatus.SERVICE_UNAVAILABLE);
+			resume(ctx);
+		}
+	}
+	
+	/**
+	 * Runs the dynamic request. Asynchronous @Actions leave the request suspended until their result is available;
+	 * otherwise the channel is resumed right away.
+	 */
+	private void handle(final ChannelHandlerContext ctx) {
+		AsyncAction async = null;
+		try {
+			if(!handleRequestDynamically(ctx))
+				sendFileNotFound(ctx);
+		}
+		finally {
+			async = suspended;
+			suspended = null;
+		}
+		if(async == null) {
+			resumeLater(ctx);
+			return;
+		}
+		
+		if(dispatcher == null && !stream)
+			ctx.channel().config().setAutoRead(false);
+		// interceptors, responder and rendering run on the dispatcher, or on the event loop when there is none
+		Executor executor = dispatcher != null ? dispatcher : ctx.channel().eventLoop();
+		try {
+			async.stage.whenCompleteAsync(async, executor);
+		}
+		catch(RejectedExecutionException e) {
+			async.stage.whenComplete(async);
+		}
+	}
+	
+	private void resumeLater(final ChannelHandlerContext ctx) {
+		if(ctx.channel().eventLoop().inEventLoop()) {
+			resume(ctx);
+			return;
+		}
+		ctx.channel().eventLoop().execute(new Runnable() {
+			@Override
+			public void run() {
+				resume(ctx);
+			}
+		});
+	}
+	
+	/**
+	 * Called on the event loop once the dispatched request has been answered; handles the queued messages 
+	 * and resumes reading from the channel.
+	 */
+	private void resume(ChannelHandlerContext ctx) {
+		dispatching = false;
+		if(!ctx.channel().isActive()) {
+			releasePending();
+			reset();
+			return;
+		}
+		HttpObject msg = null;
+		while(!dispatching && (msg = pending.poll()) != null) {
+			try {
+				channelRead0(ctx, msg);
+			}
+			catch(Exception e) {
+				ctx.fireExceptionCaught(e);
+			}
+			finally {
+				ReferenceCountUtil.release(msg);
+			}
+		}
+		if(!dispatching && !stream && !ctx.channel().config().isAutoRead())
+			ctx.channel().config().setAutoRead(true);
+	}
+	
+	private void releasePending() {
+		HttpObject msg = null;
+		while((msg = pending.poll()) != null) {
+			ReferenceCountUtil.release(msg);
+		}
 	}
 
 	/**
@@ -383,10 +576,48 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 			return false;
 		}
 
+		StaticFileCache cache = null;
+		if(server.config().getStaticCache()) {
+			cache = StaticFileCache.getInstance(application, server.config());
+			if(!cache.contains(path)) {
+				// not a file under public/; left to the @Controllers without touching the filesystem
+				return false;
+			}
+		}
+		
 		File file = new File(application.getConfig().getPublicDirectory(), path);
 		response.setApplication(application);
 		response.setFile(file);
 		
+		//
+		// a pre-compressed sibling (style.css.gz) is served in place of the file to clients accepting gzip
+		//
+		String gzipPath = path + GZIP_SUFFIX;
+		boolean gzipped = cache != null ? cache.contains(gzipPath) : 
+			file.isFile() && new File(file.getPath() + GZIP_SUFFIX).isFile();
+		if(gzipped) {
+			response.getHeaders().put(HttpHeaderNames.VARY.toString(), HttpHeaderNames.ACCEPT_ENCODING.toString());
+			if(ContentCompressor.isAccepted(request.headers().get(HttpHeaderNames.ACCEPT_ENCODING), ContentCompressor.GZIP)) {
+				response.getHeaders().put(CONTENT_TYPE.toString(), MimeUtils.getContentType(file));
+				response.getHeaders().put(HttpHeaderNames.CONTENT_ENCODING.toString(), ContentCompressor.GZIP);
+				path = gzipPath;
+				file = new File(file.getPath() + GZIP_SUFFIX);
+				response.setFile(file);
+			}
+		}
+		
+		if(cache != null) {
+			StaticFile cached = cache.get(path);
+			if(cached != null) {
+				try {
+					return sendCachedFile(ctx, cached);
+				}
+				finally {
+					cached.release();
+				}
+			}
+		}
+		
 		return sendFile(ctx, response);
 	}
 
@@ -394,19 +625,21 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 		if(log.isTraceEnabled())
 			log.trace("handling request dynamically");
 
+		final ControllerBean controller = new ControllerBean();
+		SessionFactory sessionFactory = null;
+		Session session = null;
 		try {
 			Thread.currentThread().setContextClassLoader(application.getClassLoader());
 
-			final ControllerBean controller = new ControllerBean();
 			ControllerFactory controllerFactory = application.getControllerFactory();
-			if(!controllerFactory.find(controller, request.uri())) {
+			if(!controllerFactory.find(controller, request.uri(), match)) {
 				if(log.isTraceEnabled())
 					log.trace("no @Controller found to handle request: {}", request.uri());
 				// lead to not found
 				return false;
 			}
 
-			SessionFactory sessionFactory = application.getSessionFactory();
+			sessionFactory = application.getSessionFactory();
 			if(sessionFactory == null) {
 				log.error("application malfunction detected; SessionFactory is null");
 				sendError(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR);
@@ -420,13 +653,12 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 				return true;
 			}
 
-			Session session = sessionFactory.find(requestWrapper);
+			session = sessionFactory.find(requestWrapper);
 			requestWrapper.setSession(session);
 			response.setSession(session);
 			response.setApplication(application);
 
-			InterceptorFactory interceptorFactory = application.getInterceptorFactory();
-			InterceptorBean interceptors[] = interceptorFactory.find(controller.interceptedBy());
+			InterceptorBean interceptors[] = controller.getInterceptors();
 			if(interceptors != null) {
 				for(int i=0; i < interceptors.length; i++) {
 					//
@@ -443,6 +675,7 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 							sendError(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR);
 							return true;
 						}
+						startStreaming(ctx, interceptorResult, false);
 						responder.respond(response, interceptors[i], interceptorResult);
 						if(log.isTraceEnabled())
 							log.trace(interceptors[i]+".before() returned result: "+interceptorResult);
@@ -454,90 +687,400 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 				}
 			}
 
+			if(controller.isAsync()) {
+				//
+				// the request is suspended; completed by the AsyncAction when the @Action result is available
+				//
+				CompletionStage<Result> stage = controller.asyncAction(requestWrapper, response);
+				suspended = new AsyncAction(ctx, controller, interceptors, responderFactory, sessionFactory, session, stage);
+				return true;
+			}
+
 			//
 			// controller.action()
 			//
 			Result result = controller.action(requestWrapper, response);
-			if(result == null) {
-				log.error("@Controller "+controller+" has no @Action defined to handle request: "+requestWrapper.getUri());
-				// not found controller's action
-				return false;
+			return respond(ctx, controller, interceptors, responderFactory, result);
+		}
+		catch(Exception e) {
+			sendException(ctx, e);
+		}
+		finally {
+			// the suspended request releases the controller and the session once completed
+			if(suspended == null) {
+				controller.release();
+				if(session != null)
+					sessionFactory.complete(session);
 			}
-			if(log.isTraceEnabled())
-				log.trace(controller+" returned result: "+result);
+		}
+		return true;
+	}
+	
+	/**
+	 * Completes the request cycle with the @Action result: interceptors after(), responder and the response write.
+	 * @return false if there is no result, leading to not found
+	 */
+	private boolean respond(ChannelHandlerContext ctx, ControllerBean controller, InterceptorBean interceptors[], 
+			ResponderFactory responderFactory, Result result) throws Exception {
+		if(result == null) {
+			log.error("@Controller "+controller+" has no @Action defined to handle request: "+requestWrapper.getUri());
+			// not found controller's action
+			return false;
+		}
+		if(log.isTraceEnabled())
+			log.trace(controller+" returned result: "+result);
 
-			// interceptors after()
-			if(interceptors != null) {
-				for(int i=0; i < interceptors.length; i++) {
+		// interceptors after()
+		if(interceptors != null) {
+			for(int i=0; i < interceptors.length; i++) {
+				//
+				// default action is to return null; if not null, direct to response and end the req/resp cycle
+				//
+				Result interceptorResult = interceptors[i].after(requestWrapper, response);
+				if(interceptorResult != null) {
 					//
-					// default action is to return null; if not null, direct to response and end the req/resp cycle
+					// find the responder which will handle the result. populate data using the response object.
 					//
-					Result interceptorResult = interceptors[i].after(requestWrapper, response);
-					if(interceptorResult != null) {
-						//
-						// find the responder which will handle the result. populate data using the response object.
-						//
-						Responder responder = responderFactory.find(interceptorResult);
-						if(responder == null) {
-							log.error("no responder encountered to handle result: "+interceptorResult);
-							sendError(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR);
-							return true;
-						}
-						if(log.isTraceEnabled())
-							log.trace(interceptors[i]+".after() returned result: "+interceptorResult);
-						responder.respond(response, interceptors[i], interceptorResult);
-						if(interceptorResult instanceof FileResult)
-							return sendFile(ctx, response);
-						else
-							return sendResponse(ctx, response);
+					Responder responder = responderFactory.find(interceptorResult);
+					if(responder == null) {
+						log.error("no responder encountered to handle result: "+interceptorResult);
+						sendError(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+						return true;
 					}
+					if(log.isTraceEnabled())
+						log.trace(interceptors[i]+".after() returned result: "+interceptorResult);
+					responder.respond(response, interceptors[i], interceptorResult);
+					if(interceptorResult instanceof FileResult)
+						return sendFile(ctx, response);
+					else
+						return sendResponse(ctx, response);
 				}
 			}
+		}
 
-			//
-			// find the responder which will handle the result. populate data using the response object.
-			//
-			Responder responder = responderFactory.find(result);
-			if(responder == null) {
-				log.error("no responder encountered to handle result: "+result);
-				sendError(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR);
-				return true;
-			}
-			
-			responder.respond(response, controller, result);
-			
-			if(log.isTraceEnabled())
-				log.trace("{}: {} delivered response: {}", application, responder, result);
-			
-			if(result instanceof FileResult)
-				return sendFile(ctx, response);
-			else
-				return sendResponse(ctx, response);
-			
+		//
+		// find the responder which will handle the result. populate data using the response object.
+		//
+		Responder responder = responderFactory.find(result);
+		if(responder == null) {
+			log.error("no responder encountered to handle result: "+result);
+			sendError(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+			return true;
 		}
-		catch(Exception e) {
-			sendException(ctx, e);
+		
+		startStreaming(ctx, result, controller.isStreaming());
+		responder.respond(response, controller, result);
+		
+		if(log.isTraceEnabled())
+			log.trace("{}: {} delivered response: {}", application, responder, result);
+		
+		if(result instanceof FileResult)
+			return sendFile(ctx, response);
+		else
+			return sendResponse(ctx, response);
+	}
+	
+	/**
+	 * Completes the request suspended by an asynchronous @Action and resumes the channel.
+	 */
+	private class AsyncAction implements BiConsumer<Result, Throwable> {
+		private final ChannelHandlerContext ctx;
+		private final ControllerBean controller;
+		private final InterceptorBean interceptors[];
+		private final ResponderFactory responderFactory;
+		private final SessionFactory sessionFactory;
+		private final Session session;
+		private final CompletionStage<Result> stage;
+		
+		public AsyncAction(ChannelHandlerContext ctx, ControllerBean controller, InterceptorBean interceptors[],
+				ResponderFactory responderFactory, SessionFactory sessionFactory, Session session,
+				CompletionStage<Result> stage) {
+			this.ctx = ctx;
+			this.controller = controller;
+			this.interceptors = interceptors;
+			this.responderFactory = responderFactory;
+			this.sessionFactory = sessionFactory;
+			this.session = session;
+			this.stage = stage;
+		}
+		
+		@Override
+		public void accept(Result result, Throwable t) {
+			try {
+				Thread.currentThread().setContextClassLoader(application.getClassLoader());
+				if(t != null) {
+					Exception e = t instanceof Exception ? (Exception)t : new RuntimeException(t);
+					sendException(ctx, new ControllerBeanException(e, controller));
+				}
+				else if(!respond(ctx, controller, interceptors, responderFactory, result)) {
+					sendFileNotFound(ctx);
+				}
+			}
+			catch(Exception e) {
+				sendException(ctx, e);
+			}
+			finally {
+				controller.release();
+				sessionFactory.complete(session);
+				resumeLater(ctx);
+			}
 		}
-		return true;
 	}
 
 	private static void setDateAndCacheHeaders(HttpResponse response, File fileToCache) {
-		SimpleDateFormat dateFormatter = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
-		dateFormatter.setTimeZone(TimeZone.getTimeZone(HTTP_DATE_GMT_TIMEZONE));
+		setDateAndCacheHeaders(response, fileToCache.lastModified());
+	}
 
+	private static void setDateAndCacheHeaders(HttpResponse response, long lastModified) {
 		// Date header
-		Calendar time = new GregorianCalendar();
-		response.headers().set(DATE, dateFormatter.format(time.getTime()));
+		long time = System.currentTimeMillis();
+		response.headers().set(DATE, StaticFileCache.formatDate(time));
 
 		// Add cache headers
-		time.add(Calendar.SECOND, HTTP_CACHE_SECONDS);
-		response.headers().set(EXPIRES, dateFormatter.format(time.getTime()));
+		response.headers().set(EXPIRES, StaticFileCache.formatDate(time + HTTP_CACHE_SECONDS * 1000L));
 		response.headers().set(CACHE_CONTROL, "private, max-age=" + HTTP_CACHE_SECONDS);
-		response.headers().set(
-				LAST_MODIFIED, dateFormatter.format(new Date(fileToCache.lastModified())));
+		response.headers().set(LAST_MODIFIED, StaticFileCache.formatDate(lastModified));
+	}
+
+	/**
+	 * @return true if the client's copy, identified by If-None-Match or If-Modified-Since, is still valid
+	 */
+	private boolean isNotModified(StaticFile file) {
+		String ifNoneMatch = request.headers().get(IF_NONE_MATCH);
+		if(ifNoneMatch != null) {
+			// If-None-Match takes precedence over If-Modified-Since
+			if(ifNoneMatch.trim().equals("*"))
+				return true;
+			for(String etag: ifNoneMatch.split(",")) {
+				etag = etag.trim();
+				if(etag.startsWith("W/"))
+					etag = etag.substring(2);
+				if(etag.equals(file.getEtag()))
+					return true;
+			}
+			return false;
+		}
+		String ifModifiedSince = request.headers().get(IF_MODIFIED_SINCE);
+		if(ifModifiedSince != null) {
+			long since = StaticFileCache.parseDate(ifModifiedSince);
+			// HTTP dates have a precision of seconds
+			return since != -1 && since / 1000 >= file.getLastModified() / 1000;
+		}
+		return false;
+	}
+
+	private boolean sendCachedFile(ChannelHandlerContext ctx, final StaticFile file) throws Exception {
+		if(isNotModified(file)) {
+			if(log.isTraceEnabled())
+				log.trace("{}: file not modified: {}", application, file);
+			FullHttpResponse httpResponse = new DefaultFullHttpResponse(HTTP_1_1, NOT_MODIFIED);
+			httpResponse.headers().set(ETAG, file.getEtag());
+			setDateAndCacheHeaders(httpResponse, file.getLastModified());
+			setConnectionHeader(httpResponse);
+			if(response.getHeaders().containsKey(HttpHeaderNames.VARY.toString()))
+				httpResponse.headers().set(HttpHeaderNames.VARY, response.getHeaders().get(HttpHeaderNames.VARY.toString()));
+			closeUnlessKeepAlive(ctx.writeAndFlush(httpResponse));
+			reset();
+			return true;
+		}
+		
+		if(!file.isInMemory() && stream) {
+			// HTTP/2 cannot write the cached channel as a region; the file is read in chunks instead
+			return sendFile(ctx, response);
+		}
+		
+		List<ByteRange> ranges = getRanges(file.getLength(), file.getEtag(), file.getLastModified());
+		if(ranges != null && ranges.isEmpty()) {
+			sendRangeNotSatisfiable(ctx, file.getLength());
+			return true;
+		}
+		
+		if(log.isTraceEnabled())
+			log.trace("{}: returning cached file: {}", application, file);
+		
+		HttpResponse httpResponse = new DefaultHttpResponse(HTTP_1_1, OK);
+		httpResponse.headers().set(CONTENT_TYPE, file.getContentType());
+		httpResponse.headers().set(ETAG, file.getEtag());
+		httpResponse.headers().set(ACCEPT_RANGES, HttpHeaderValues.BYTES);
+		setDateAndCacheHeaders(httpResponse, file.getLastModified());
+		setConnectionHeader(httpResponse);
+		// Content-Type, Content-Encoding and Vary of pre-compressed files
+		for(String header: response.getHeaders().keySet())
+			httpResponse.headers().set(header, response.getHeaders().get(header));
+		
+		if(ranges != null && ranges.size() > 1) {
+			sendMultipartRanges(ctx, httpResponse, file.getLength(), ranges, new PartSource() {
+				@Override
+				public Object newPart(long position, long count) {
+					if(file.isInMemory())
+						return new DefaultHttpContent(file.newContent(position, count));
+					return file.newRegion(position, count);
+				}
+			});
+			return true;
+		}
+		
+		long position = 0;
+		long count = file.getLength();
+		if(ranges != null) {
+			ByteRange range = ranges.get(0);
+			httpResponse.setStatus(PARTIAL_CONTENT);
+			httpResponse.headers().set(CONTENT_RANGE, range.toContentRange(file.getLength()));
+			position = range.getStart();
+			count = range.getLength();
+		}
+		HttpUtil.setContentLength(httpResponse, count);
+		
+		if(stream) {
+			// cached channels are served by sendFile() to HTTP/2 streams
+			writeFullResponse(ctx, httpResponse, file.newContent(position, count));
+			return true;
+		}
+		ChannelFuture lastContentFuture;
+		ctx.write(httpResponse);
+		if(file.isInMemory()) {
+			lastContentFuture = ctx.writeAndFlush(new DefaultLastHttpContent(file.newContent(position, count)));
+		}
+		else {
+			ctx.write(file.newRegion(position, count));
+			lastContentFuture = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+		}
+		closeUnlessKeepAlive(lastContentFuture);
+		reset();
+		
+		return true;
+	}
+
+	/**
+	 * @return ranges requested by a GET, unless If-Range no longer matches the file; see ByteRange.parse()
+	 */
+	private List<ByteRange> getRanges(long length, String etag, long lastModified) {
+		if(request == null || !HttpMethod.GET.equals(request.method()))
+			return null;
+		String range = request.headers().get(RANGE);
+		if(range == null)
+			return null;
+		String ifRange = request.headers().get(IF_RANGE);
+		if(ifRange != null) {
+			ifRange = ifRange.trim();
+			if(ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+				// only strong validators may be used with If-Range
+				if(!ifRange.equals(etag))
+					return null;
+			}
+			else if(StaticFileCache.parseDate(ifRange) / 1000 != lastModified / 1000) {
+				return null;
+			}
+		}
+		return ByteRange.parse(range, length);
+	}
+
+	private void sendRangeNotSatisfiable(ChannelHandlerContext ctx, long length) {
+		FullHttpResponse httpResponse = new DefaultFullHttpResponse(HTTP_1_1, REQUESTED_RANGE_NOT_SATISFIABLE);
+		httpResponse.headers().set(CONTENT_RANGE, "bytes */"+length);
+		HttpUtil.setContentLength(httpResponse, 0);
+		setConnectionHeader(httpResponse);
+		closeUnlessKeepAlive(ctx.writeAndFlush(httpResponse));
+		reset();
+	}
+
+	/**
+	 * Writes a multipart/byteranges response. The part headers are small buffers; the parts themselves are
+	 * provided by the source, as file regions whenever possible.
+	 */
+	private void sendMultipartRanges(ChannelHandlerContext ctx, HttpResponse httpResponse, long length, 
+			List<ByteRange> ranges, PartSource source) {
+		String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+		String contentType = httpResponse.headers().get(CONTENT_TYPE);
+		List<ByteBuf> headers = new ArrayList<ByteBuf>(ranges.size());
+		long contentLength = 0;
+		for(ByteRange range: ranges) {
+			ByteBuf header = copiedBuffer("\r\n--"+boundary+"\r\n"+CONTENT_TYPE+": "+contentType+"\r\n"
+					+CONTENT_RANGE+": "+range.toContentRange(length)+"\r\n\r\n", CharsetUtil.US_ASCII);
+			contentLength += header.readableBytes() + range.getLength();
+			headers.add(header);
+		}
+		ByteBuf trailer = copiedBuffer("\r\n--"+boundary+"--\r\n", CharsetUtil.US_ASCII);
+		contentLength += trailer.readableBytes();
+		
+		if(log.isTraceEnabled())
+			log.trace("{}: returning ranges {}", application, ranges);
+		
+		httpResponse.setStatus(PARTIAL_CONTENT);
+		httpResponse.headers().set(CONTENT_TYPE, "multipart/byteranges; boundary="+boundary);
+		HttpUtil.setContentLength(httpResponse, contentLength);
+		if(stream) {
+			// the parts of HTTP/2 streams are always HttpContent
+			CompositeByteBuf content = ctx.alloc().compositeBuffer(2*ranges.size()+1);
+			for(int i = 0; i < ranges.size(); i++) {
+				ByteRange range = ranges.get(i);
+				content.addComponent(headers.get(i));
+				content.addComponent(((HttpContent)source.newPart(range.getStart(), range.getLength())).content());
+			}
+			content.addComponent(trailer);
+			content.writerIndex(content.capacity());
+			writeFullResponse(ctx, httpResponse, content);
+			return;
+		}
+		ctx.write(httpResponse);
+		for(int i = 0; i < ranges.size(); i++) {
+			ByteRange range = ranges.get(i);
+			ctx.write(new DefaultHttpContent(headers.get(i)));
+			ctx.write(source.newPart(range.getStart(), range.getLength()));
+		}
+		closeUnlessKeepAlive(ctx.writeAndFlush(new DefaultLastHttpContent(trailer)));
+		reset();
 	}
 
 	private boolean sendResponse(ChannelHandlerContext ctx, Response response) throws Exception {
+		if(streamed != null && streamed.isStarted()) {
+			// the head and most of the body have been written while rendering
+			ChannelFuture lastContentFuture = streamed.finish();
+			streamed = null;
+			closeUnlessKeepAlive(lastContentFuture);
+			reset();
+			return true;
+		}
+		
+		HttpResponseStatus responseStatus = getResponseStatus(response);
+		HttpHeaders headers = newResponseHeaders(response);
+
+		// the body buffer is handed to the response as is
+		ByteBuf buf = Unpooled.EMPTY_BUFFER;
+		if(streamed != null) {
+			// streamed output which never filled a chunk
+			buf = streamed.detach();
+			streamed = null;
+		}
+		else if(body != null) {
+			buf = body.buffer();
+			body = null;
+		}
+		if(isCompressible(headers, buf.readableBytes())) {
+			headers.add(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+			String encoding = ContentCompressor.selectEncoding(request.headers().get(HttpHeaderNames.ACCEPT_ENCODING));
+			if(encoding != null) {
+				ByteBuf compressed = compressor.compress(buf, encoding, ctx.alloc());
+				buf.release();
+				buf = compressed;
+				headers.set(HttpHeaderNames.CONTENT_ENCODING, encoding);
+			}
+		}
+		headers.setInt(HttpHeaderNames.CONTENT_LENGTH, buf.readableBytes());
+
+		// Build the response object.
+		FullHttpResponse httpResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, responseStatus, buf, 
+				headers, EmptyHttpHeaders.INSTANCE);
+		setConnectionHeader(httpResponse);
+
+		// Write the response.
+		closeUnlessKeepAlive(ctx.channel().writeAndFlush(httpResponse));
+		reset();
+		
+		return true;
+	}
+	
+	private static HttpResponseStatus getResponseStatus(Response response) {
 		HttpResponseStatus responseStatus = null;
 		switch(response.getCode()) {
 		case INTERNAL_ERROR:
@@ -556,18 +1099,14 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 			responseStatus = HttpResponseStatus.OK;
 			break;
 		}
-
-		ByteArrayOutputStream bos = (ByteArrayOutputStream)response.getOutputStream();
-		ByteBuf buf = copiedBuffer(bos.toByteArray());
-
-		// Build the response object.
-		FullHttpResponse httpResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, responseStatus, buf);
-
-		httpResponse.headers().set(HttpHeaderNames.SERVER, "Sync-AS");
+		return responseStatus;
+	}
+	
+	private static HttpHeaders newResponseHeaders(Response response) {
+		HttpHeaders headers = new DefaultHttpHeaders();
+		headers.set(HttpHeaderNames.SERVER, "Sync-AS");
 		// default content-type header... likely to be overwritten by the Result Content-Type header...
-		httpResponse.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/html; charset="+charset);
-		httpResponse.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
-		httpResponse.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, buf.readableBytes());
+		headers.set(HttpHeaderNames.CONTENT_TYPE, "text/html; charset="+charset);
 		
 		//
 		// if response has declared specific Headers, then this may or may not override the default headers
@@ -579,17 +1118,74 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 			for(String header: response.getHeaders().keySet()) {
 				if(log.isTraceEnabled())
 					log.trace("setting response header: {}: {}", header, response.getHeaders().get(header));
-				httpResponse.headers().set(header, response.getHeaders().get(header));
+				headers.set(header, response.getHeaders().get(header));
 			}
 		}
-
-		// Write the response.
-		ctx.channel().writeAndFlush(httpResponse).addListener(ChannelFutureListener.CLOSE);
-		reset();
+		return headers;
+	}
+	
+	/**
+	 * Replaces the response body by a StreamingOutputStream when the RenderResult, or its @Action, asks for 
+	 * streaming. HTTP/1.0 clients, which know no chunked encoding, get the whole response instead; so do HTTP/2
+	 * streams, as the connection handler binds the chunks to the stream of the last response head written.
+	 */
+	private void startStreaming(ChannelHandlerContext ctx, Result result, boolean streaming) {
+		if(!(result instanceof RenderResult))
+			return;
+		RenderResult rr = (RenderResult)result;
+		if(streaming)
+			rr.setStreaming(true);
+		if(!rr.isStreaming())
+			return;
+		if(stream || HttpVersion.HTTP_1_0.equals(request.protocolVersion())) {
+			rr.setStreaming(false);
+			return;
+		}
 		
+		if(body != null) {
+			body.buffer().release();
+			body = null;
+		}
+		streamed = new StreamingOutputStream(ctx, server.config().getStreamingBufferSize(), new StreamingOutputStream.Head() {
+			@Override
+			public HttpResponse newResponse() {
+				HttpResponse httpResponse = new DefaultHttpResponse(HTTP_1_1, getResponseStatus(response), 
+						newResponseHeaders(response));
+				HttpUtil.setTransferEncodingChunked(httpResponse, true);
+				setConnectionHeader(httpResponse);
+				return httpResponse;
+			}
+		});
+		response.setOutputStream(streamed);
+	}
+	
+	/**
+	 * A failure after the head of a streamed response has been written cannot be reported to the client;
+	 * the connection is closed instead, so the client sees the response truncated.
+	 * @return true if the connection has been closed
+	 */
+	private boolean abortStreaming(ChannelHandlerContext ctx) {
+		if(streamed == null || !streamed.isStarted())
+			return false;
+		log.error("{}: streamed response has failed; closing connection {}", application, ctx.channel());
+		keepAlive = false;
+		ctx.close();
+		reset();
 		return true;
 	}
 	
+	/**
+	 * @return true if the body may be sent compressed: compression is enabled, the body is large enough, its
+	 * content type is listed and it has not been encoded by the @Action already
+	 */
+	private boolean isCompressible(HttpHeaders headers, int length) {
+		if(compressor == null || request == null || !compressor.isCompressible(length))
+			return false;
+		if(headers.contains(HttpHeaderNames.CONTENT_ENCODING))
+			return false;
+		return compressor.isCompressible(headers.get(HttpHeaderNames.CONTENT_TYPE));
+	}
+
 	private boolean sendFile(ChannelHandlerContext ctx, Response response) throws Exception {
 		Application application = response.getApplication();
 		if(application == null) {
@@ -650,15 +1246,27 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 			return true;
 		}
 		long fileLength = raf.length();
+		
+		List<ByteRange> ranges = getRanges(fileLength, StaticFile.etag(fileLength, file.lastModified()), file.lastModified());
+		if(ranges != null && ranges.size() > 1 && stream) {
+			// multiple ranges are written as file regions, which HTTP/2 cannot frame; the whole file is returned
+			ranges = null;
+		}
+		if(ranges != null && ranges.isEmpty()) {
+			raf.close();
+			sendRangeNotSatisfiable(ctx, fileLength);
+			return true;
+		}
 
 		if(log.isTraceEnabled())
 			log.trace("{}: returning file: {}", application, file);
 
 		HttpResponse httpResponse = new DefaultHttpResponse(HTTP_1_1, OK);
-		HttpUtil.setContentLength(httpResponse, fileLength);
 		httpResponse.headers().set(CONTENT_TYPE, MimeUtils.getContentType(file));
+		httpResponse.headers().set(ETAG, StaticFile.etag(fileLength, file.lastModified()));
+		httpResponse.headers().set(ACCEPT_RANGES, HttpHeaderValues.BYTES);
 		setDateAndCacheHeaders(httpResponse, file);
-		httpResponse.headers().set(CONNECTION, HttpHeaderValues.CLOSE);
+		setConnectionHeader(httpResponse);
 		//
 		// if response has declared specific Headers, then this may or may not override the default headers
 		// declared above.
@@ -673,15 +1281,58 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 			}
 		}
 
+		if(ranges != null && ranges.size() > 1) {
+			raf.close();
+			final File rangeFile = file;
+			sendMultipartRanges(ctx, httpResponse, fileLength, ranges, new PartSource() {
+				@Override
+				public Object newPart(long position, long count) {
+					// each region opens its own channel, as releasing a region closes its channel
+					return new DefaultFileRegion(rangeFile, position, count);
+				}
+			});
+			return true;
+		}
+		
+		long position = 0;
+		long count = fileLength;
+		if(ranges != null) {
+			ByteRange range = ranges.get(0);
+			httpResponse.setStatus(PARTIAL_CONTENT);
+			httpResponse.headers().set(CONTENT_RANGE, range.toContentRange(fileLength));
+			position = range.getStart();
+			count = range.getLength();
+		}
+		HttpUtil.setContentLength(httpResponse, count);
+		
+		if(stream) {
+			// HTTP/2 frames the content itself and cannot take a zero-copy region; the file is read in whole
+			ByteBuf content = ctx.alloc().buffer((int)count);
+			try {
+				FileChannel channel = raf.getChannel();
+				channel.position(position);
+				while(content.writableBytes() > 0) {
+					if(content.writeBytes(channel, content.writableBytes()) < 0)
+						break;
+				}
+			}
+			catch(IOException e) {
+				content.release();
+				throw e;
+			}
+			finally {
+				raf.close();
+			}
+			writeFullResponse(ctx, httpResponse, content);
+			return true;
+		}
+
 		// Write the initial line and the header.
 		ctx.write(httpResponse);
 
 		// Write the content.
-		ChannelFuture sendFileFuture;
-		ChannelFuture lastContentFuture;
-
-		sendFileFuture = ctx.write(new DefaultFileRegion(raf.getChannel(), 0, fileLength), ctx.newProgressivePromise());
-		lastContentFuture = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+		ChannelFuture sendFileFuture = ctx.write(new DefaultFileRegion(raf.getChannel(), position, count), ctx.newProgressivePromise());
+		ChannelFuture lastContentFuture = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
 
 		sendFileFuture.addListener(new ChannelProgressiveFutureListener() {
 			@Override
@@ -708,27 +1359,47 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 			}
 		});
 
-	    // Close the connection when the whole content is written out.
+		// Close the connection when the whole content is written out, unless it is kept alive.
 		ctx.flush();
-		lastContentFuture.addListener(ChannelFutureListener.CLOSE);
+		closeUnlessKeepAlive(lastContentFuture);
+		reset();
 			
 		return true;
 	}
 
+	/**
+	 * Writes the head and its content as a single message, as required by HTTP/2 streams
+	 */
+	private void writeFullResponse(ChannelHandlerContext ctx, HttpResponse head, ByteBuf content) {
+		FullHttpResponse httpResponse = new DefaultFullHttpResponse(head.protocolVersion(), head.status(), content, 
+				head.headers(), EmptyHttpHeaders.INSTANCE);
+		closeUnlessKeepAlive(ctx.writeAndFlush(httpResponse));
+		reset();
+	}
+
 	private void sendFileNotFound(ChannelHandlerContext ctx) {
 		sendError(ctx, HttpResponseStatus.NOT_FOUND);
 	}
 
 	private void sendError(ChannelHandlerContext ctx, HttpResponseStatus status) {
+		if(abortStreaming(ctx))
+			return;
 		FullHttpResponse response = new DefaultFullHttpResponse(
 				HTTP_1_1, status, Unpooled.copiedBuffer("Failure: " + status + "\r\n", CharsetUtil.UTF_8));
 		response.headers().set(CONTENT_TYPE, "text/plain; charset="+charset);
-		// Close the connection as soon as the error message is sent.
-		ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+		HttpUtil.setContentLength(response, response.content().readableBytes());
+		setConnectionHeader(response);
+		// Close the connection as soon as the error message is sent, unless it is kept alive.
+		closeUnlessKeepAlive(ctx.writeAndFlush(response));
 		reset();
 	}
 
 	private void sendException(ChannelHandlerContext ctx, Exception e) {
+		if(streamed != null && streamed.isStarted()) {
+			log.error("{}: exception caught while streaming the response: ", application, e);
+			abortStreaming(ctx);
+			return;
+		}
 		if(log.isTraceEnabled())
 			log.trace("delivering exception message to the client");
 
@@ -772,11 +1443,48 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 
 		FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, HttpResponseStatus.INTERNAL_SERVER_ERROR, buf);
 		response.headers().set(CONTENT_TYPE, "text/html; charset="+charset);
+		HttpUtil.setContentLength(response, buf.readableBytes());
+		setConnectionHeader(response);
 
-		ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+		closeUnlessKeepAlive(ctx.writeAndFlush(response));
 		reset();
 	}
 
+	/**
+	 * Connection may be kept open when enabled at the server.properties, requested by the client and while the
+	 * max requests per connection limit has not been reached.
+	 */
+	private boolean isKeepAlive(HttpRequest request) {
+		if(stream)
+			return true;
+		ServerConfig config = server.config();
+		if(!config.getKeepAlive() || !HttpUtil.isKeepAlive(request))
+			return false;
+		return config.getKeepAliveMaxRequests() <= 0 || requests < config.getKeepAliveMaxRequests();
+	}
+
+	private void setConnectionHeader(HttpResponse httpResponse) {
+		if(stream) {
+			// HTTP/2 has no connection headers; the response only needs to be bound to its stream
+			if(streamId != null)
+				httpResponse.headers().set(ExtensionHeaderNames.STREAM_ID.text(), streamId);
+			return;
+		}
+		if(!keepAlive) {
+			httpResponse.headers().set(CONNECTION, HttpHeaderValues.CLOSE);
+		}
+		else if(request != null && !request.protocolVersion().isKeepAliveDefault()) {
+			// HTTP/1.0 clients must be told explicitly that the connection persists
+			httpResponse.headers().set(CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+		}
+	}
+
+	private void closeUnlessKeepAlive(ChannelFuture future) {
+		lastWriteFuture = future;
+		if(!keepAlive && !stream)
+			future.addListener(ChannelFutureListener.CLOSE);
+	}
+
 	private static String getDomain(HttpRequest request) {
 		String domain = request.headers().getAsString(HttpHeaderNames.HOST);
 		int p = domain.indexOf(':');
@@ -786,20 +1494,6 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 	}
 
 	private static String getUriPath(String uri) {
-		// Decode the path.
-		try {
-			uri = URLDecoder.decode(uri, "UTF-8");
-		} catch (UnsupportedEncodingException e) {
-			throw new Error(e);
-		}
-
-		if (uri.isEmpty() || uri.charAt(0) != '/') {
-			return null;
-		}
-
-		// Convert file separators.
-		uri = uri.replace('/', File.separatorChar);
-		
 		//
 		// remove parameters from the URL
 		//
@@ -808,6 +1502,23 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 			uri = uri.substring(0, p);
 		}
 
+		// Decode the path; most paths have nothing to decode
+		if(uri.indexOf('%') != -1 || uri.indexOf('+') != -1) {
+			try {
+				uri = URLDecoder.decode(uri, "UTF-8");
+			} catch (UnsupportedEncodingException e) {
+				throw new Error(e);
+			}
+		}
+
+		if (uri.isEmpty() || uri.charAt(0) != '/') {
+			return null;
+		}
+
+		// Convert file separators.
+		if(File.separatorChar != '/')
+			uri = uri.replace('/', File.separatorChar);
+
 		return uri;
 	}
 
@@ -821,10 +1532,31 @@ public class RequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 			decoder.destroy();
 			decoder = null;
 		}
+
+		// body of a request answered other than by sendResponse()
+		if(body != null) {
+			body.buffer().release();
+			body = null;
+		}
+		if(streamed != null) {
+			streamed.release();
+			streamed = null;
+		}
+
+		// objects are reused by the next request over the same connection
+		requestWrapper.recycle();
+		response.recycle();
 	}
 
 	@Override
 	public void finalize() {
 		reset();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Provides the content of each part of a multipart/byteranges response
+	 */
+	private interface PartSource {
+		Object newPart(long position, long count);
+	}
+}
@@ -145,5 +145,7 @@ public class RequestWrapper implements Request {
 		headers.clear();
 		parameters.clear();
 		requestContext.clear();
+		request = null;
+		session = null;
 	}
 }
@@ -22,6 +22,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,9 +31,17 @@ import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.joran.JoranConfigurator;
 import ch.qos.logback.core.joran.spi.JoranException;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.syncframework.Globals;
@@ -40,6 +49,7 @@ import io.syncframework.core.Application;
 import io.syncframework.core.ApplicationManager;
 import io.syncframework.core.Server;
 import io.syncframework.core.ServerConfig;
+import io.syncframework.core.SessionExpirer;
 import io.syncframework.util.SarUtils;
 
 /**
@@ -154,6 +164,10 @@ public class ServerImpl implements Server {
 				application.start();
 				ApplicationManager.register(application);
 				applications.add(application);
+				if(config.getStaticCache()) {
+					// indexes the public/ directory before the first request
+					StaticFileCache.getInstance(application, config);
+				}
 			}
 			catch(Throwable t) {
 				log.error("{} has failed to initialize application: {}", this, application);
@@ -184,21 +198,69 @@ public class ServerImpl implements Server {
 			}
 		});
 
-		EventLoopGroup bossGroup = new NioEventLoopGroup(1);
-		EventLoopGroup workerGroup = new NioEventLoopGroup();
+		boolean epoll = useEpoll();
+		
+		// with SO_REUSEPORT the kernel balances the accepts among several listening sockets
+		int acceptors = 1;
+		if(config.getReusePort()) {
+			if(epoll)
+				acceptors = Math.max(1, config.getAcceptors());
+			else
+				log.warn("{} ignoring socket.reuseport: SO_REUSEPORT requires the epoll transport", this);
+		}
+		// every listening socket gets its own accepting thread, as the boss group registers them round robin
+		int bossThreads = Math.max(config.getBossThreads(), acceptors);
+		if(bossThreads > config.getBossThreads() && log.isInfoEnabled())
+			log.info("{} raising boss.threads to {} to match socket.acceptors", this, bossThreads);
+		
+		EventLoopGroup bossGroup = null;
+		EventLoopGroup workerGroup = null;
+		if(epoll) {
+			bossGroup = new EpollEventLoopGroup(bossThreads);
+			workerGroup = new EpollEventLoopGroup(config.getWorkerThreads());
+		}
+		else {
+			bossGroup = new NioEventLoopGroup(bossThreads);
+			workerGroup = new NioEventLoopGroup(config.getWorkerThreads());
+		}
+		if(log.isInfoEnabled())
+			log.info("{} using {} transport", this, epoll ? "epoll" : "nio");
+		ExecutorService dispatcher = RequestDispatcher.create(config);
+		ContentCompressor compressor = ContentCompressor.create(config);
+		
 		try {
+			ByteBufAllocator allocator = "unpooled".equalsIgnoreCase(config.getAllocator()) ? 
+					UnpooledByteBufAllocator.DEFAULT : PooledByteBufAllocator.DEFAULT;
+			
 			ServerBootstrap b = new ServerBootstrap();
 			b.group(bossGroup, workerGroup);
-			b.channel(NioServerSocketChannel.class);
-			b.childHandler(new ServerInitializer(this));
+			b.channel(epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class);
+			b.childHandler(new ServerInitializer(this, dispatcher, compressor));
+			b.option(ChannelOption.SO_BACKLOG, config.getBacklog());
+			b.option(ChannelOption.ALLOCATOR, allocator);
+			b.childOption(ChannelOption.TCP_NODELAY, config.getTcpNoDelay());
+			b.childOption(ChannelOption.ALLOCATOR, allocator);
+			if(config.getSendBufferSize() > 0)
+				b.childOption(ChannelOption.SO_SNDBUF, config.getSendBufferSize());
+			if(config.getReceiveBufferSize() > 0)
+				b.childOption(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+			
+			if(config.getReusePort() && epoll)
+				b.option(EpollChannelOption.SO_REUSEPORT, true);
+			
 			try {
-				ChannelFuture chf = null;
-				if(config.getListenAddress() != null)
-					chf = b.bind(config.getListenAddress(), config.getListenPort());
-				else
-					chf = b.bind(config.getListenPort());
-				Channel ch = chf.sync().channel();
-				ch.closeFuture().sync();
+				List<Channel> channels = new LinkedList<Channel>();
+				for(int i = 0; i < acceptors; i++) {
+					ChannelFuture chf = null;
+					if(config.getListenAddress() != null)
+						chf = b.bind(config.getListenAddress(), config.getListenPort());
+					else
+						chf = b.bind(config.getListenPort());
+					channels.add(chf.sync().channel());
+				}
+				for(Channel ch: channels) {
+					ch.closeFuture().sync();
+				}
 			}
 			catch(Exception e) {
 				log.error("{} has failed to bind to socket: ", this, e);
@@ -207,8 +269,26 @@ public class ServerImpl implements Server {
 		} finally {
 			bossGroup.shutdownGracefully();
 			workerGroup.shutdownGracefully();
+			if(dispatcher != null)
+				dispatcher.shutdown();
+			StaticFileCache.shutdown();
+			SessionExpirer.shutdown();
 		}
 	}
+	
+	/**
+	 * @return true when the native epoll transport was requested (or auto) and is available on this platform
+	 */
+	private boolean useEpoll() {
+		String transport = config.getTransport();
+		if("nio".equalsIgnoreCase(transport))
+			return false;
+		if(Epoll.isAvailable())
+			return true;
+		if("epoll".equalsIgnoreCase(transport))
+			log.warn("{} epoll transport is not available, falling back to nio: {}", this, Epoll.unavailabilityCause().toString());
+		return false;
+	}
 
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
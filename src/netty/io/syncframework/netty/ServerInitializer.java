@@ -15,12 +15,15 @@
  */
 package io.syncframework.netty;
 
+import java.util.concurrent.ExecutorService;
+
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.http.HttpRequestDecoder;
-import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.timeout.IdleStateHandler;
 import io.syncframework.core.Server;
+import io.syncframework.core.ServerConfig;
 
 /**
  * 
@@ -29,16 +32,35 @@ import io.syncframework.core.Server;
  */
 public class ServerInitializer extends ChannelInitializer<SocketChannel> {
 	private Server server;
+	private ExecutorService dispatcher;
+	private ContentCompressor compressor;
 	
-	public ServerInitializer(Server server) {
+	public ServerInitializer(Server server, ExecutorService dispatcher, ContentCompressor compressor) {
 		this.server = server;
+		this.dispatcher = dispatcher;
+		this.compressor = compressor;
 	}
 
     @Override
     public void initChannel(SocketChannel ch) {
+        ServerConfig config = server.config();
         ChannelPipeline pipeline = ch.pipeline();
-        pipeline.addLast(new HttpRequestDecoder());
-        pipeline.addLast(new HttpResponseEncoder());
-        pipeline.addLast(new RequestHandler(server));
+        HttpServerCodec codec = new HttpServerCodec();
+        if(config.getHttp2()) {
+        	// replaces the HTTP/1.x codecs by the HTTP/2 connection handler when the client starts with the preface
+        	pipeline.addLast(new Http2PriorKnowledgeHandler(config));
+        }
+        pipeline.addLast(codec);
+        if(config.getHttp2()) {
+        	pipeline.addLast(Http2StreamHandler.newUpgradeHandler(codec, config));
+        }
+        if(config.getKeepAlive() && config.getKeepAliveTimeout() > 0) {
+        	// idle persistent connections are closed by the RequestHandler
+        	pipeline.addLast(new IdleStateHandler(0, 0, config.getKeepAliveTimeout()));
+        }
+        if(config.getHttp2()) {
+        	pipeline.addLast(new Http2StreamHandler(server, dispatcher, compressor));
+        }
+        pipeline.addLast(new RequestHandler(server, dispatcher, compressor));
     }
 }
\ No newline at end of file
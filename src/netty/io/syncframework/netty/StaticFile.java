@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.netty;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.util.AbstractReferenceCounted;
+
+/**
+ * Entry of the StaticFileCache. Small files keep their content in a direct buffer; large files keep their
+ * FileChannel open. The entry is reference counted: the cache holds one reference and every response being written
+ * holds another one, so an evicted entry is only closed once the last transfer is complete.
+ *
+ * @author dfroz
+ */
+public class StaticFile extends AbstractReferenceCounted {
+	private static final Logger log = LoggerFactory.getLogger(StaticFile.class);
+	private final File file;
+	private final long length;
+	private final long lastModified;
+	private final String etag;
+	private final String contentType;
+	private final ByteBuf content;
+	private final FileChannel channel;
+
+	public StaticFile(File file, long length, long lastModified, String contentType, ByteBuf content, FileChannel channel) {
+		this.file = file;
+		this.length = length;
+		this.lastModified = lastModified;
+		this.contentType = contentType;
+		this.content = content;
+		this.channel = channel;
+		this.etag = etag(length, lastModified);
+	}
+
+	/**
+	 * @return strong validator derived from the size and modification time, the same way as most HTTP servers do
+	 */
+	public static String etag(long length, long lastModified) {
+		return "\""+Long.toHexString(length)+"-"+Long.toHexString(lastModified)+"\"";
+	}
+
+	/**
+	 * @return true if the content is held in memory; otherwise it shall be transferred from the channel
+	 */
+	public boolean isInMemory() {
+		return content != null;
+	}
+
+	/**
+	 * @return slice of the cached content which is released once written
+	 */
+	public ByteBuf newContent(long position, long count) {
+		return content.slice((int)position, (int)count).retain();
+	}
+
+	/**
+	 * @return region transferring part of the file from the cached channel; retains this entry until released
+	 */
+	public DefaultFileRegion newRegion(long position, long count) {
+		retain();
+		return new CachedFileRegion(this, position, count);
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	public String getEtag() {
+		return etag;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * @return bytes of memory held by this entry
+	 */
+	public long getMemorySize() {
+		return content != null ? content.capacity() : 0;
+	}
+
+	@Override
+	protected void deallocate() {
+		if(log.isTraceEnabled())
+			log.trace("releasing cached file {}", file);
+		if(content != null)
+			content.release();
+		if(channel != null) {
+			try { channel.close(); }
+			catch(IOException ignore) {}
+		}
+	}
+
+	@Override
+	public StaticFile retain() {
+		super.retain();
+		return this;
+	}
+
+	@Override
+	public StaticFile touch(Object hint) {
+		return this;
+	}
+
+	public String toString() {
+		return file.getAbsolutePath();
+	}
+
+	/**
+	 * The channel belongs to the cache entry; releasing the region releases the entry instead of closing the channel.
+	 */
+	private static class CachedFileRegion extends DefaultFileRegion {
+		private final StaticFile file;
+
+		public CachedFileRegion(StaticFile file, long position, long count) {
+			super(file.channel, position, count);
+			this.file = file;
+		}
+
+		@Override
+		protected void deallocate() {
+			file.release();
+		}
+	}
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.netty;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.syncframework.core.Application;
+import io.syncframework.core.ServerConfig;
+import io.syncframework.util.StandardThread;
+
+/**
+ * Per application cache of the files under the public/ directory.
+ *
+ * Files up to static.cache.file.size are kept in pooled direct buffers, bounded by static.cache.memory.size;
+ * larger files keep their FileChannel open, bounded by static.cache.open.files. Both are evicted in LRU order.
+ * A WatchService invalidates the entries whenever files under public/ change. The cache is stopped, releasing its
+ * buffers and its watcher, when its application stops.
+ *
+ * The cache also keeps an index with the path of every file under public/, kept current by the same WatchService,
+ * so requests to dynamic pages are told apart without touching the filesystem.
+ *
+ * @author dfroz
+ */
+public class StaticFileCache {
+	private static final Logger log = LoggerFactory.getLogger(StaticFileCache.class);
+	private static final Map<Application, StaticFileCache> caches = new ConcurrentHashMap<Application, StaticFileCache>();
+	private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+	private static final String HTTP_DATE_GMT_TIMEZONE = "GMT";
+	private static final ThreadLocal<SimpleDateFormat> dateFormatter = new ThreadLocal<SimpleDateFormat>() {
+		@Override
+		protected SimpleDateFormat initialValue() {
+			SimpleDateFormat formatter = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+			formatter.setTimeZone(TimeZone.getTimeZone(HTTP_DATE_GMT_TIMEZONE));
+			return formatter;
+		}
+	};
+	private final Application application;
+	private final File publicDirectory;
+	private final String publicPath;
+	private final long maxMemorySize;
+	private final long maxFileSize;
+	private final int maxOpenFiles;
+	/**
+	 * only the watcher thread updates the index; it is replaced as a whole when the index is rebuilt
+	 */
+	private volatile Set<String> index = ConcurrentHashMap.<String>newKeySet();
+	private final LinkedHashMap<String, StaticFile> files = new LinkedHashMap<String, StaticFile>(64, 0.75f, true);
+	private long memorySize;
+	private int openFiles;
+	/**
+	 * bumped by every invalidation, so a file loaded meanwhile is not cached with stale content
+	 */
+	private long generation;
+	private WatchService watcher;
+	private Thread watcherThread;
+
+	private StaticFileCache(Application application, ServerConfig config) throws IOException {
+		this.application = application;
+		this.publicDirectory = application.getConfig().getPublicDirectory().getCanonicalFile();
+		this.publicPath = publicDirectory.getPath();
+		this.maxMemorySize = config.getStaticCacheMemorySize();
+		this.maxFileSize = config.getStaticCacheFileSize();
+		this.maxOpenFiles = config.getStaticCacheOpenFiles();
+	}
+
+	/**
+	 * @return the application's cache, created and watching the public/ directory on the first call
+	 */
+	public static StaticFileCache getInstance(final Application application, ServerConfig config) {
+		StaticFileCache cache = caches.get(application);
+		if(cache != null)
+			return cache;
+		synchronized(caches) {
+			cache = caches.get(application);
+			if(cache == null) {
+				try {
+					cache = new StaticFileCache(application, config);
+					cache.start();
+					// released along with the application
+					application.addStopHook(new Runnable() {
+						@Override
+						public void run() {
+							remove(application);
+						}
+					});
+				}
+				catch(IOException e) {
+					throw new RuntimeException(application+" has failed to initialize the static file cache", e);
+				}
+				caches.put(application, cache);
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Stops the cache of the application, if any, releasing its cached files
+	 */
+	public static void remove(Application application) {
+		StaticFileCache cache = null;
+		synchronized(caches) {
+			cache = caches.remove(application);
+		}
+		if(cache != null) {
+			if(log.isDebugEnabled())
+				log.debug("{}: stopping static file cache", application);
+			cache.stop();
+		}
+	}
+
+	/**
+	 * Stops all the caches, releasing the cached files
+	 */
+	public static void shutdown() {
+		synchronized(caches) {
+			for(StaticFileCache cache: caches.values())
+				cache.stop();
+			caches.clear();
+		}
+	}
+
+	/**
+	 * @param path request path, relative to the public/ directory
+	 * @return true if a file exists under public/ for the path
+	 */
+	public boolean contains(String path) {
+		return index.contains(path);
+	}
+
+	/**
+	 * @param path request path, relative to the public/ directory
+	 * @return retained entry, which shall be released by the caller; null if the path is not a regular visible
+	 * file under public/, leaving the request to the standard handling
+	 */
+	public StaticFile get(String path) throws IOException {
+		long loadGeneration;
+		synchronized(files) {
+			StaticFile file = files.get(path);
+			if(file != null)
+				return file.retain();
+			loadGeneration = generation;
+		}
+
+		File f = new File(publicDirectory, path).getCanonicalFile();
+		if(!f.getPath().startsWith(publicPath+File.separator) || !f.isFile() || f.isHidden())
+			return null;
+
+		StaticFile file = load(f);
+		synchronized(files) {
+			if(loadGeneration != generation) {
+				// files changed while loading; served once, without caching
+				if(log.isTraceEnabled())
+					log.trace("{}: not caching {}, invalidated while loading", application, f);
+				return file;
+			}
+			StaticFile previous = files.put(path, file);
+			if(previous != null)
+				remove(previous);
+			memorySize += file.getMemorySize();
+			if(!file.isInMemory())
+				openFiles++;
+			evict();
+			return file.retain();
+		}
+	}
+
+	private StaticFile load(File f) throws IOException {
+		long lastModified = f.lastModified();
+		RandomAccessFile raf = new RandomAccessFile(f, "r");
+		FileChannel channel = raf.getChannel();
+		long length = channel.size();
+		if(length > maxFileSize) {
+			if(log.isTraceEnabled())
+				log.trace("{}: caching channel of {}", application, f);
+			return new StaticFile(f, length, lastModified, MimeUtils.getContentType(f), null, channel);
+		}
+
+		if(log.isTraceEnabled())
+			log.trace("{}: caching content of {}", application, f);
+		ByteBuf content = PooledByteBufAllocator.DEFAULT.directBuffer((int)length);
+		try {
+			while(content.writableBytes() > 0) {
+				if(content.writeBytes(channel, content.writableBytes()) < 0)
+					break;
+			}
+		}
+		catch(IOException e) {
+			content.release();
+			throw e;
+		}
+		finally {
+			raf.close();
+		}
+		return new StaticFile(f, content.readableBytes(), lastModified, MimeUtils.getContentType(f), content, null);
+	}
+
+	/**
+	 * evicts least recently used entries while over the limits; must hold the files lock
+	 */
+	private void evict() {
+		Iterator<StaticFile> i = files.values().iterator();
+		while((memorySize > maxMemorySize || openFiles > maxOpenFiles) && i.hasNext()) {
+			StaticFile file = i.next();
+			if(memorySize > maxMemorySize && file.isInMemory() || openFiles > maxOpenFiles && !file.isInMemory()) {
+				i.remove();
+				remove(file);
+			}
+		}
+	}
+
+	/**
+	 * accounts the entry removal and releases the cache reference; must hold the files lock
+	 */
+	private void remove(StaticFile file) {
+		memorySize -= file.getMemorySize();
+		if(!file.isInMemory())
+			openFiles--;
+		file.release();
+	}
+
+	/**
+	 * Invalidates the file, or every file under the directory, identified by the path relative to public/
+	 */
+	public void invalidate(String path) {
+		synchronized(files) {
+			generation++;
+			Iterator<Map.Entry<String, StaticFile>> i = files.entrySet().iterator();
+			while(i.hasNext()) {
+				Map.Entry<String, StaticFile> entry = i.next();
+				String key = entry.getKey();
+				if(key.equals(path) || key.startsWith(path+File.separator)) {
+					if(log.isTraceEnabled())
+						log.trace("{}: invalidating cached file {}", application, key);
+					i.remove();
+					remove(entry.getValue());
+				}
+			}
+		}
+	}
+
+	public void clear() {
+		synchronized(files) {
+			generation++;
+			for(StaticFile file: files.values())
+				remove(file);
+			files.clear();
+		}
+	}
+
+	private void start() throws IOException {
+		watcher = FileSystems.getDefault().newWatchService();
+		register(publicDirectory.toPath(), index);
+		if(log.isDebugEnabled())
+			log.debug("{}: indexed {} static files", application, index.size());
+		watcherThread = new StandardThread(new Watcher(), "static-watcher");
+		watcherThread.setDaemon(true);
+		watcherThread.start();
+	}
+
+	private void stop() {
+		try { watcher.close(); }
+		catch(IOException ignore) {}
+		clear();
+	}
+
+	/**
+	 * registers the directory and its subdirectories with the WatchService, adding their files to the given index;
+	 * the directory is registered before being listed so no file created meanwhile is missed
+	 */
+	private void register(Path directory, Set<String> index) throws IOException {
+		directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+		File children[] = directory.toFile().listFiles();
+		if(children == null)
+			return;
+		for(File child: children) {
+			if(child.isDirectory())
+				register(child.toPath(), index);
+			else if(child.isFile())
+				index.add(child.getPath().substring(publicPath.length()));
+		}
+	}
+
+	/**
+	 * removes the file, or every file under the directory, from the index
+	 */
+	private void unindex(String path) {
+		Iterator<String> i = index.iterator();
+		while(i.hasNext()) {
+			String key = i.next();
+			if(key.equals(path) || key.startsWith(path+File.separator))
+				i.remove();
+		}
+	}
+
+	private class Watcher implements Runnable {
+		@Override
+		public void run() {
+			if(log.isDebugEnabled())
+				log.debug("{}: watching {} for changes", application, publicDirectory);
+			while(true) {
+				WatchKey key = null;
+				try {
+					key = watcher.take();
+				}
+				catch(ClosedWatchServiceException e) {
+					return;
+				}
+				catch(InterruptedException e) {
+					return;
+				}
+				Path directory = (Path)key.watchable();
+				for(WatchEvent<?> event: key.pollEvents()) {
+					if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+						// events were lost; rebuild the index aside and swap it in, so lookups never see it empty
+						Set<String> rebuilt = ConcurrentHashMap.<String>newKeySet();
+						try {
+							register(publicDirectory.toPath(), rebuilt);
+							index = rebuilt;
+						}
+						catch(IOException e) {
+							log.error("{}: failed to index directory {}", application, publicDirectory, e);
+						}
+						clear();
+						continue;
+					}
+					Path child = directory.resolve((Path)event.context());
+					String path = child.toString().substring(publicPath.length());
+					if(event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+						unindex(path);
+					}
+					else if(Files.isDirectory(child)) {
+						try { register(child, index); }
+						catch(IOException e) {
+							log.error("{}: failed to watch directory {}", application, child, e);
+						}
+					}
+					else if(Files.isRegularFile(child)) {
+						index.add(path);
+					}
+					invalidate(path);
+				}
+				key.reset();
+			}
+		}
+	}
+
+	/**
+	 * @return date formatted as defined by RFC 7231
+	 */
+	public static String formatDate(long time) {
+		return dateFormatter.get().format(new Date(time));
+	}
+
+	/**
+	 * @return time in milliseconds or -1 if the date cannot be parsed
+	 */
+	public static long parseDate(String date) {
+		try {
+			return dateFormatter.get().parse(date).getTime();
+		}
+		catch(ParseException e) {
+			return -1;
+		}
+	}
+}
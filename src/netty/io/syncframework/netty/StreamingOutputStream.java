@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 SyncObjects Ltda.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syncframework.netty;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpResponse;
+
+/**
+ * Response body written to the channel as HTTP chunks whenever the buffer fills or the stream is flushed.
+ * The response head is requested from the Head on the first chunk, so headers must be set before writing.
+ * 
+ * When the channel is no longer writable the writing thread waits until the chunk is written to the socket,
+ * so a slow client slows down the rendering instead of accumulating the output in memory. Threads of the
+ * event loop (dispatch.mode = loop) cannot wait, so their output is queued regardless.
+ * 
+ * @author dfroz
+ */
+public class StreamingOutputStream extends OutputStream {
+	private final ChannelHandlerContext ctx;
+	private final int bufferSize;
+	private final Head head;
+	private ByteBuf buffer;
+	private boolean started;
+	private ChannelFuture lastWriteFuture;
+	
+	/**
+	 * Builds the response head when the first chunk is written
+	 */
+	public interface Head {
+		HttpResponse newResponse();
+	}
+	
+	public StreamingOutputStream(ChannelHandlerContext ctx, int bufferSize, Head head) {
+		this.ctx = ctx;
+		this.bufferSize = bufferSize;
+		this.head = head;
+		this.buffer = ctx.alloc().directBuffer(bufferSize);
+	}
+	
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		buffer.writeByte(b);
+		if(buffer.readableBytes() >= bufferSize)
+			writeChunk();
+	}
+	
+	@Override
+	public void write(byte b[], int off, int len) throws IOException {
+		ensureOpen();
+		while(len > 0) {
+			int n = Math.min(len, bufferSize - buffer.readableBytes());
+			buffer.writeBytes(b, off, n);
+			off += n;
+			len -= n;
+			if(buffer.readableBytes() >= bufferSize)
+				writeChunk();
+		}
+	}
+	
+	/**
+	 * Sends what has been written so far; templates may flush right after the &lt;head&gt;
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		if(buffer.isReadable())
+			writeChunk();
+	}
+	
+	/**
+	 * @return true once the response head has been written
+	 */
+	public boolean isStarted() {
+		return started;
+	}
+	
+	/**
+	 * Writes the remaining output as the last chunk
+	 * @return future of the last write
+	 */
+	public ChannelFuture finish() {
+		ChannelFuture future = ctx.writeAndFlush(new DefaultLastHttpContent(buffer));
+		buffer = null;
+		return future;
+	}
+	
+	/**
+	 * @return output written so far, as the stream has not started; the caller takes ownership of the buffer
+	 */
+	public ByteBuf detach() {
+		ByteBuf b = buffer;
+		buffer = null;
+		return b;
+	}
+	
+	/**
+	 * Releases the buffer of an abandoned stream
+	 */
+	public void release() {
+		if(buffer != null) {
+			buffer.release();
+			buffer = null;
+		}
+	}
+	
+	private void ensureOpen() throws IOException {
+		if(buffer == null)
+			throw new IOException("stream closed");
+	}
+	
+	private void writeChunk() throws IOException {
+		if(lastWriteFuture != null && lastWriteFuture.isDone() && !lastWriteFuture.isSuccess())
+			throw new IOException("failed to stream response", lastWriteFuture.cause());
+		if(!started) {
+			ctx.write(head.newResponse());
+			started = true;
+		}
+		lastWriteFuture = ctx.writeAndFlush(new DefaultHttpContent(buffer));
+		buffer = ctx.alloc().directBuffer(bufferSize);
+		
+		// backpressure
+		if(!ctx.channel().isWritable() && !ctx.executor().inEventLoop()) {
+			lastWriteFuture.awaitUninterruptibly();
+			if(!lastWriteFuture.isSuccess())
+				throw new IOException("failed to stream response", lastWriteFuture.cause());
+		}
+	}
+}
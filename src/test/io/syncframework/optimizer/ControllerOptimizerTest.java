@@ -2,7 +2,14 @@ package io.syncframework.optimizer;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
 
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -12,14 +19,11 @@ import org.junit.runners.MethodSorters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import io.syncframework.api.ApplicationContext;
 import io.syncframework.api.Converter;
-import io.syncframework.api.ErrorContext;
-import io.syncframework.api.MessageContextMock;
+import io.syncframework.api.FileUpload;
 import io.syncframework.api.RenderResult;
-import io.syncframework.api.RequestContext;
 import io.syncframework.api.Result;
-import io.syncframework.api.SessionContext;
+import io.syncframework.converter.ConverterFactory;
 import io.syncframework.optimizer.ClassOptimizer;
 import io.syncframework.optimizer.OController;
 
@@ -42,9 +46,9 @@ public class ControllerOptimizerTest {
 		try { fos.close(); } catch(Exception ignore) {}
 		
 		TestClassLoader tcl = new TestClassLoader();
-		tcl.defineClass("com.syncobjects.as.optimizer.ExampleController", b);
+		tcl.defineClass("io.syncframework.optimizer.ExampleController", b);
 		
-		Class<?> optimizedControllerClazz = tcl.loadClass("com.syncobjects.as.optimizer.ExampleController");
+		Class<?> optimizedControllerClazz = tcl.loadClass("io.syncframework.optimizer.ExampleController");
 		Assert.assertTrue(optimizedControllerClazz != null);
 		Assert.assertTrue(OController.class.isAssignableFrom(optimizedControllerClazz));
 		
@@ -57,13 +61,20 @@ public class ControllerOptimizerTest {
 		Assert.assertTrue(controller._asUrl().equals("/*"));
 	}
 	
+	@Test
+	public void t01new() throws Exception {
+		OController instance = controller._asNew();
+		Assert.assertTrue(instance != null);
+		Assert.assertTrue(instance != controller);
+		Assert.assertTrue(instance.getClass() == controller.getClass());
+	}
+	
 	@Test
 	public void t02contexts() {
-		controller._asApplicationContext(new ApplicationContext());
-		controller._asErrorContext(new ErrorContext());
-		controller._asMessageContext(new MessageContextMock());
-		controller._asRequestContext(new RequestContext());
-		controller._asSessionContext(new SessionContext());
+		ResponseBeanMock bean = new ResponseBeanMock();
+		controller._asInject(bean);
+		// ExampleController declares no MessageContext
+		Assert.assertTrue(bean.getMessagesRequested() == 0);
 	}
 	
 	@Test
@@ -77,6 +88,35 @@ public class ControllerOptimizerTest {
 		Assert.assertTrue(name.equals("Daniel Froz"));
 	}
 	
+	@Test
+	public void t03reset() throws Exception {
+		OController pristine = controller._asNew();
+		OController instance = controller._asNew();
+		Assert.assertTrue(Integer.valueOf(1).equals(instance._asParameter("page")));
+		
+		// handling a request: contexts injected and @Parameters bound
+		instance._asInject(new ResponseBeanMock());
+		Map<String, List<String>> parameters = new HashMap<String, List<String>>();
+		parameters.put("name", Arrays.asList("Daniel Froz"));
+		parameters.put("date", Arrays.asList("01/01/2016"));
+		parameters.put("page", Arrays.asList("12"));
+		parameters.put("ids", Arrays.asList("1", "2"));
+		instance._asBind(parameters, new HashMap<String, FileUpload>(), instance._asConverters(new ConverterFactory()), null);
+		Assert.assertTrue(Integer.valueOf(12).equals(instance._asParameter("page")));
+		
+		// released to the pool and acquired again: equal to a fresh instance
+		instance._asReset(pristine);
+		OController fresh = controller._asNew();
+		for(Field field: instance.getClass().getDeclaredFields()) {
+			if(Modifier.isStatic(field.getModifiers()))
+				continue;
+			field.setAccessible(true);
+			Assert.assertEquals(field.getName(), field.get(fresh), field.get(instance));
+		}
+		Assert.assertTrue(Integer.valueOf(1).equals(instance._asParameter("page")));
+		Assert.assertTrue(instance._asParameter("name") == null);
+	}
+	
 	@Test
 	public void t04converter() throws Exception {
 		// checking converter
@@ -93,6 +133,30 @@ public class ControllerOptimizerTest {
 		log.info("date: {}", date);
 	}
 	
+	@Test
+	public void t04bind() throws Exception {
+		OController instance = controller._asNew();
+		Converter<?> converters[] = instance._asConverters(new ConverterFactory());
+		Assert.assertTrue(converters.length == 4);
+		
+		Map<String, List<String>> parameters = new HashMap<String, List<String>>();
+		parameters.put("name", Arrays.asList("Daniel Froz"));
+		parameters.put("date", Arrays.asList("01/01/2016"));
+		parameters.put("page", Arrays.asList("12"));
+		parameters.put("ids", Arrays.asList("1", "-9223372036854775808"));
+		parameters.put("unknown", Arrays.asList("value"));
+		instance._asBind(parameters, new HashMap<String, FileUpload>(), converters, null);
+		Assert.assertTrue("Daniel Froz".equals(instance._asParameter("name")));
+		Assert.assertTrue(instance._asParameter("date") instanceof Date);
+		Assert.assertTrue(Integer.valueOf(12).equals(instance._asParameter("page")));
+		long ids[] = (long[])instance._asParameter("ids");
+		Assert.assertTrue(ids.length == 2 && ids[0] == 1 && ids[1] == Long.MIN_VALUE);
+		
+		parameters.put("page", Arrays.asList(""));
+		instance._asBind(parameters, new HashMap<String, FileUpload>(), converters, null);
+		Assert.assertTrue(Integer.valueOf(12).equals(instance._asParameter("page")));
+	}
+	
 	@Test
 	public void t05actions() {
 		Assert.assertTrue(controller._asActionIsDefined("main") == true);
@@ -118,6 +182,78 @@ public class ControllerOptimizerTest {
 		}
 	}
 	
+	@Test
+	public void t06actionsIndexed() {
+		Assert.assertTrue(controller._asActionIndex("unknown") == -1);
+		int index = controller._asActionIndex("main");
+		Assert.assertTrue(index >= 0);
+		Assert.assertTrue(controller._asActionIndex("fetch") != index);
+		Result result = controller._asAction(index);
+		Assert.assertTrue(result instanceof RenderResult);
+		
+		try {
+			controller._asAction(controller._asActionIndex("fetch"));
+			Assert.fail("asynchronous @Action invoked as synchronous");
+		}
+		catch(Exception e) {
+			Assert.assertTrue(e instanceof NoSuchMethodException);
+		}
+	}
+	
+	@Test
+	public void t06actionsParameters() throws Exception {
+		OController instance = controller._asNew();
+		Map<String, List<String>> parameters = new HashMap<String, List<String>>();
+		parameters.put("name", Arrays.asList("Daniel Froz"));
+		parameters.put("page", Arrays.asList("12"));
+		
+		// save() reads name only
+		boolean selected[] = instance._asActionParameters(instance._asActionIndex("save"));
+		Assert.assertTrue(selected != null && selected.length == 4);
+		instance._asBind(parameters, new HashMap<String, FileUpload>(), instance._asConverters(new ConverterFactory()), selected);
+		Assert.assertTrue("Daniel Froz".equals(instance._asParameter("name")));
+		// not bound: keeps its initial value
+		Assert.assertTrue(Integer.valueOf(1).equals(instance._asParameter("page")));
+		
+		selected = instance._asActionParameters(instance._asActionIndex("main"));
+		Assert.assertTrue(selected != null);
+		for(boolean s: selected)
+			Assert.assertFalse(s);
+		
+		// fetch() hands the @Controller to the CompletableFuture
+		Assert.assertTrue(instance._asActionParameters(instance._asActionIndex("fetch")) == null);
+	}
+	
+	@Test
+	public void t06asyncActions() throws Exception {
+		Assert.assertTrue(controller._asActionIsDefined("fetch") == true);
+		Assert.assertTrue(controller._asActionIsAsync("fetch") == true);
+		Assert.assertTrue(controller._asActionIsAsync("main") == false);
+		
+		CompletionStage<Result> stage = controller._asAsyncAction("fetch");
+		Assert.assertTrue(stage != null);
+		Result result = stage.toCompletableFuture().get();
+		Assert.assertTrue(result instanceof RenderResult);
+		Assert.assertTrue(((RenderResult)result).getTemplate().equals("/fetch.ftl"));
+		
+		try {
+			controller._asAsyncAction("main");
+			Assert.assertTrue(false);
+		}
+		catch(Exception e) {
+			Assert.assertTrue(true);
+		}
+	}
+	
+	@Test
+	public void t06streamingActions() {
+		Assert.assertTrue(controller._asActionIsStreaming("main") == true);
+		Assert.assertTrue(controller._asActionIsStreaming("upload") == false);
+		Assert.assertTrue(controller._asActionIsStreaming("fetch") == false);
+		Assert.assertTrue(controller._asActionIsStreaming("unknown") == false);
+		Assert.assertTrue(controller._asActionIsStreaming(null) == false);
+	}
+	
 	@Test
 	public void t07interceptors() {
 		Class<?> interceptors[] = controller._asActionInterceptors("upload");
@@ -1,6 +1,7 @@
 package io.syncframework.optimizer;
 
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 
 import io.syncframework.api.Action;
 import io.syncframework.api.ApplicationContext;
@@ -24,8 +25,12 @@ public class ExampleController {
 	private String name;
 	@Parameter(converter=SimpleDateConverter.class)
 	private Date date;
+	@Parameter
+	private int page = 1;
+	@Parameter
+	private long ids[];
 	
-	@Action
+	@Action(streaming=true)
 	public Result main() {
 		int i=0;
 		application.put("i", i++);
@@ -49,6 +54,7 @@ public class ExampleController {
 		application.put("i", i++);
 		errors.put("i", "String");
 		session.put("i", i++);
+		session.put("name", name);
 		return ResultFactory.render("/save.ftl");
 	}
 	
@@ -61,6 +67,12 @@ public class ExampleController {
 		return ResultFactory.redirect("/redir");
 	}
 	
+	@Action
+	public CompletableFuture<Result> fetch() {
+		// the @Controller escapes to the stage: all @Parameters are bound
+		return CompletableFuture.completedFuture(this).thenApply(c -> ResultFactory.render("/fetch.ftl"));
+	}
+	
 	public ApplicationContext getApplication() {
 		return application;
 	}
@@ -100,4 +112,20 @@ public class ExampleController {
 	public void setDate(Date date) {
 		this.date = date;
 	}
+
+	public int getPage() {
+		return page;
+	}
+
+	public void setPage(int page) {
+		this.page = page;
+	}
+
+	public long[] getIds() {
+		return ids;
+	}
+
+	public void setIds(long[] ids) {
+		this.ids = ids;
+	}
 }
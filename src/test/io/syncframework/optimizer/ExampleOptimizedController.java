@@ -5,18 +5,21 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import io.syncframework.api.Action;
 import io.syncframework.api.ApplicationContext;
 import io.syncframework.api.Controller;
-import io.syncframework.api.CookieContext;
+import io.syncframework.api.Converter;
 import io.syncframework.api.ErrorContext;
-import io.syncframework.api.MessageContext;
+import io.syncframework.api.FileUpload;
 import io.syncframework.api.Parameter;
-import io.syncframework.api.RequestContext;
 import io.syncframework.api.Result;
 import io.syncframework.api.ResultFactory;
 import io.syncframework.api.SessionContext;
+import io.syncframework.converter.ConverterFactory;
+import io.syncframework.core.ResponseBean;
 import io.syncframework.optimizer.OController;
 
 /**
@@ -59,6 +62,7 @@ public class ExampleOptimizedController implements OController {
 		application.put("i", i++);
 		errors.put("i", "String");
 		session.put("i", i++);
+		session.put("name", name);
 		return ResultFactory.render("/save.ftl");
 	}
 	
@@ -71,6 +75,12 @@ public class ExampleOptimizedController implements OController {
 		return ResultFactory.redirect("/redir");
 	}
 	
+	@Action
+	public CompletableFuture<Result> fetch() {
+		// the @Controller escapes to the stage: all @Parameters are bound
+		return CompletableFuture.completedFuture(this).thenApply(c -> ResultFactory.render("/fetch.ftl"));
+	}
+	
 	public ApplicationContext getApplication() {
 		return application;
 	}
@@ -122,10 +132,11 @@ public class ExampleOptimizedController implements OController {
 	static {
 		try {
 			_asActions = new HashMap<String, Boolean>();
-			_asActions.put("main", true);
-			_asActions.put("upload", true);
-			_asActions.put("save", true);
-			_asActions.put("redir", true);
+			_asActions.put("main", false);
+			_asActions.put("upload", false);
+			_asActions.put("save", false);
+			_asActions.put("redir", false);
+			_asActions.put("fetch", true);
 			
 			
 			_asInterceptors = new HashMap<String, Class<?>[]>();
@@ -155,6 +166,21 @@ public class ExampleOptimizedController implements OController {
 		return "/*";
 	}
 	
+	@Override
+	public OController _asNew() {
+		return new ExampleOptimizedController();
+	}
+	
+	@Override
+	public void _asReset(OController pristine) {
+		ExampleOptimizedController p = (ExampleOptimizedController)pristine;
+		this.name = p.name;
+		this.date = p.date;
+		this.application = null;
+		this.errors = null;
+		this.session = null;
+	}
+	
 	@Override
 	public Map<String, Class<?>> _asParameters() {
 		return _asParameters;
@@ -165,22 +191,24 @@ public class ExampleOptimizedController implements OController {
 	 */
 	@Override
 	public Object _asParameter(String name) {
-		if(name.equals("name"))
-			return getName();
-		if(name.equals("date"))
-			return getDate();
+		switch(name) {
+			case "name":
+				return getName();
+			case "date":
+				return getDate();
+		}
 		return null;
 	}
 
 	@Override
 	public void _asParameter(String name, Object value) {
-		if(name.equals("name")) {
-			setName((String)value);
-			return;
-		}
-		if(name.equals("date")) {
-			setDate((Date)value);
-			return;
+		switch(name) {
+			case "name":
+				setName((String)value);
+				return;
+			case "date":
+				setDate((Date)value);
+				return;
 		}
 	}
 	
@@ -188,49 +216,117 @@ public class ExampleOptimizedController implements OController {
 	public Class<?> _asParameterConverter(String name) {
 		return _asConverters.get(name);
 	}
-
+	
 	@Override
-	public void _asApplicationContext(ApplicationContext application) {
-		this.application = application;
+	public Converter<?>[] _asConverters(ConverterFactory factory) {
+		return new Converter<?>[] {
+			factory.getConverter(String.class, "io.syncframework.optimizer.ExampleController.name"),
+			new SimpleDateConverter()
+		};
 	}
 	
 	@Override
-	public void _asCookieContext(CookieContext cookies) {
-		// do nothing
+	public void _asBind(Map<String, List<String>> parameters, Map<String, FileUpload> files, Converter<?> converters[], 
+			boolean selected[]) throws Exception {
+		if(selected == null || selected[0]) {
+			List<String> values = parameters.get("name");
+			if(values != null && !values.isEmpty())
+				setName((String)converters[0].convert(values));
+		}
+		if(selected == null || selected[1]) {
+			List<String> values = parameters.get("date");
+			if(values != null && !values.isEmpty())
+				setDate((Date)converters[1].convert(values));
+		}
 	}
 
 	@Override
-	public void _asErrorContext(ErrorContext errors) {
-		this.errors = errors;
+	public void _asInject(ResponseBean bean) {
+		this.application = bean.getApplicationContext();
+		this.errors = bean.getErrorContext();
+		this.session = bean.getSessionContext();
 	}
 
 	@Override
-	public void _asMessageContext(MessageContext messages) {
-		// do nothing
+	public Result _asAction(String name) {		
+		switch(name) {
+			case "upload":
+				return upload();
+			case "save":
+				return save();
+			case "main":
+				return main();
+			case "redir":
+				return redir();
+			default:
+				throw new RuntimeException("no action named "+name);
+		}
 	}
-
+	
 	@Override
-	public void _asRequestContext(RequestContext request) {
-		// do nothing
+	public CompletionStage<Result> _asAsyncAction(String name) {
+		switch(name) {
+			case "fetch":
+				return fetch();
+			default:
+				throw new RuntimeException("no action named "+name);
+		}
 	}
-
+	
 	@Override
-	public void _asSessionContext(SessionContext session) {
-		this.session = session;
+	public Result _asAction(int index) {
+		switch(index) {
+			case 0:
+				return main();
+			case 1:
+				return upload();
+			case 2:
+				return save();
+			case 3:
+				return redir();
+			default:
+				throw new RuntimeException("no action indexed "+index);
+		}
 	}
-
+	
 	@Override
-	public Result _asAction(String name) {		
-		if(name.equals("upload"))
-			return upload();
-		else if(name.equals("save"))
-			return save();
-		else if(name.equals("main"))
-			return main();
-		else if(name.equals("redir"))
-			return redir();
-		else
-			throw new RuntimeException("no action named "+name);
+	public CompletionStage<Result> _asAsyncAction(int index) {
+		switch(index) {
+			case 4:
+				return fetch();
+			default:
+				throw new RuntimeException("no action indexed "+index);
+		}
+	}
+	
+	@Override
+	public int _asActionIndex(String name) {
+		switch(name) {
+			case "main":
+				return 0;
+			case "upload":
+				return 1;
+			case "save":
+				return 2;
+			case "redir":
+				return 3;
+			case "fetch":
+				return 4;
+			default:
+				return -1;
+		}
+	}
+	
+	@Override
+	public boolean[] _asActionParameters(int index) {
+		switch(index) {
+			case 2:
+				return new boolean[] { true, false };
+			case 4:
+				return null;
+			default:
+				return new boolean[] { false, false };
+		}
 	}
 	
 	@Override
@@ -245,4 +341,16 @@ public class ExampleOptimizedController implements OController {
 			return true;
 		return false;
 	}
+	
+	@Override
+	public boolean _asActionIsAsync(String name) {
+		return Boolean.TRUE.equals(_asActions.get(name));
+	}
+	
+	@Override
+	public boolean _asActionIsStreaming(String name) {
+		if("main".equals(name))
+			return true;
+		return false;
+	}
 }
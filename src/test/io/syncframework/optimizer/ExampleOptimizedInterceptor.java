@@ -2,19 +2,22 @@ package io.syncframework.optimizer;
 
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import io.syncframework.api.Action;
 import io.syncframework.api.ApplicationContext;
-import io.syncframework.api.CookieContext;
+import io.syncframework.api.Converter;
 import io.syncframework.api.ErrorContext;
+import io.syncframework.api.FileUpload;
 import io.syncframework.api.Interceptor;
 import io.syncframework.api.MessageContext;
 import io.syncframework.api.Parameter;
-import io.syncframework.api.RequestContext;
 import io.syncframework.api.Result;
 import io.syncframework.api.ResultFactory;
 import io.syncframework.api.SessionContext;
+import io.syncframework.converter.ConverterFactory;
+import io.syncframework.core.ResponseBean;
 import io.syncframework.optimizer.OInterceptor;
 
 @Interceptor
@@ -141,34 +144,28 @@ public class ExampleOptimizedInterceptor implements OInterceptor {
 	public Class<?> _asParameterConverter(String name) {
 		return _asConverters.get(name);
 	}
-
-	@Override
-	public void _asApplicationContext(ApplicationContext application) {
-		// do nothing
-	}
 	
 	@Override
-	public void _asCookieContext(CookieContext cookies) {
-		// do nothing
-	}
-
-	@Override
-	public void _asErrorContext(ErrorContext errors) {
-		this.errors = errors;
+	public Converter<?>[] _asConverters(ConverterFactory factory) {
+		return new Converter<?>[] {
+			factory.getConverter(String.class, "io.syncframework.optimizer.ExampleInterceptor.name"),
+			new SimpleDateConverter()
+		};
 	}
-
-	@Override
-	public void _asMessageContext(MessageContext messages) {
-		// do nothing
-	}
-
+	
 	@Override
-	public void _asRequestContext(RequestContext request) {
-		// do nothing
+	public void _asBind(Map<String, List<String>> parameters, Map<String, FileUpload> files, Converter<?> converters[]) throws Exception {
+		List<String> values = parameters.get("name");
+		if(values != null && !values.isEmpty())
+			setName((String)converters[0].convert(values));
+		values = parameters.get("date");
+		if(values != null && !values.isEmpty())
+			setDate((Date)converters[1].convert(values));
 	}
 
 	@Override
-	public void _asSessionContext(SessionContext session) {
-		this.session = session;
+	public void _asInject(ResponseBean bean) {
+		this.errors = bean.getErrorContext();
+		this.session = bean.getSessionContext();
 	}
 }
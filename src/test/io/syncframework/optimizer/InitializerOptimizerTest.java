@@ -35,9 +35,9 @@ public class InitializerOptimizerTest {
 		try { fos.close(); } catch(Exception ignore) {}
 		
 		TestClassLoader tcl = new TestClassLoader();
-		tcl.defineClass("com.syncobjects.as.optimizer.ExampleInitializer", b);
+		tcl.defineClass("io.syncframework.optimizer.ExampleInitializer", b);
 		
-		Class<?> optimizedInitializerClazz = tcl.loadClass("com.syncobjects.as.optimizer.ExampleInitializer");
+		Class<?> optimizedInitializerClazz = tcl.loadClass("io.syncframework.optimizer.ExampleInitializer");
 		Assert.assertTrue(optimizedInitializerClazz != null);
 		Assert.assertTrue(OInitializer.class.isAssignableFrom(optimizedInitializerClazz));
 		
@@ -12,15 +12,9 @@ import org.junit.runners.MethodSorters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import io.syncframework.api.ApplicationContext;
 import io.syncframework.api.Converter;
-import io.syncframework.api.CookieContext;
-import io.syncframework.api.ErrorContext;
-import io.syncframework.api.MessageContextMock;
 import io.syncframework.api.RenderResult;
-import io.syncframework.api.RequestContext;
 import io.syncframework.api.Result;
-import io.syncframework.api.SessionContext;
 import io.syncframework.optimizer.ClassOptimizer;
 import io.syncframework.optimizer.OInterceptor;
 
@@ -43,9 +37,9 @@ public class InterceptorOptimizerTest {
 		try { fos.close(); } catch(Exception ignore) {}
 		
 		TestClassLoader tcl = new TestClassLoader();
-		tcl.defineClass("com.syncobjects.as.optimizer.ExampleInterceptor", b);
+		tcl.defineClass("io.syncframework.optimizer.ExampleInterceptor", b);
 		
-		Class<?> optimizedInterceptorClazz = tcl.loadClass("com.syncobjects.as.optimizer.ExampleInterceptor");
+		Class<?> optimizedInterceptorClazz = tcl.loadClass("io.syncframework.optimizer.ExampleInterceptor");
 		Assert.assertTrue(optimizedInterceptorClazz != null);
 		Assert.assertTrue(OInterceptor.class.isAssignableFrom(optimizedInterceptorClazz));
 		
@@ -54,12 +48,7 @@ public class InterceptorOptimizerTest {
 	
 	@Test
 	public void t01contexts() {
-		interceptor._asApplicationContext(new ApplicationContext());
-		interceptor._asCookieContext(new CookieContext());
-		interceptor._asErrorContext(new ErrorContext());
-		interceptor._asRequestContext(new RequestContext());
-		interceptor._asMessageContext(new MessageContextMock());
-		interceptor._asSessionContext(new SessionContext());
+		interceptor._asInject(new ResponseBeanMock());
 	}
 	
 	@Test
@@ -8,7 +8,12 @@ import org.junit.runners.Suite.SuiteClasses;
 @SuiteClasses({ 
 	ControllerOptimizerTest.class,
 	InterceptorOptimizerTest.class,
-	InitializerOptimizerTest.class
+	InitializerOptimizerTest.class,
+	SessionCodecTest.class,
+	SessionFactoryPersistentTest.class,
+	SessionLogTest.class,
+	SessionStoreTest.class,
+	URLRouterTest.class
 })
 public class MainTest {
 }
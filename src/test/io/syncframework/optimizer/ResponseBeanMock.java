@@ -0,0 +1,55 @@
+package io.syncframework.optimizer;
+
+import java.util.Collections;
+import java.util.Set;
+
+import io.syncframework.api.ApplicationContext;
+import io.syncframework.api.CookieContext;
+import io.syncframework.api.ErrorContext;
+import io.syncframework.api.MessageContext;
+import io.syncframework.api.MessageContextMock;
+import io.syncframework.api.RequestContext;
+import io.syncframework.api.SessionContext;
+import io.syncframework.core.ResponseBean;
+
+/**
+ * Provides the contexts to _asInject(), counting the MessageContexts requested
+ * @author dfroz
+ */
+public class ResponseBeanMock implements ResponseBean {
+	private final ApplicationContext application = new ApplicationContext();
+	private final CookieContext cookies = new CookieContext();
+	private final ErrorContext errors = new ErrorContext();
+	private final RequestContext request = new RequestContext();
+	private final SessionContext session = new SessionContext();
+	private int messagesRequested;
+	
+	public ApplicationContext getApplicationContext() {
+		return application;
+	}
+	public Object getParameter(String name) {
+		return null;
+	}
+	public Set<String> getParametersName() {
+		return Collections.emptySet();
+	}
+	public CookieContext getCookieContext() {
+		return cookies;
+	}
+	public ErrorContext getErrorContext() {
+		return errors;
+	}
+	public MessageContext getMessageContext() {
+		messagesRequested++;
+		return new MessageContextMock();
+	}
+	public RequestContext getRequestContext() {
+		return request;
+	}
+	public SessionContext getSessionContext() {
+		return session;
+	}
+	public int getMessagesRequested() {
+		return messagesRequested;
+	}
+}
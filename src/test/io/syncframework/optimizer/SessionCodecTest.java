@@ -0,0 +1,136 @@
+package io.syncframework.optimizer;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import io.syncframework.core.Session;
+import io.syncframework.core.SessionCodec;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class SessionCodecTest {
+	
+	@Test
+	public void t01header() throws Exception {
+		Session session = new Session("abc", null);
+		session.setCreationTime(1000L);
+		session.setAccessTime(2000L);
+		session.setRemoteAddress("127.0.0.1");
+		
+		Session decoded = roundTrip(session);
+		Assert.assertEquals("abc", decoded.getId());
+		Assert.assertEquals(1000L, decoded.getCreationTime());
+		Assert.assertEquals(2000L, decoded.getAccessTime());
+		Assert.assertEquals("127.0.0.1", decoded.getRemoteAddress());
+		Assert.assertFalse(decoded.isRecent());
+		Assert.assertTrue(decoded.getSessionContext().isEmpty());
+		
+		session.setRemoteAddress(null);
+		Assert.assertNull(roundTrip(session).getRemoteAddress());
+	}
+	
+	@Test
+	public void t02values() throws Exception {
+		Map<String,Object> values = new HashMap<String,Object>();
+		values.put("string", "caf\u00e9");
+		values.put("integer", 42);
+		values.put("long", Long.MAX_VALUE);
+		values.put("double", 3.5d);
+		values.put("float", 1.25f);
+		values.put("short", (short)-7);
+		values.put("byte", (byte)0x7f);
+		values.put("boolean", Boolean.TRUE);
+		values.put("character", '\u00e7');
+		values.put("date", new Date(1234567890L));
+		values.put("locale", Locale.forLanguageTag("pt-BR"));
+		values.put("biginteger", new BigInteger("-123456789012345678901234567890"));
+		values.put("bigdecimal", new BigDecimal("12345.678900"));
+		values.put("list", Arrays.<Object>asList("a", 1, Arrays.asList(2L, "b")));
+		Map<Object,Object> map = new HashMap<Object,Object>();
+		map.put("key", 1);
+		map.put(2, Arrays.asList("c"));
+		values.put("map", map);
+		
+		Session session = new Session("values", null);
+		session.getSessionContext().putAll(values);
+		session.getSessionContext().put("bytes", new byte[] { 1, 2, 3 });
+		
+		Session decoded = roundTrip(session);
+		for(Map.Entry<String,Object> e: values.entrySet()) {
+			Object value = decoded.getSessionContext().get(e.getKey());
+			Assert.assertEquals(e.getKey(), e.getValue(), value);
+			if(!(value instanceof List) && !(value instanceof Map))
+				Assert.assertEquals(e.getKey(), e.getValue().getClass(), value.getClass());
+		}
+		Assert.assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[])decoded.getSessionContext().get("bytes"));
+		Assert.assertEquals(values.size()+1, decoded.getSessionContext().size());
+	}
+	
+	@Test
+	public void t03unsupported() throws Exception {
+		Session session = new Session("unsupported", null);
+		session.getSessionContext().put("kept", "value");
+		session.getSessionContext().put("object", new Object());
+		session.getSessionContext().put("list", Arrays.<Object>asList("a", new Object()));
+		
+		Session decoded = roundTrip(session);
+		Assert.assertEquals("value", decoded.getSessionContext().get("kept"));
+		Assert.assertFalse(decoded.getSessionContext().containsKey("object"));
+		Assert.assertFalse(decoded.getSessionContext().containsKey("list"));
+	}
+	
+	@Test
+	public void t04errors() throws Exception {
+		Session session = new Session("errors", null);
+		session.getErrorContext().put("field", "is required");
+		
+		Session decoded = roundTrip(session);
+		Assert.assertEquals("is required", decoded.getErrorContext().get("field"));
+	}
+	
+	@Test
+	public void t05partial() throws Exception {
+		Session session = new Session("partial", null);
+		session.setAccessTime(5000L);
+		session.getSessionContext().put("key", "value");
+		byte b[] = new SessionCodec().encode(session);
+		
+		Assert.assertEquals("partial", SessionCodec.decodeId(new DataInputStream(new ByteArrayInputStream(b))));
+		Assert.assertEquals(5000L, SessionCodec.decodeAccessTime(new DataInputStream(new ByteArrayInputStream(b))));
+	}
+	
+	@Test
+	public void t06reused() throws Exception {
+		SessionCodec codec = new SessionCodec();
+		Session large = new Session("large", null);
+		large.getSessionContext().put("key", new String(new char[1000]).replace('\0', 'x'));
+		codec.encode(large);
+		
+		Session small = new Session("small", null);
+		small.getSessionContext().put("key", "y");
+		byte b[] = codec.encode(small);
+		Session decoded = SessionCodec.decode(new DataInputStream(new ByteArrayInputStream(b)));
+		Assert.assertEquals("small", decoded.getId());
+		Assert.assertEquals("y", decoded.getSessionContext().get("key"));
+	}
+	
+	private static Session roundTrip(Session session) throws Exception {
+		byte b[] = new SessionCodec().encode(session);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(b));
+		Session decoded = SessionCodec.decode(in);
+		Assert.assertEquals("trailing bytes", 0, in.available());
+		return decoded;
+	}
+}
@@ -0,0 +1,77 @@
+package io.syncframework.optimizer;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import io.syncframework.core.ApplicationConfig;
+import io.syncframework.core.Session;
+import io.syncframework.core.SessionFactoryPersistentImpl;
+import io.syncframework.core.SessionIdGenerator;
+import io.syncframework.core.SessionLog;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class SessionFactoryPersistentTest {
+	private File directory;
+	private ApplicationConfig config;
+	private SessionIdGenerator generator;
+	
+	@Before
+	public void setup() throws Exception {
+		directory = File.createTempFile("sessions", "");
+		directory.delete();
+		directory.mkdir();
+		config = new ApplicationConfig();
+		config.setBaseDirectory(directory);
+		config.setSessionExpire(3600000L);
+		config.setSessionIdKey("sid");
+		config.setSessionMemorySize(1 << 20);
+		// a single session in memory: each new one evicts the previous
+		config.setSessionPoolSize(1);
+		generator = new SessionIdGenerator() {
+			private int next;
+			public synchronized String generate() {
+				return "s"+(next++);
+			}
+			public void start(ApplicationConfig config) {
+			}
+		};
+	}
+	
+	@After
+	public void teardown() throws Exception {
+		for(File file: directory.listFiles())
+			file.delete();
+		directory.delete();
+	}
+	
+	@Test
+	public void t01evictedWritten() throws Exception {
+		SessionFactoryPersistentImpl factory = new SessionFactoryPersistentImpl();
+		factory.start(config, generator);
+		Session first = new Session();
+		first.getSessionContext().put("value", "first");
+		factory.create(first);
+		Session second = new Session();
+		second.getSessionContext().put("value", "second");
+		factory.create(second);
+		Assert.assertEquals(1, factory.getStore().getEvictions());
+		factory.stop();
+		
+		SessionLog journal = new SessionLog(new File(directory, "sessions.dat"));
+		journal.open();
+		try {
+			// evicted before the writer ran: its changes are written all the same
+			Assert.assertEquals("first", journal.read(first.getId()).getSessionContext().get("value"));
+			Assert.assertEquals("second", journal.read(second.getId()).getSessionContext().get("value"));
+		}
+		finally {
+			journal.close();
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package io.syncframework.optimizer;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import io.syncframework.core.Session;
+import io.syncframework.core.SessionCodec;
+import io.syncframework.core.SessionLog;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class SessionLogTest {
+	private final SessionCodec codec = new SessionCodec();
+	private File file;
+	private SessionLog journal;
+	
+	@Before
+	public void setup() throws Exception {
+		file = File.createTempFile("sessions", ".dat");
+		file.delete();
+		journal = new SessionLog(file);
+		journal.open();
+	}
+	
+	@After
+	public void teardown() throws Exception {
+		journal.close();
+		file.delete();
+		new File(file.getPath()+".tmp").delete();
+	}
+	
+	@Test
+	public void t01reopen() throws Exception {
+		write("a", 1000L, "first");
+		write("b", 1000L, "second");
+		write("a", 2000L, "third");
+		Assert.assertEquals(2, journal.getSize());
+		
+		reopen();
+		Assert.assertEquals(2, journal.getSize());
+		Assert.assertEquals("third", journal.read("a").getSessionContext().get("value"));
+		Assert.assertEquals(2000L, journal.read("a").getAccessTime());
+		Assert.assertEquals("second", journal.read("b").getSessionContext().get("value"));
+		Assert.assertNull(journal.read("c"));
+	}
+	
+	@Test
+	public void t02tombstone() throws Exception {
+		write("a", 1000L, "first");
+		write("b", 1000L, "second");
+		journal.remove("a");
+		journal.remove("unknown");
+		Assert.assertFalse(journal.contains("a"));
+		Assert.assertNull(journal.read("a"));
+		
+		reopen();
+		Assert.assertFalse(journal.contains("a"));
+		Assert.assertTrue(journal.contains("b"));
+		
+		// written again after its removal
+		write("a", 3000L, "again");
+		reopen();
+		Assert.assertEquals("again", journal.read("a").getSessionContext().get("value"));
+	}
+	
+	@Test
+	public void t03truncated() throws Exception {
+		write("a", 1000L, "first");
+		int offset = journal.getPosition();
+		write("b", 1000L, "second");
+		journal.close();
+		
+		// a crash before the length of the record was written
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.seek(offset);
+		raf.writeInt(0);
+		raf.close();
+		
+		journal = new SessionLog(file);
+		journal.open();
+		Assert.assertTrue(journal.contains("a"));
+		Assert.assertFalse(journal.contains("b"));
+		Assert.assertEquals(offset, journal.getPosition());
+		
+		// the next record takes the place of the truncated one
+		write("c", 1000L, "third");
+		reopen();
+		Assert.assertEquals("first", journal.read("a").getSessionContext().get("value"));
+		Assert.assertEquals("third", journal.read("c").getSessionContext().get("value"));
+	}
+	
+	@Test
+	public void t04corrupt() throws Exception {
+		write("a", 1000L, "first");
+		int offset = journal.getPosition();
+		write("b", 1000L, "second");
+		journal.close();
+		
+		// flip the last byte of the record, which no longer matches its CRC
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.seek(offset);
+		int length = raf.readInt();
+		long last = offset + 8 + length - 1;
+		raf.seek(last);
+		int b = raf.read();
+		raf.seek(last);
+		raf.write(b ^ 0xff);
+		raf.close();
+		
+		journal = new SessionLog(file);
+		journal.open();
+		Assert.assertTrue(journal.contains("a"));
+		Assert.assertFalse(journal.contains("b"));
+		Assert.assertEquals(offset, journal.getPosition());
+	}
+	
+	@Test
+	public void t05notlog() throws Exception {
+		journal.close();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.seek(0);
+		raf.writeInt(0xcafebabe);
+		raf.close();
+		
+		journal = new SessionLog(file);
+		journal.open();
+		Assert.assertEquals(0, journal.getSize());
+		write("a", 1000L, "first");
+		reopen();
+		Assert.assertTrue(journal.contains("a"));
+	}
+	
+	@Test
+	public void t06compact() throws Exception {
+		for(int i=0; i < 100; i++)
+			write("live", 5000L, "value"+i);
+		write("expired", 1000L, "old");
+		write("removed", 5000L, "gone");
+		journal.remove("removed");
+		int position = journal.getPosition();
+		
+		journal.compact(2000L);
+		Assert.assertTrue(journal.getPosition() < position);
+		Assert.assertEquals(1, journal.getSize());
+		Assert.assertFalse(journal.contains("expired"));
+		Assert.assertFalse(journal.contains("removed"));
+		Assert.assertEquals("value99", journal.read("live").getSessionContext().get("value"));
+		
+		// appends after the compaction land in the new file
+		write("next", 6000L, "after");
+		reopen();
+		Assert.assertEquals(2, journal.getSize());
+		Assert.assertEquals("value99", journal.read("live").getSessionContext().get("value"));
+		Assert.assertEquals("after", journal.read("next").getSessionContext().get("value"));
+		Assert.assertFalse(new File(file.getPath()+".tmp").exists());
+	}
+	
+	@Test
+	public void t07grow() throws Exception {
+		// beyond the 1MB mapped initially
+		String value = new String(new char[64*1024]).replace('\0', 'x');
+		for(int i=0; i < 32; i++)
+			write("s"+i, 1000L, value+i);
+		reopen();
+		Assert.assertEquals(32, journal.getSize());
+		Assert.assertEquals(value+31, journal.read("s31").getSessionContext().get("value"));
+	}
+	
+	private void write(String id, long accessTime, String value) throws Exception {
+		Session session = new Session(id, null);
+		session.setAccessTime(accessTime);
+		session.getSessionContext().put("value", value);
+		journal.write(id, codec.encode(session));
+	}
+	
+	private void reopen() throws Exception {
+		journal.close();
+		journal = new SessionLog(file);
+		journal.open();
+	}
+}
@@ -0,0 +1,81 @@
+package io.syncframework.optimizer;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import io.syncframework.core.Session;
+import io.syncframework.core.SessionExpirer;
+import io.syncframework.core.SessionStore;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class SessionStoreTest {
+	
+	@Test
+	public void t01evictedUnreachable() throws Exception {
+		final SessionStore store = new SessionStore(1, 1 << 20);
+		SessionExpirer.Store expiring = new SessionExpirer.Store() {
+			public long getSessionExpire() {
+				return 3600000L;
+			}
+			public boolean expire(Session session) {
+				return store.remove(session.getId(), session);
+			}
+		};
+		Session session = new Session("a", null);
+		session.getSessionContext().put("value", new byte[1024]);
+		Assert.assertTrue(store.putIfAbsent("a", session));
+		SessionExpirer.getInstance().schedule(session, expiring);
+		WeakReference<Session> reference = new WeakReference<Session>(session);
+		session = null;
+		
+		// the store holds a single session: the first one is evicted
+		Session other = new Session("b", null);
+		Assert.assertTrue(store.putIfAbsent("b", other));
+		SessionExpirer.getInstance().schedule(other, expiring);
+		Assert.assertEquals(1, store.getEvictions());
+		Assert.assertNull(store.get("a"));
+		
+		// neither the store nor the expirer, which is still an hour away from its deadline, keep it
+		Assert.assertTrue("evicted session still reachable", collected(reference));
+		Assert.assertTrue(store.get("b") == other);
+	}
+	
+	@Test
+	public void t02clearedUnreachable() throws Exception {
+		final SessionStore store = new SessionStore(16, 1 << 20);
+		SessionExpirer.Store expiring = new SessionExpirer.Store() {
+			public long getSessionExpire() {
+				return 3600000L;
+			}
+			public boolean expire(Session session) {
+				return store.remove(session.getId(), session);
+			}
+		};
+		for(int i=0; i < 4; i++) {
+			Session session = new Session("s"+i, null);
+			Assert.assertTrue(store.putIfAbsent(session.getId(), session));
+			SessionExpirer.getInstance().schedule(session, expiring);
+		}
+		// stands for the factory, and the application classes, of a stopped application
+		WeakReference<SessionExpirer.Store> reference = new WeakReference<SessionExpirer.Store>(expiring);
+		expiring = null;
+		
+		store.clear();
+		Assert.assertEquals(0, store.getSize());
+		Assert.assertEquals(0, store.getMemorySize());
+		Assert.assertNull(store.get("s0"));
+		Assert.assertTrue("stopped application still reachable", collected(reference));
+	}
+	
+	static boolean collected(WeakReference<?> reference) throws InterruptedException {
+		for(int i=0; i < 50 && reference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		return reference.get() == null;
+	}
+}
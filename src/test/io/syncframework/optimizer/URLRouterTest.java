@@ -0,0 +1,127 @@
+package io.syncframework.optimizer;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import io.syncframework.core.URLPattern;
+import io.syncframework.core.URLRouter;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class URLRouterTest {
+	
+	@Test
+	public void t01root() {
+		URLRouter<String> router = router("/*");
+		Assert.assertEquals("/*", router.route("/"));
+		Assert.assertEquals("/*", router.route("/save"));
+		Assert.assertEquals("/*", router.route("/save.do?id=1"));
+		Assert.assertNull(router.route("/users/save"));
+		Assert.assertNull(router.route(""));
+		Assert.assertNull(router.route("save"));
+	}
+	
+	@Test
+	public void t02sharedPrefixes() {
+		URLRouter<String> router = router("/users/*", "/user/*", "/users/admin/*", "/*");
+		Assert.assertEquals(4, router.size());
+		Assert.assertEquals("/users/*", router.route("/users/list"));
+		Assert.assertEquals("/user/*", router.route("/user/list"));
+		Assert.assertEquals("/users/admin/*", router.route("/users/admin/list"));
+		Assert.assertEquals("/*", router.route("/usersx"));
+		Assert.assertEquals("/*", router.route("/use"));
+		// neither /users/* nor /* take a URL with slashes beyond their wildcard
+		Assert.assertNull(router.route("/users/other/list"));
+	}
+	
+	@Test
+	public void t03edgeSplits() {
+		// each pattern splits an edge of the previous ones
+		URLRouter<String> router = router("/abcdef/*", "/abc/*", "/abcxyz/*", "/ab/*");
+		Assert.assertEquals("/abcdef/*", router.route("/abcdef/a"));
+		Assert.assertEquals("/abc/*", router.route("/abc/a"));
+		Assert.assertEquals("/abcxyz/*", router.route("/abcxyz/a"));
+		Assert.assertEquals("/ab/*", router.route("/ab/a"));
+		Assert.assertNull(router.route("/abcd/a"));
+		Assert.assertNull(router.route("/a/a"));
+		
+		// same patterns, registered in the reverse order
+		router = router("/ab/*", "/abcxyz/*", "/abc/*", "/abcdef/*");
+		Assert.assertEquals("/abcdef/*", router.route("/abcdef/a"));
+		Assert.assertEquals("/abc/*", router.route("/abc/a"));
+		Assert.assertEquals("/abcxyz/*", router.route("/abcxyz/a"));
+		Assert.assertEquals("/ab/*", router.route("/ab/a"));
+	}
+	
+	@Test
+	public void t04noMatch() {
+		URLRouter<String> router = router("/users/*", "/orders/list");
+		Assert.assertNull(router.route("/"));
+		Assert.assertNull(router.route("/users"));
+		Assert.assertNull(router.route("/orders"));
+		Assert.assertNull(router.route("/orders/"));
+		Assert.assertNull(router.route("/orders/lis"));
+		Assert.assertNull(router.route("/orders/listing"));
+		Assert.assertNull(router.route("/products/list"));
+	}
+	
+	@Test
+	public void t05trailingSlash() {
+		URLRouter<String> router = router("/users/*", "/orders/");
+		Assert.assertEquals("/users/*", router.route("/users/"));
+		// an exact pattern shall name an action
+		Assert.assertNull(router.route("/orders/"));
+		
+		URLRouter.Match match = new URLRouter.Match();
+		router.route("/users/", match);
+		Assert.assertEquals(0, match.getActionLength());
+	}
+	
+	@Test
+	public void t06exactAndWildcard() {
+		URLRouter<String> router = router("/users/*", "/users/list", "/users/list.html");
+		Assert.assertEquals("/users/list", router.route("/users/list"));
+		Assert.assertEquals("/users/list", router.route("/users/list?page=2"));
+		Assert.assertEquals("/users/list.html", router.route("/users/list.html"));
+		Assert.assertEquals("/users/*", router.route("/users/save"));
+		
+		// already registered: the first route is kept
+		Assert.assertEquals("/users/*", router.add(pattern("/users/*"), "again"));
+		Assert.assertEquals("/users/*", router.route("/users/save"));
+	}
+	
+	@Test
+	public void t07action() {
+		URLRouter<String> router = router("/users/*", "/*");
+		Assert.assertEquals("save", action(router, "/users/save"));
+		Assert.assertEquals("save", action(router, "/users/save.do"));
+		Assert.assertEquals("list", action(router, "/users/list.html;max=10"));
+		Assert.assertEquals("list", action(router, "/users/list?page=2"));
+		Assert.assertEquals("", action(router, "/users/"));
+		Assert.assertEquals("", action(router, "/users/?page=2"));
+		Assert.assertEquals("", action(router, "/"));
+		Assert.assertEquals("index", action(router, "/index.html"));
+		Assert.assertNull(action(router, "/users/a/b"));
+	}
+	
+	private static String action(URLRouter<String> router, String url) {
+		URLRouter.Match match = new URLRouter.Match();
+		if(router.route(url, match) == null)
+			return null;
+		return url.substring(match.getActionOffset(), match.getActionOffset()+match.getActionLength());
+	}
+	
+	private static URLRouter<String> router(String... patterns) {
+		URLRouter<String> router = new URLRouter<String>();
+		for(String pattern: patterns)
+			Assert.assertNull(router.add(pattern(pattern), pattern));
+		return router;
+	}
+	
+	private static URLPattern pattern(String url) {
+		URLPattern pattern = new URLPattern();
+		pattern.compile(url);
+		return pattern;
+	}
+}